@@ -15,17 +15,18 @@ import java.awt.Color;
  */
 public abstract class Ball {
 	/**
-	 * @invar | center != null
 	 * @invar | diameter > 0
-	 * @invar | velocity != null
-	 * @invar | !(velocity.equals(new Vector(0,0)))
+	 * @invar | velocity != 0
 	 */
-	protected Point center;
+	// The center and the velocity, packed by Geometry.pack
+	protected long center;
 	protected int diameter;
-	protected Vector velocity;
+	protected long velocity;
 	
 	// The additional speeds of ball replicates produced by a replicator paddle
 	public static final Vector[] replicateBallsSpeedDiff = {new Vector(2,-2), new Vector(-2,2), new Vector(2,2)};
+	// The same speeds, packed by Geometry.pack
+	static final long[] REPLICATE_SPEED_DIFFS = {Geometry.pack(2,-2), Geometry.pack(-2,2), Geometry.pack(2,2)};
 	// The maximum lifetime of a supercharged ball in ms
 	public static final int MAX_LIFETIME = 10000;
 	
@@ -69,6 +70,84 @@ public abstract class Ball {
 	 */
 	public abstract void hitBlock(Rect rect, boolean destroyed);
 	
+	/**
+	 * Changes the motion of the ball after it hit a block at the supplied face, depending on whether the block was
+	 * destroyed, as hitBlock.
+	 * @mutates | this
+	 * @pre | Geometry.RIGHT <= face && face <= Geometry.UP
+	 */
+	abstract void hitFace(int face, boolean destroyed);
+	
+	/**
+	 * Returns the X coordinate of the center of this ball. Unlike getCenter, this does not create an object, so that
+	 * the physics can inspect the ball without allocating.
+	 */
+	final int centerX() {
+		return Geometry.x(center);
+	}
+	
+	/**
+	 * Returns the Y coordinate of the center of this ball, without creating an object.
+	 */
+	final int centerY() {
+		return Geometry.y(center);
+	}
+	
+	/**
+	 * Returns the X coordinate of the velocity of this ball, without creating an object.
+	 */
+	final int velX() {
+		return Geometry.x(velocity);
+	}
+	
+	/**
+	 * Returns the Y coordinate of the velocity of this ball, without creating an object.
+	 */
+	final int velY() {
+		return Geometry.y(velocity);
+	}
+	
+	/**
+	 * Adds the supplied horizontal speed to the velocity of this ball, as a moving paddle does.
+	 * @mutates | this
+	 * @post | getVelocity().equals(old(getVelocity()).plus(new Vector(dx, 0)))
+	 */
+	final void push(int dx) {
+		velocity = Geometry.plus(velocity, Geometry.pack(dx, 0));
+	}
+	
+	/**
+	 * Returns the face at which this ball overlaps the supplied rectangle, or Geometry.NO_FACE, as
+	 * rectangleOf().overlap returns the normal vector of that face.
+	 */
+	int faceOf(int left, int top, int right, int bottom) {
+		int radius = diameter/2;
+		int x = Geometry.x(center);
+		int y = Geometry.y(center);
+		return Geometry.overlap(x - radius, y - radius, x + radius, y + radius, left, top, right, bottom);
+	}
+	
+	/**
+	 * Returns the face at which this ball overlaps the supplied rectangle while moving into it, or Geometry.NO_FACE.
+	 */
+	int faceInto(int left, int top, int right, int bottom) {
+		int face = faceOf(left, top, right, bottom);
+		if (face == Geometry.NO_FACE || Geometry.dot(Geometry.normal(face), velocity) <= 0) {
+			// Bounce only when the ball is at the outside
+			return Geometry.NO_FACE;
+		}
+		return face;
+	}
+	
+	/**
+	 * Bounces this ball on a surface with the normal unit vector of the supplied face, as bounce.
+	 * @mutates | this
+	 * @pre | Geometry.RIGHT <= face && face <= Geometry.UP
+	 */
+	void bounce(int face) {
+		velocity=Geometry.mirror(velocity, Geometry.normal(face));
+	}
+	
 	/**
 	 * Changes the state of this Ball object so that it reflects a ball that has rolled for a non-zero amount
 	 *  of time into its current direction and speed, as reflected in its velocity Vector.
@@ -126,6 +205,17 @@ public abstract class Ball {
 	 * @inspects | this
 	 */
 	public abstract SuperBall powerup();
+	
+	/**
+	 * Returns an independent copy of this Ball object.
+	 * -> Different behaviour depending on the ball type
+	 * @creates | result
+	 * @inspects | this
+	 * @post | result.getCenter().equals(getCenter())
+	 * @post | result.getDiameter() == getDiameter()
+	 * @post | result.getVelocity().equals(getVelocity())
+	 */
+	abstract Ball copy();
 		
 	/**
 	 * Ages the ball so that its lifetime decreases.
@@ -152,13 +242,20 @@ class NormalBall extends Ball {
 	 * @post | getVelocity().equals(velocity)
 	 */
 	public NormalBall(Point center, int diameter, Vector velocity) {
-		this.center=new Point(center.getX(), center.getY());
+		this(Geometry.pack(center.getX(), center.getY()), diameter, Geometry.pack(velocity.getX(), velocity.getY()));
+	}
+	
+	/**
+	 * Returns an object representing a normal ball with the supplied packed center and velocity.
+	 */
+	NormalBall(long center, int diameter, long velocity) {
+		this.center=center;
 		this.diameter=diameter;
-		this.velocity=new Vector(velocity.getX(), velocity.getY());
+		this.velocity=velocity;
 	}
 	
 	public Point getCenter() {
-		return new Point(center.getX(), center.getY());
+		return new Point(Geometry.x(center), Geometry.y(center));
 	}
 	
 	public int getDiameter() {
@@ -166,27 +263,29 @@ class NormalBall extends Ball {
 	}
 	
 	public Vector getVelocity() {
-		return new Vector(velocity.getX(), velocity.getY());
+		return new Vector(Geometry.x(velocity), Geometry.y(velocity));
 	}
 	
 	public void changeCenter(Point center) {
-		this.center=new Point(center.getX(), center.getY());
+		this.center=Geometry.pack(center.getX(), center.getY());
 	}
 	
 	public void changeVelocity(Vector velocity) {
-		this.velocity=new Vector(velocity.getX(), velocity.getY());
+		this.velocity=Geometry.pack(velocity.getX(), velocity.getY());
 	}
 	
 	public void roll(int elapsedTime) {
-		center=center.plus(velocity.scaled(elapsedTime));
+		center=Geometry.plus(center, Geometry.scaled(velocity, elapsedTime));
 	}
 	
 	public void bounce(Vector direction) {
-		velocity=velocity.mirrorOver(direction);
+		velocity=Geometry.mirror(velocity, Geometry.pack(direction.getX(), direction.getY()));
 	}
 
 	public Rect rectangleOf() {
-		return new Rect(center.minus(new Vector(diameter/2, diameter/2)), center.plus(new Vector(diameter/2, diameter/2)));
+		int radius = diameter/2;
+		return new Rect(new Point(Geometry.x(center) - radius, Geometry.y(center) - radius),
+				new Point(Geometry.x(center) + radius, Geometry.y(center) + radius));
 	}
 	
 	/**
@@ -201,8 +300,12 @@ class NormalBall extends Ball {
 	 * For normal balls, this means it should bounce anyway.
 	 */
 	public void hitBlock(Rect rect, boolean destroyed) {
-		Vector direction = this.rectangleOf().overlap(rect);
-		this.bounce(direction);
+		hitFace(faceOf(rect.getTopLeft().getX(), rect.getTopLeft().getY(), rect.getBottomRight().getX(),
+				rect.getBottomRight().getY()), destroyed);
+	}
+	
+	void hitFace(int face, boolean destroyed) {
+		bounce(face);
 	}
 	
 	/**
@@ -221,7 +324,7 @@ class NormalBall extends Ball {
 	public NormalBall[] replicate(int reps) {
 		NormalBall[] replicated = new NormalBall[reps];
 		for (int i=0; i<reps; i++) {
-			replicated[i] = new NormalBall(center, diameter, velocity.plus(replicateBallsSpeedDiff[i]));
+			replicated[i] = new NormalBall(center, diameter, Geometry.plus(velocity, REPLICATE_SPEED_DIFFS[i]));
 		}
 		return replicated;
 	}
@@ -248,6 +351,10 @@ class NormalBall extends Ball {
 	public Ball age(int elapsedTime) {
 		return this;
 	}
+	
+	NormalBall copy() {
+		return new NormalBall(center, diameter, velocity);
+	}
 }
 
 /**
@@ -276,14 +383,22 @@ class SuperBall extends Ball {
 	 * @post | getLifetime() == lifetime
 	 */
 	public SuperBall(Point center, int diameter, Vector velocity, long lifetime) {
-		this.center=new Point(center.getX(), center.getY());
+		this(Geometry.pack(center.getX(), center.getY()), diameter, Geometry.pack(velocity.getX(), velocity.getY()),
+				lifetime);
+	}
+	
+	/**
+	 * Returns an object representing a supercharged ball with the supplied packed center and velocity.
+	 */
+	SuperBall(long center, int diameter, long velocity, long lifetime) {
+		this.center=center;
 		this.diameter=diameter;
-		this.velocity=new Vector(velocity.getX(), velocity.getY());
+		this.velocity=velocity;
 		this.lifetime=lifetime;
 	}
 	
 	public Point getCenter() {
-		return new Point(center.getX(), center.getY());
+		return new Point(Geometry.x(center), Geometry.y(center));
 	}
 
 	public int getDiameter() {
@@ -291,7 +406,7 @@ class SuperBall extends Ball {
 	}
 	
 	public Vector getVelocity() {
-		return new Vector(velocity.getX(), velocity.getY());
+		return new Vector(Geometry.x(velocity), Geometry.y(velocity));
 	}
 	
 	/**
@@ -302,11 +417,11 @@ class SuperBall extends Ball {
 	}
 	
 	public void changeCenter(Point center) {
-		this.center= new Point(center.getX(), center.getY());
+		this.center=Geometry.pack(center.getX(), center.getY());
 	}
 	
 	public void changeVelocity(Vector velocity) {
-		this.velocity= new Vector(velocity.getX(), velocity.getY());
+		this.velocity=Geometry.pack(velocity.getX(), velocity.getY());
 	}
 	
 	/**
@@ -329,15 +444,17 @@ class SuperBall extends Ball {
 	}
 	
 	public void roll(int elapsedTime) {
-		center=center.plus(velocity.scaled(elapsedTime));
+		center=Geometry.plus(center, Geometry.scaled(velocity, elapsedTime));
 	}
 	
 	public void bounce(Vector direction) {
-		velocity=velocity.mirrorOver(direction);
+		velocity=Geometry.mirror(velocity, Geometry.pack(direction.getX(), direction.getY()));
 	}
 	
 	public Rect rectangleOf() {
-		return new Rect(center.minus(new Vector(diameter/2, diameter/2)), center.plus(new Vector(diameter/2, diameter/2)));
+		int radius = diameter/2;
+		return new Rect(new Point(Geometry.x(center) - radius, Geometry.y(center) - radius),
+				new Point(Geometry.x(center) + radius, Geometry.y(center) + radius));
 	}
 	
 	/**
@@ -353,9 +470,13 @@ class SuperBall extends Ball {
 	 * i.e. sturdy blocks with a lifetime bigger than 1.
 	 */
 	public void hitBlock(Rect rect, boolean destroyed) {
+		hitFace(faceOf(rect.getTopLeft().getX(), rect.getTopLeft().getY(), rect.getBottomRight().getX(),
+				rect.getBottomRight().getY()), destroyed);
+	}
+	
+	void hitFace(int face, boolean destroyed) {
 		if (!(destroyed)) {
-			Vector direction = this.rectangleOf().overlap(rect);
-			this.bounce(direction);
+			bounce(face);
 		}
 	}
 	
@@ -389,7 +510,7 @@ class SuperBall extends Ball {
 	public SuperBall[] replicate(int reps) {
 		SuperBall[] replicated = new SuperBall[reps];
 		for (int i=0; i<reps; i++) {
-			replicated[i] = new SuperBall(center, diameter, velocity.plus(replicateBallsSpeedDiff[i]),lifetime);
+			replicated[i] = new SuperBall(center, diameter, Geometry.plus(velocity, REPLICATE_SPEED_DIFFS[i]),lifetime);
 		}
 		return replicated;
 	}
@@ -403,4 +524,8 @@ class SuperBall extends Ball {
 		this.resetLifetime();
 		return this;
 	}
+	
+	SuperBall copy() {
+		return new SuperBall(center, diameter, velocity, lifetime);
+	}
 }
\ No newline at end of file
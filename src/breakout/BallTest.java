@@ -137,4 +137,17 @@ class BallTest {
 		assert (b2s[0].getVelocity().equals(b2.getVelocity().plus(Ball.replicateBallsSpeedDiff[0])) &&
 				b2s[0] instanceof SuperBall);
 	}
+	
+	@Test
+	void testPrimitiveAccessors() {
+		// the non-copying accessors agree with the defensive getters
+		b1.roll(1);
+		b2.bounce(Vector.UP);
+		for (Ball b : new Ball[] {b1, b2}) {
+			assertEquals(b.getCenter(), new Point(b.centerX(), b.centerY()));
+			assertEquals(b.getVelocity(), new Vector(b.velX(), b.velY()));
+		}
+		b1.push(-2);
+		assertEquals(new Vector(8,10), b1.getVelocity());
+	}
 }
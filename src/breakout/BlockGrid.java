@@ -0,0 +1,214 @@
+package breakout;
+
+import java.util.Arrays;
+
+/**
+ * Each instance of this class represents the occupancy of a grid-aligned block layout, such as the levels built by
+ * GameMap: all blocks have the same size and sit in the cells of a regular grid, at most one block per cell.
+ *
+ * The cells holding a block that is alive are stored as one bitmap of 64-bit words per row, so that the blocks
+ * a ball's rectangle may touch are found by mapping the rectangle to a small range of cells in constant time and
+ * scanning the set bits of those rows.
+ *
+ * @invar | getColumns() > 0 && getRows() > 0
+ */
+final class BlockGrid {
+
+	// The maximum number of cells of a grid
+	static final int MAX_CELLS = 1 << 16;
+
+	/**
+	 * @invar | pitchX >= width && pitchY >= height && pitchX > 0 && pitchY > 0
+	 * @invar | occupancy != null && occupancy.length == rows * words
+	 * @invar | cellSlots != null && cellSlots.length == rows * columns
+	 * @invar | slotCells != null
+	 */
+	private final int originX;
+	private final int originY;
+	private final int pitchX;
+	private final int pitchY;
+	// The width and the height of the blocks
+	private final int width;
+	private final int height;
+	private final int columns;
+	private final int rows;
+	// The number of 64-bit words per row
+	private final int words;
+	private final long[] occupancy;
+	// The slot of the block in each cell, or -1, and the cell of the block in each slot
+	private final int[] cellSlots;
+	private final int[] slotCells;
+
+	private BlockGrid(int originX, int originY, int pitchX, int pitchY, int width, int height, int columns, int rows,
+			int slots) {
+		this.originX = originX;
+		this.originY = originY;
+		this.pitchX = pitchX;
+		this.pitchY = pitchY;
+		this.width = width;
+		this.height = height;
+		this.columns = columns;
+		this.rows = rows;
+		this.words = (columns + 63) >>> 6;
+		this.occupancy = new long[rows * words];
+		this.cellSlots = new int[rows * columns];
+		this.slotCells = new int[slots];
+		Arrays.fill(cellSlots, -1);
+	}
+
+	/**
+	 * Returns an independent copy of the supplied grid. The arrays that are never modified in place are shared.
+	 * @pre | other != null
+	 */
+	BlockGrid(BlockGrid other) {
+		this.originX = other.originX;
+		this.originY = other.originY;
+		this.pitchX = other.pitchX;
+		this.pitchY = other.pitchY;
+		this.width = other.width;
+		this.height = other.height;
+		this.columns = other.columns;
+		this.rows = other.rows;
+		this.words = other.words;
+		this.occupancy = other.occupancy.clone();
+		this.cellSlots = other.cellSlots;
+		this.slotCells = other.slotCells;
+	}
+
+	/**
+	 * Returns the occupancy grid of the blocks with the supplied bounds and lifetimes, indexed by slot, or null if
+	 * the blocks are not grid-aligned or there are none.
+	 * @pre | lefts != null && tops != null && rights != null && bottoms != null && lifetimes != null
+	 */
+	static BlockGrid of(int[] lefts, int[] tops, int[] rights, int[] bottoms, int[] lifetimes) {
+		int n = lefts.length;
+		if (n == 0) {
+			return null;
+		}
+		int width = rights[0] - lefts[0];
+		int height = bottoms[0] - tops[0];
+		int minX = Integer.MAX_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int maxY = Integer.MIN_VALUE;
+		for (int slot=0; slot<n; slot++) {
+			if (rights[slot] - lefts[slot] != width || bottoms[slot] - tops[slot] != height) {
+				return null;
+			}
+			minX = Math.min(minX, lefts[slot]);
+			minY = Math.min(minY, tops[slot]);
+			maxX = Math.max(maxX, lefts[slot]);
+			maxY = Math.max(maxY, tops[slot]);
+		}
+		// The pitch of the grid is the greatest common divisor of the offsets of the blocks
+		long pitchX = 0;
+		long pitchY = 0;
+		for (int slot=0; slot<n; slot++) {
+			pitchX = gcd(pitchX, (long) lefts[slot] - minX);
+			pitchY = gcd(pitchY, (long) tops[slot] - minY);
+		}
+		if (pitchX == 0) {
+			pitchX = Math.max(width, 1);
+		}
+		if (pitchY == 0) {
+			pitchY = Math.max(height, 1);
+		}
+		if (pitchX < width || pitchY < height) {
+			return null;
+		}
+		long columns = ((long) maxX - minX) / pitchX + 1;
+		long rows = ((long) maxY - minY) / pitchY + 1;
+		if (columns * rows > MAX_CELLS) {
+			return null;
+		}
+		BlockGrid grid = new BlockGrid(minX, minY, (int) pitchX, (int) pitchY, width, height, (int) columns, (int) rows,
+				n);
+		for (int slot=0; slot<n; slot++) {
+			int cell = (int) ((tops[slot] - minY) / pitchY * columns + (lefts[slot] - minX) / pitchX);
+			if (grid.cellSlots[cell] != -1) {
+				// Two blocks share a cell
+				return null;
+			}
+			grid.cellSlots[cell] = slot;
+			grid.slotCells[slot] = cell;
+			if (lifetimes[slot] > 0) {
+				grid.set(cell);
+			}
+		}
+		return grid;
+	}
+
+	private static long gcd(long a, long b) {
+		while (b != 0) {
+			long t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+	int getColumns() {
+		return columns;
+	}
+
+	int getRows() {
+		return rows;
+	}
+
+	private void set(int cell) {
+		int row = cell / columns;
+		int column = cell % columns;
+		occupancy[row * words + (column >>> 6)] |= 1L << column;
+	}
+
+	/**
+	 * Marks the block in the supplied slot as destroyed.
+	 * @mutates | this
+	 */
+	void clear(int slot) {
+		int cell = slotCells[slot];
+		int row = cell / columns;
+		int column = cell % columns;
+		occupancy[row * words + (column >>> 6)] &= ~(1L << column);
+	}
+
+	/**
+	 * Appends to the supplied array, starting at the supplied index, the slots of the blocks that are alive and whose
+	 * bounds a ball with the supplied bounding box touches, in ascending order, and returns the new number of slots
+	 * in the array. If the supplied array is null, the slots are counted only.
+	 * @mutates | out
+	 */
+	int collect(int ballLeft, int ballTop, int ballRight, int ballBottom, int[] out, int count) {
+		// A block touches the ball if it spans the ball's X and Y ranges at least partially
+		int firstRow = Math.max(0, Math.floorDiv(ballTop - originY - height + pitchY - 1, pitchY));
+		int lastRow = Math.min(rows - 1, Math.floorDiv(ballBottom - originY, pitchY));
+		int firstColumn = Math.max(0, Math.floorDiv(ballLeft - originX - width + pitchX - 1, pitchX));
+		int lastColumn = Math.min(columns - 1, Math.floorDiv(ballRight - originX, pitchX));
+		if (firstColumn > lastColumn) {
+			return count;
+		}
+		int firstWord = firstColumn >>> 6;
+		int lastWord = lastColumn >>> 6;
+		for (int row=firstRow; row<=lastRow; row++) {
+			for (int word=firstWord; word<=lastWord; word++) {
+				long bits = occupancy[row * words + word];
+				if (word == firstWord) {
+					bits &= -1L << (firstColumn & 63);
+				}
+				if (word == lastWord) {
+					bits &= -1L >>> (63 - (lastColumn & 63));
+				}
+				if (out == null) {
+					count += Long.bitCount(bits);
+					continue;
+				}
+				while (bits != 0) {
+					int column = (word << 6) + Long.numberOfTrailingZeros(bits);
+					out[count++] = cellSlots[row * columns + column];
+					bits &= bits - 1;
+				}
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,54 @@
+package breakout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import breakout.gui.BreakoutApplication;
+
+class BlockGridTest {
+
+	BlockState[] mapBlocks = GameMap.createStateFromDescription(BreakoutApplication.initMap).getBlocks();
+
+	@Test
+	void testDetection() {
+		assertTrue(new BlockTable(mapBlocks).isGridAligned());
+		assertFalse(new BlockTable(new BlockState[0]).isGridAligned());
+
+		// blocks of different sizes, or blocks off the grid, are left to the general path
+		BlockState[] sizes = {new NormalBlockState(new Point(0,0), new Point(100,50)),
+				new NormalBlockState(new Point(200,0), new Point(250,50))};
+		assertFalse(new BlockTable(sizes).isGridAligned());
+		BlockState[] overlapping = {new NormalBlockState(new Point(0,0), new Point(100,50)),
+				new NormalBlockState(new Point(30,0), new Point(130,50))};
+		assertFalse(new BlockTable(overlapping).isGridAligned());
+	}
+
+	@Test
+	void testCandidates() {
+		BlockTable table = new BlockTable(mapBlocks);
+		Random random = new Random(3);
+		for (int slot=0; slot<table.slots(); slot+=3) {
+			table.hit(slot);
+		}
+		for (int i=0; i<2000; i++) {
+			int x = random.nextInt(52000) - 1000;
+			int y = random.nextInt(20000) - 1000;
+			int radius = random.nextInt(3000);
+			int count = table.candidates(x - radius, y - radius, x + radius, y + radius);
+
+			// the candidates are exactly the blocks alive that touch the ball, in ascending order
+			int expected = 0;
+			for (int slot=0; slot<table.slots(); slot++) {
+				if (table.isAlive(slot) && table.left(slot) <= x + radius && table.right(slot) >= x - radius &&
+						table.top(slot) <= y + radius && table.bottom(slot) >= y - radius) {
+					assertTrue(expected < count);
+					assertEquals(slot, table.candidate(expected++));
+				}
+			}
+			assertEquals(expected, count);
+		}
+	}
+}
@@ -114,17 +114,15 @@ final class NormalBlockState extends BlockState {
 	 * @post | result.paddle instanceof PaddleState
 	 */
 	public ballBlockHitResults hitBy(Ball ball, PaddleState paddle) {
-		Rect blockRect = this.rectangleOf();
-		Vector normVecBlock = ball.rectangleOf().overlap(blockRect);
+		int face = ball.faceInto(TL.getX(), TL.getY(), BR.getX(), BR.getY());
 		boolean destroyed = false;
-		if (normVecBlock != null && 
-			normVecBlock.product(ball.getVelocity()) > 0) { // Bounce only when the ball is at the outside
+		if (face != Geometry.NO_FACE) { // Bounce only when the ball is at the outside
 			
 			// Normal blocks are always destroyed when hit
 			destroyed = true;
 			
 			// Make ball bounce
-			ball.hitBlock(blockRect, destroyed);
+			ball.hitFace(face, destroyed);
 		}
 		return new ballBlockHitResults(this, ball, paddle, destroyed);
 	}
@@ -217,11 +215,9 @@ final class SturdyBlockState extends BlockState {
 	 */
 	public ballBlockHitResults hitBy(Ball ball, PaddleState paddle) {
 		SturdyBlockState block = this;
-		Rect blockRect = this.rectangleOf();
-		Vector normVecBlock = ball.rectangleOf().overlap(blockRect);
+		int face = ball.faceInto(TL.getX(), TL.getY(), BR.getX(), BR.getY());
 		boolean destroyed = false;
-		if (normVecBlock != null && 
-			normVecBlock.product(ball.getVelocity()) > 0) { // Bounce only when the ball is at the outside
+		if (face != Geometry.NO_FACE) { // Bounce only when the ball is at the outside
 			
 			destroyed = true;
 			
@@ -232,7 +228,7 @@ final class SturdyBlockState extends BlockState {
 			}
 			
 			// Make ball bounce when required 
-			ball.hitBlock(blockRect, destroyed);
+			ball.hitFace(face, destroyed);
 		}
 		return new ballBlockHitResults(block, ball, paddle, destroyed);
 	}
@@ -290,17 +286,15 @@ final class PowerupBallBlockState extends BlockState {
 	 * @post | result.paddle instanceof PaddleState
 	 */
 	public ballBlockHitResults hitBy(Ball ball, PaddleState paddle) {
-		Rect blockRect = this.rectangleOf();
-		Vector normVecBlock = ball.rectangleOf().overlap(blockRect);
+		int face = ball.faceInto(TL.getX(), TL.getY(), BR.getX(), BR.getY());
 		boolean destroyed = false;
-		if (normVecBlock != null && 
-			normVecBlock.product(ball.getVelocity()) > 0) { // Bounce only when the ball is at the outside
+		if (face != Geometry.NO_FACE) { // Bounce only when the ball is at the outside
 			
 			// Powerup blocks are always destroyed when hit
 			destroyed = true;
 						
 			// Make ball bounce 
-			ball.hitBlock(blockRect, destroyed);
+			ball.hitFace(face, destroyed);
 			
 			// Execute block effects
 			ball = ball.powerup();
@@ -361,17 +355,15 @@ final class ReplicatorBlockState extends BlockState {
 	 * @post | result.paddle instanceof PaddleState
 	 */
 	public ballBlockHitResults hitBy(Ball ball, PaddleState paddle) {
-		Rect blockRect = this.rectangleOf();
-		Vector normVecBlock = ball.rectangleOf().overlap(blockRect);
+		int face = ball.faceInto(TL.getX(), TL.getY(), BR.getX(), BR.getY());
 		boolean destroyed = false;
-		if (normVecBlock != null && 
-			normVecBlock.product(ball.getVelocity()) > 0) { // Bounce only when the ball is at the outside
+		if (face != Geometry.NO_FACE) { // Bounce only when the ball is at the outside
 			
 			// Replicator blocks are always destroyed when hit.
 			destroyed = true;
 			
 			// Make ball bounce
-			ball.hitBlock(blockRect, destroyed);
+			ball.hitFace(face, destroyed);
 			
 			// Execute block effects
 			paddle = paddle.powerup();
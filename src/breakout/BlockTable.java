@@ -0,0 +1,611 @@
+package breakout;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Each instance of this class stores the blocks of a breakout game state in a data-oriented layout: the type tag, the
+ * bounds and the remaining lifetime of each block are kept in primitive arrays indexed by the slot of the block.
+ *
+ * Collision effects are dispatched with a switch on the type tag, so that the collision loop does not perform a
+ * virtual call on one of the four block classes per block. The BlockState objects of the existing API are views on
+ * the slots, which are only created when asked for.
+ *
+ * The slots are sorted by the top and then the left of their blocks, and grouped into horizontal bands of blocks
+ * sharing the same top. Each band records the Y range it covers and the number of its blocks that are alive, so that
+ * a ball can skip the bands it cannot reach, and bands whose blocks are all destroyed can be dropped.
+ *
+ * If the blocks are grid-aligned, as in the levels built by GameMap, the table also keeps a BlockGrid bitmap of the
+ * cells holding a block that is alive, which is used instead of the bands to find the blocks a ball may touch.
+ *
+ * Destroyed blocks are marked dead instead of being removed, so that the slots of the remaining blocks do not change
+ * while a tick is in progress. Between ticks, the table drops its empty bands, and is compacted once most slots are
+ * dead.
+ *
+ * @invar | 0 <= aliveCount() && aliveCount() <= slots()
+ */
+final class BlockTable {
+
+	// The type tags of the blocks
+	static final int NORMAL = 0;
+	static final int STURDY = 1;
+	static final int POWERUP = 2;
+	static final int REPLICATOR = 3;
+
+	// The sides at which a ball overlaps a block, as the faces of Geometry, indexing SIDES
+	static final int NO_OVERLAP = Geometry.NO_FACE;
+	// The normal vectors of the sides, as returned by Rect.overlap
+	static final Vector[] SIDES = {Vector.RIGHT, Vector.LEFT, Vector.DOWN, Vector.UP};
+	
+	// The maximum number of blocks in a band, which the OverlapKernel tests in one call
+	static final int MAX_BAND_SIZE = OverlapKernel.MAX_LANES;
+
+	/**
+	 * @invar | types != null && lefts != null && tops != null && rights != null && bottoms != null
+	 * @invar | lifetimes != null && views != null
+	 * @invar | types.length == views.length
+	 */
+	private int[] types;
+	private int[] lefts;
+	private int[] tops;
+	private int[] rights;
+	private int[] bottoms;
+	// The remaining lifetime in number of hits of each block, or 0 once it is destroyed
+	private int[] lifetimes;
+	// The views on the slots that were already created, if any
+	private BlockState[] views;
+	private int aliveCount;
+	
+	/**
+	 * @invar | bandStarts != null && bandEnds != null && bandTops != null && bandBottoms != null
+	 * @invar | bandAlive != null && bandOfSlot != null && activeBands != null
+	 */
+	// The first and the one-past-last slot, the Y range and the number of blocks alive of each band
+	private int[] bandStarts;
+	private int[] bandEnds;
+	private int[] bandTops;
+	private int[] bandBottoms;
+	private int[] bandAlive;
+	private int[] bandOfSlot;
+	// The bands that were not empty at the latest call of compact, in ascending order
+	private int[] activeBands;
+	private int activeCount;
+	
+	// The bounding box of the blocks that were alive at the latest call of compact, which is empty if there are none
+	private int boundsLeft;
+	private int boundsTop;
+	private int boundsRight;
+	private int boundsBottom;
+	// Whether a block was destroyed since the bounding box was computed
+	private boolean boundsStale;
+	
+	// The occupancy grid of the blocks, or null if they are not grid-aligned
+	private BlockGrid grid;
+	// The slots of the blocks found by the latest call of candidates or overlapping, with the sides at which the ball
+	// overlaps them for the latter, and the number of blocks tested by the latest call of overlapping
+	private int[] candidates;
+	private int[] faces;
+	private int[] laneFaces = new int[OverlapKernel.MAX_LANES];
+	private int tested;
+
+	/**
+	 * Returns a block table holding the supplied blocks, sorted by their top and then their left.
+	 * @pre | blocks != null
+	 * @post | slots() == blocks.length
+	 * @post | aliveCount() == blocks.length
+	 */
+	BlockTable(BlockState[] blocks) {
+		int n = blocks.length;
+		types = new int[n];
+		lefts = new int[n];
+		tops = new int[n];
+		rights = new int[n];
+		bottoms = new int[n];
+		lifetimes = new int[n];
+		views = blocks.clone();
+		Arrays.sort(views, Comparator.comparingInt((BlockState block) -> block.getTopLeft().getY())
+				.thenComparingInt(block -> block.getTopLeft().getX()));
+		for (int slot=0; slot<n; slot++) {
+			BlockState block = views[slot];
+			Point tl = block.getTopLeft();
+			Point br = block.getBottomRight();
+			types[slot] = typeOf(block);
+			lefts[slot] = tl.getX();
+			tops[slot] = tl.getY();
+			rights[slot] = br.getX();
+			bottoms[slot] = br.getY();
+			lifetimes[slot] = block instanceof SturdyBlockState sturdy ? sturdy.getLifetime() : 1;
+		}
+		aliveCount = n;
+		buildBands();
+		updateBounds();
+		grid = BlockGrid.of(lefts, tops, rights, bottoms, lifetimes);
+		candidates = new int[n];
+		faces = new int[n];
+	}
+
+	/**
+	 * Returns a block table with the supplied slots, as returned by type, left, top, right, bottom and lifetime for
+	 * each slot of another table, including its destroyed blocks, so that it has the same slots and bands as that
+	 * table. The arrays are used as they are, without sorting them.
+	 * @pre | types != null && lefts != null && tops != null && rights != null && bottoms != null && lifetimes != null
+	 * @pre | lefts.length == types.length && tops.length == types.length && rights.length == types.length
+	 * @pre | bottoms.length == types.length && lifetimes.length == types.length
+	 * @post | slots() == types.length
+	 */
+	BlockTable(int[] types, int[] lefts, int[] tops, int[] rights, int[] bottoms, int[] lifetimes) {
+		int n = types.length;
+		this.types = types;
+		this.lefts = lefts;
+		this.tops = tops;
+		this.rights = rights;
+		this.bottoms = bottoms;
+		this.lifetimes = lifetimes;
+		views = new BlockState[n];
+		buildBands();
+		for (int slot=0; slot<n; slot++) {
+			if (lifetimes[slot] > 0) {
+				aliveCount++;
+			}
+			else {
+				bandAlive[bandOfSlot[slot]]--;
+			}
+		}
+		int active = 0;
+		for (int band=0; band<activeCount; band++) {
+			if (bandAlive[band] > 0) {
+				activeBands[active++] = band;
+			}
+		}
+		activeCount = active;
+		updateBounds();
+		grid = BlockGrid.of(lefts, tops, rights, bottoms, lifetimes);
+		candidates = new int[n];
+		faces = new int[n];
+	}
+
+	/**
+	 * Returns an independent copy of the supplied block table. The arrays that are never modified in place are shared.
+	 * @pre | other != null
+	 */
+	BlockTable(BlockTable other) {
+		types = other.types;
+		lefts = other.lefts;
+		tops = other.tops;
+		rights = other.rights;
+		bottoms = other.bottoms;
+		lifetimes = other.lifetimes.clone();
+		views = other.views.clone();
+		aliveCount = other.aliveCount;
+		bandStarts = other.bandStarts;
+		bandEnds = other.bandEnds;
+		bandTops = other.bandTops;
+		bandBottoms = other.bandBottoms;
+		bandAlive = other.bandAlive.clone();
+		bandOfSlot = other.bandOfSlot;
+		activeBands = other.activeBands.clone();
+		activeCount = other.activeCount;
+		boundsLeft = other.boundsLeft;
+		boundsTop = other.boundsTop;
+		boundsRight = other.boundsRight;
+		boundsBottom = other.boundsBottom;
+		boundsStale = other.boundsStale;
+		grid = other.grid == null ? null : new BlockGrid(other.grid);
+		candidates = new int[other.candidates.length];
+		faces = new int[other.faces.length];
+	}
+	
+	/**
+	 * Groups the slots into bands of blocks sharing the same top, all of which are alive.
+	 */
+	private void buildBands() {
+		int n = types.length;
+		int[] starts = new int[n];
+		int count = 0;
+		for (int slot=0; slot<n; slot++) {
+			if (slot == 0 || tops[slot] != tops[starts[count-1]] || slot - starts[count-1] == MAX_BAND_SIZE) {
+				starts[count++] = slot;
+			}
+		}
+		bandStarts = Arrays.copyOf(starts, count);
+		bandEnds = new int[count];
+		bandTops = new int[count];
+		bandBottoms = new int[count];
+		bandAlive = new int[count];
+		bandOfSlot = new int[n];
+		activeBands = new int[count];
+		for (int band=0; band<count; band++) {
+			bandEnds[band] = band+1 < count ? bandStarts[band+1] : n;
+			bandTops[band] = tops[bandStarts[band]];
+			bandBottoms[band] = Integer.MIN_VALUE;
+			for (int slot=bandStarts[band]; slot<bandEnds[band]; slot++) {
+				bandBottoms[band] = Math.max(bandBottoms[band], bottoms[slot]);
+				bandOfSlot[slot] = band;
+			}
+			bandAlive[band] = bandEnds[band] - bandStarts[band];
+			activeBands[band] = band;
+		}
+		activeCount = count;
+	}
+
+	/**
+	 * Returns the type tag of the supplied block.
+	 * @pre | block != null
+	 */
+	static int typeOf(BlockState block) {
+		if (block instanceof SturdyBlockState) {
+			return STURDY;
+		}
+		if (block instanceof PowerupBallBlockState) {
+			return POWERUP;
+		}
+		if (block instanceof ReplicatorBlockState) {
+			return REPLICATOR;
+		}
+		return NORMAL;
+	}
+
+	/**
+	 * Returns the number of slots of this table, including those of destroyed blocks.
+	 */
+	int slots() {
+		return types.length;
+	}
+
+	/**
+	 * Returns the number of bands that were not empty at the latest call of compact.
+	 */
+	int activeBandCount() {
+		return activeCount;
+	}
+	
+	/**
+	 * Returns the band at the supplied index among the active bands, which are ordered by their top.
+	 * @pre | 0 <= index && index < activeBandCount()
+	 */
+	int activeBand(int index) {
+		return activeBands[index];
+	}
+	
+	int bandStart(int band) {
+		return bandStarts[band];
+	}
+	
+	int bandEnd(int band) {
+		return bandEnds[band];
+	}
+	
+	int bandTop(int band) {
+		return bandTops[band];
+	}
+	
+	int bandBottom(int band) {
+		return bandBottoms[band];
+	}
+	
+	/**
+	 * Computes the bounding box of the blocks that are alive.
+	 */
+	private void updateBounds() {
+		boundsLeft = Integer.MAX_VALUE;
+		boundsTop = Integer.MAX_VALUE;
+		boundsRight = Integer.MIN_VALUE;
+		boundsBottom = Integer.MIN_VALUE;
+		for (int slot=0; slot<types.length; slot++) {
+			if (lifetimes[slot] > 0) {
+				boundsLeft = Math.min(boundsLeft, lefts[slot]);
+				boundsTop = Math.min(boundsTop, tops[slot]);
+				boundsRight = Math.max(boundsRight, rights[slot]);
+				boundsBottom = Math.max(boundsBottom, bottoms[slot]);
+			}
+		}
+		boundsStale = false;
+	}
+	
+	/**
+	 * Returns whether the supplied rectangle touches the bounding box of the blocks that were alive at the latest call
+	 * of compact. If it does not, a ball within the rectangle cannot touch any block.
+	 */
+	boolean mayTouch(int left, int top, int right, int bottom) {
+		return left <= boundsRight && right >= boundsLeft && top <= boundsBottom && bottom >= boundsTop;
+	}
+	
+	/**
+	 * Returns whether the blocks are grid-aligned, so that candidates uses a BlockGrid.
+	 */
+	boolean isGridAligned() {
+		return grid != null;
+	}
+	
+	/**
+	 * Finds the slots of the blocks that are alive and that a ball with the supplied bounding box may touch,
+	 * in ascending order, and returns their number. The slots are retrieved with candidate. This is the broad phase
+	 * of the collision detection; the exact test is left to overlap.
+	 * @mutates | this
+	 * @post | 0 <= result && result <= aliveCount()
+	 */
+	int candidates(int ballLeft, int ballTop, int ballRight, int ballBottom) {
+		if (grid != null) {
+			return grid.collect(ballLeft, ballTop, ballRight, ballBottom, candidates, 0);
+		}
+		int count = 0;
+		for (int b=0; b<activeCount; b++) {
+			int band = activeBands[b];
+			if (bandTops[band] > ballBottom) {
+				// All remaining bands lie below the ball
+				break;
+			}
+			if (bandBottoms[band] < ballTop) {
+				continue;
+			}
+			for (int slot=bandStarts[band]; slot<bandEnds[band]; slot++) {
+				if (lifetimes[slot] > 0) {
+					candidates[count++] = slot;
+				}
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns whether candidates would find at least one block for a ball with the supplied bounding box. Unlike
+	 * candidates, this does not change this table, so that it may be called for several balls concurrently.
+	 */
+	boolean anyCandidate(int ballLeft, int ballTop, int ballRight, int ballBottom) {
+		if (grid != null) {
+			return grid.collect(ballLeft, ballTop, ballRight, ballBottom, null, 0) > 0;
+		}
+		for (int b=0; b<activeCount; b++) {
+			int band = activeBands[b];
+			if (bandTops[band] > ballBottom) {
+				return false;
+			}
+			if (bandBottoms[band] >= ballTop && bandAlive[band] > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Finds the slots of the blocks that are alive and that a ball with the supplied bounding box overlaps, in
+	 * ascending order, and returns their number. The slots are retrieved with candidate, and the sides at which the
+	 * ball overlaps them with face. This is the narrow phase of the collision detection: the blocks of the bands
+	 * are tested in bulk by the OverlapKernel, the blocks found in the grid one by one.
+	 * @mutates | this
+	 * @post | 0 <= result && result <= aliveCount()
+	 */
+	int overlapping(int ballLeft, int ballTop, int ballRight, int ballBottom) {
+		int count = 0;
+		if (grid != null) {
+			tested = grid.collect(ballLeft, ballTop, ballRight, ballBottom, candidates, 0);
+			for (int k=0; k<tested; k++) {
+				int slot = candidates[k];
+				int side = overlap(slot, ballLeft, ballTop, ballRight, ballBottom);
+				if (side != NO_OVERLAP) {
+					candidates[count] = slot;
+					faces[count++] = side;
+				}
+			}
+			return count;
+		}
+		tested = 0;
+		for (int b=0; b<activeCount; b++) {
+			int band = activeBands[b];
+			if (bandTops[band] > ballBottom) {
+				// All remaining bands lie below the ball
+				break;
+			}
+			if (bandBottoms[band] < ballTop || bandAlive[band] == 0) {
+				continue;
+			}
+			int start = bandStarts[band];
+			long mask = OverlapKernel.INSTANCE.overlap(ballLeft, ballTop, ballRight, ballBottom, lefts, tops, rights,
+					bottoms, lifetimes, start, bandEnds[band], laneFaces);
+			tested += bandEnds[band] - start;
+			while (mask != 0) {
+				int lane = Long.numberOfTrailingZeros(mask);
+				candidates[count] = start + lane;
+				faces[count++] = laneFaces[lane];
+				mask &= mask - 1;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns the side at which the ball overlaps the block at the supplied index among those found by the latest
+	 * call of overlapping.
+	 */
+	int face(int index) {
+		return faces[index];
+	}
+	
+	/**
+	 * Returns the number of blocks tested by the latest call of overlapping.
+	 */
+	int tested() {
+		return tested;
+	}
+	
+	/**
+	 * Returns the slot at the supplied index among those found by the latest call of candidates or overlapping.
+	 */
+	int candidate(int index) {
+		return candidates[index];
+	}
+	
+	/**
+	 * Returns the number of blocks that are not destroyed.
+	 */
+	int aliveCount() {
+		return aliveCount;
+	}
+
+	boolean isAlive(int slot) {
+		return lifetimes[slot] > 0;
+	}
+
+	int type(int slot) {
+		return types[slot];
+	}
+
+	int left(int slot) {
+		return lefts[slot];
+	}
+
+	int top(int slot) {
+		return tops[slot];
+	}
+
+	int right(int slot) {
+		return rights[slot];
+	}
+
+	int bottom(int slot) {
+		return bottoms[slot];
+	}
+
+	int lifetime(int slot) {
+		return lifetimes[slot];
+	}
+
+	/**
+	 * Returns a copy of the remaining lifetimes of the blocks, indexed by slot, which is 0 for destroyed blocks and
+	 * 1 for blocks that are destroyed by their next hit.
+	 * @creates | result
+	 * @post | result.length == slots()
+	 */
+	int[] lifetimes() {
+		return lifetimes.clone();
+	}
+
+	/**
+	 * Returns the hash key of the block in the supplied slot, as StateHash.of would for its view.
+	 * @pre | isAlive(slot)
+	 */
+	long key(int slot) {
+		return StateHash.block(lefts[slot], tops[slot], rights[slot], bottoms[slot], types[slot],
+				types[slot] == STURDY ? lifetimes[slot] : 0);
+	}
+
+	/**
+	 * Returns the side of the block in the supplied slot at which a ball with the supplied bounding box overlaps
+	 * it, or NO_OVERLAP, as Geometry.overlap.
+	 */
+	int overlap(int slot, int ballLeft, int ballTop, int ballRight, int ballBottom) {
+		return Geometry.overlap(ballLeft, ballTop, ballRight, ballBottom, lefts[slot], tops[slot], rights[slot],
+				bottoms[slot]);
+	}
+
+	/**
+	 * Registers a hit on the block in the supplied slot, and returns whether the block was destroyed by it.
+	 * Sturdy blocks lose one hit of their lifetime, all other blocks are destroyed.
+	 * @pre | isAlive(slot)
+	 */
+	boolean hit(int slot) {
+		lifetimes[slot] = types[slot] == STURDY ? lifetimes[slot] - 1 : 0;
+		if (lifetimes[slot] == 0) {
+			aliveCount--;
+			bandAlive[bandOfSlot[slot]]--;
+			if (grid != null) {
+				grid.clear(slot);
+			}
+			boundsStale = true;
+		}
+		// The view no longer matches the slot
+		views[slot] = null;
+		return lifetimes[slot] == 0;
+	}
+
+	/**
+	 * Drops the bands whose blocks are all destroyed, and removes the slots of the destroyed blocks if they make up
+	 * more than half of the slots, keeping the remaining blocks in the same order. Returns whether the slots changed.
+	 * @mutates | this
+	 * @post | aliveCount() == old(aliveCount())
+	 * @post | result || slots() == old(slots())
+	 */
+	boolean compact() {
+		if (boundsStale) {
+			updateBounds();
+		}
+		int active = 0;
+		for (int i=0; i<activeCount; i++) {
+			if (bandAlive[activeBands[i]] > 0) {
+				activeBands[active++] = activeBands[i];
+			}
+		}
+		activeCount = active;
+		if (aliveCount * 2 >= types.length) {
+			return false;
+		}
+		int[] newTypes = new int[aliveCount];
+		int[] newLefts = new int[aliveCount];
+		int[] newTops = new int[aliveCount];
+		int[] newRights = new int[aliveCount];
+		int[] newBottoms = new int[aliveCount];
+		int[] newLifetimes = new int[aliveCount];
+		BlockState[] newViews = new BlockState[aliveCount];
+		int count = 0;
+		for (int slot=0; slot<types.length; slot++) {
+			if (lifetimes[slot] > 0) {
+				newTypes[count] = types[slot];
+				newLefts[count] = lefts[slot];
+				newTops[count] = tops[slot];
+				newRights[count] = rights[slot];
+				newBottoms[count] = bottoms[slot];
+				newLifetimes[count] = lifetimes[slot];
+				newViews[count] = views[slot];
+				count++;
+			}
+		}
+		types = newTypes;
+		lefts = newLefts;
+		tops = newTops;
+		rights = newRights;
+		bottoms = newBottoms;
+		lifetimes = newLifetimes;
+		views = newViews;
+		buildBands();
+		grid = BlockGrid.of(lefts, tops, rights, bottoms, lifetimes);
+		candidates = new int[aliveCount];
+		faces = new int[aliveCount];
+		return true;
+	}
+
+	/**
+	 * Returns the BlockState object representing the block in the supplied slot.
+	 * @pre | isAlive(slot)
+	 */
+	BlockState view(int slot) {
+		BlockState view = views[slot];
+		if (view == null) {
+			Point tl = new Point(lefts[slot], tops[slot]);
+			Point br = new Point(rights[slot], bottoms[slot]);
+			view = switch (types[slot]) {
+			case STURDY -> new SturdyBlockState(tl, br, lifetimes[slot]);
+			case POWERUP -> new PowerupBallBlockState(tl, br);
+			case REPLICATOR -> new ReplicatorBlockState(tl, br);
+			default -> new NormalBlockState(tl, br);
+			};
+			views[slot] = view;
+		}
+		return view;
+	}
+
+	/**
+	 * Returns the views on the blocks that are not destroyed, in slot order.
+	 * @creates | result
+	 * @post | result.length == aliveCount()
+	 */
+	BlockState[] toArray() {
+		BlockState[] result = new BlockState[aliveCount];
+		int count = 0;
+		for (int slot=0; slot<types.length; slot++) {
+			if (lifetimes[slot] > 0) {
+				result[count++] = view(slot);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,101 @@
+package breakout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class BlockTableTest {
+
+	BlockState normal = new NormalBlockState(new Point(0,0), new Point(100,50));
+	BlockState sturdy = new SturdyBlockState(new Point(100,0), new Point(200,50), 2);
+	BlockState powerup = new PowerupBallBlockState(new Point(200,0), new Point(300,50));
+	BlockState replicator = new ReplicatorBlockState(new Point(300,0), new Point(400,50));
+	BlockTable table = new BlockTable(new BlockState[] {normal, sturdy, powerup, replicator});
+
+	@Test
+	void testConstr() {
+		assertEquals(4, table.slots());
+		assertEquals(4, table.aliveCount());
+		assertEquals(BlockTable.NORMAL, table.type(0));
+		assertEquals(BlockTable.STURDY, table.type(1));
+		assertEquals(BlockTable.POWERUP, table.type(2));
+		assertEquals(BlockTable.REPLICATOR, table.type(3));
+		assertEquals(2, table.lifetime(1));
+		// the supplied blocks serve as the initial views
+		assertArrayEquals(new BlockState[] {normal, sturdy, powerup, replicator}, table.toArray());
+		for (int slot=0; slot<4; slot++) {
+			assertEquals(StateHash.of(table.view(slot)), table.key(slot));
+		}
+	}
+
+	@Test
+	void testOverlap() {
+		// the overlap rules match Rect.overlap
+		Random random = new Random(7);
+		Rect block = table.view(1).rectangleOf();
+		for (int i=0; i<10000; i++) {
+			int x = 50 + random.nextInt(200);
+			int y = -40 + random.nextInt(130);
+			int radius = 1 + random.nextInt(30);
+			Rect ball = new Rect(new Point(x-radius, y-radius), new Point(x+radius, y+radius));
+			Vector expected = ball.overlap(block);
+			int side = table.overlap(1, x-radius, y-radius, x+radius, y+radius);
+			assertEquals(expected, side == BlockTable.NO_OVERLAP ? null : BlockTable.SIDES[side]);
+		}
+	}
+
+	@Test
+	void testHitAndCompact() {
+		// sturdy blocks lose a hit of their lifetime, and get a matching view
+		assertFalse(table.hit(1));
+		assertEquals(1, table.lifetime(1));
+		assertEquals(1, ((SturdyBlockState) table.view(1)).getLifetime());
+		assertTrue(table.hit(1));
+		assertFalse(table.isAlive(1));
+
+		// copies are independent
+		BlockTable copy = new BlockTable(table);
+		assertTrue(table.hit(0));
+		assertTrue(table.hit(3));
+		assertEquals(1, table.aliveCount());
+		assertEquals(3, copy.aliveCount());
+
+		// compacting keeps the remaining blocks only
+		assertTrue(table.compact());
+		assertEquals(1, table.slots());
+		assertArrayEquals(new BlockState[] {powerup}, table.toArray());
+		assertFalse(copy.compact());
+		assertEquals(4, copy.slots());
+	}
+
+	@Test
+	void testBands() {
+		BlockState low = new NormalBlockState(new Point(0,100), new Point(100,150));
+		BlockState lowRight = new NormalBlockState(new Point(200,100), new Point(300,160));
+		BlockTable banded = new BlockTable(new BlockState[] {lowRight, replicator, low, normal});
+
+		// the slots are sorted by top and then left, and grouped into bands sharing the same top
+		assertArrayEquals(new BlockState[] {normal, replicator, low, lowRight}, banded.toArray());
+		assertEquals(2, banded.activeBandCount());
+		int top = banded.activeBand(0);
+		int bottom = banded.activeBand(1);
+		assertEquals(0, banded.bandStart(top));
+		assertEquals(2, banded.bandEnd(top));
+		assertEquals(0, banded.bandTop(top));
+		assertEquals(50, banded.bandBottom(top));
+		assertEquals(100, banded.bandTop(bottom));
+		assertEquals(160, banded.bandBottom(bottom));
+
+		// empty bands are dropped at the next compaction
+		BlockTable copy = new BlockTable(banded);
+		banded.hit(0);
+		banded.hit(1);
+		assertEquals(2, banded.activeBandCount());
+		assertFalse(banded.compact());
+		assertEquals(1, banded.activeBandCount());
+		assertEquals(bottom, banded.activeBand(0));
+		assertEquals(2, copy.activeBandCount());
+	}
+}
@@ -1,5 +1,12 @@
 package breakout;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.ConcurrentModificationException;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
@@ -33,27 +40,112 @@ public class BreakoutState {
 	 * @invar | balls != null && Stream.of(balls).allMatch(e -> e != null)
 	 * @invar | Stream.of(balls).allMatch(e -> e.getCenter().isUpAndLeftFrom(bottomRight) && 
 	 * | Point.ORIGIN.isUpAndLeftFrom(e.getCenter()))
-	 * @invar | blocks != null && Stream.of(blocks).allMatch(e -> e != null)
-	 * @invar | Stream.of(blocks).allMatch(e -> e.getBottomRight().isUpAndLeftFrom(bottomRight) &&
+	 * @invar | blocks != null
+	 * @invar | Stream.of(blocks.toArray()).allMatch(e -> e.getBottomRight().isUpAndLeftFrom(bottomRight) &&
 	 * | Point.ORIGIN.isUpAndLeftFrom(e.getTopLeft()))
 	 * @invar | paddle != null
-	 * @invar | paddle.rectangleOf().getBottomRight().isUpAndLeftFrom(bottomRight) && 
-	 * | Point.ORIGIN.isUpAndLeftFrom(paddle.rectangleOf().getTopLeft())
-	 * @invar | Stream.of(blocks).allMatch(e -> e.getBottomRight().getY() < paddle.getCenter().getY() - paddle.getSize().getY())
+	 * @invar | paddle.view().rectangleOf().getBottomRight().isUpAndLeftFrom(bottomRight) && 
+	 * | Point.ORIGIN.isUpAndLeftFrom(paddle.view().rectangleOf().getTopLeft())
+	 * @invar | Stream.of(blocks.toArray()).allMatch(e -> e.getBottomRight().getY() < paddle.top())
 	 * @invar | bottomRight != null
 	 * @invar | Point.ORIGIN.isUpAndLeftFrom(bottomRight)
 	 */
 	
 	/** @representationObject */
 	private Ball[] balls;
+	// The timer at which each supercharged ball expires, by the index of the ball, or null for the normal balls. These
+	// are kept by the game state, as a ball object may be shared by several game states.
+	private Expiry[] timers;
+	// The slot of the block each ball bounced on most recently, by the index of the ball, or NO_CONTACT
+	private int[] contacts;
 	/** @representationObject */
-	private BlockState[] blocks;
+	private BlockTable blocks;
 	
 	private final Point bottomRight;
-	private PaddleState paddle;
+	private MutablePaddle paddle;
+	
+	// The incrementally maintained Zobrist-style hash of this game state
+	private long hash;
+	// The number of times a block was hit, the type or lifetime of the paddle changed, and a ball was added, removed,
+	// changed type or moved to another index so far
+	private long blocksVersion;
+	private long paddleVersion;
+	private long ballsVersion;
+	// The number of ticks and paddle moves performed so far, by which forEachBall and forEachBlock detect that this
+	// game state was modified during the iteration
+	private int modCount;
+	
+	// The contact of a ball that did not bounce on a block in the current slots
+	static final int NO_CONTACT = -1;
+	// The simulated time in ms, and the wheel in which the timers of the supercharged balls are scheduled
+	private long time;
+	private TimerWheel<Expiry> expiries;
+	private final TimerWheel.Handler<Expiry> expiryHandler = this::expireBall;
+	
+	/**
+	 * Each instance of this class represents the timer at which the supercharged ball at its index expires. The index
+	 * is kept up to date whenever the balls move to other indices, and the timer is cancelled when its ball is
+	 * removed, so that a firing timer always refers to a ball that is due to expire.
+	 */
+	private static final class Expiry extends TimerWheel.Timer {
+		int index;
+		
+		Expiry(int index) {
+			this.index = index;
+		}
+	}
+	
+	// The number of ticks in which the ball-block phase was skipped as a whole, and the number of balls for which it was
+	// skipped otherwise, since no ball or that ball could reach the blocks
+	private long skippedBlockPhases;
+	private long skippedBallBlockTests;
+	// The number of exact ball-block overlap tests, of lookups of the block a ball bounced on most recently, and of
+	// lookups in which the ball bounced on that block again
+	private long overlapTests;
+	private long contactLookups;
+	private long contactHits;
+	// Whether the latest call of hitBlock made the ball bounce
+	private boolean bounced;
+	
+	// The number of ticks performed so far, and the number of ticks between two reorderings of the balls by the
+	// Morton code of their centers, or 0 if they are not reordered
+	private long ticks;
+	private int reorderInterval;
+	// Scratch space for reordering the balls
+	private long[] reorderKeys = new long[0];
+	
+	// The pool on which the balls are simulated in strips, or null
+	private ForkJoinPool tickPool;
+	// The ring into which the ticks publish their events, or null
+	private TickEventRing events;
+	// The status of each ball present at the start of a tick simulated in strips, and the balls sorted by strip
+	private static final byte PENDING = 0;
+	private static final byte SKIPPED = 1;
+	private static final byte REMOVED = 2;
+	private static final byte DONE = 3;
+	private static final byte PADDLE_HIT = 4;
+	private static final byte HANDED_OFF = 5;
+	private byte[] ballStatus = new byte[0];
+	private int[] stripBalls = new int[0];
+	// The start of each strip in stripBalls, its next free position while sorting, its sum of the hash changes and
+	// its number of skipped ball-block tests, and the tasks simulating the strips, which are reused by the next tick
+	private int[] stripStarts = new int[0];
+	private int[] stripNext = new int[0];
+	private long[] stripHashDeltas = new long[0];
+	private long[] stripSkippedTests = new long[0];
+	private StripPass stripPass;
+	// The parameters of the tick being simulated in strips, as read by the tasks
+	private int stripWidth;
+	private int stripPaddleDir;
+	private int stripElapsedTime;
+	private boolean stripOutOfReach;
+	// The number of strips per thread of the tick pool
+	private static final int STRIPS_PER_THREAD = 4;
 	
 	// The maximum elapsed time in ms between two game game ticks
 	public static final int MAX_ELAPSED_TIME = 50;
+	// The minimum number of balls for which a tick is simulated on the tick pool
+	public static final int PARALLEL_TICK_THRESHOLD = 1024;
 
 	/**
 	 * Returns an object representing a game state of the breakout game defined by the balls, the blocks,
@@ -90,18 +182,114 @@ public class BreakoutState {
 			throw new IllegalArgumentException("You have not supplied a valid game field size");
 		}
 		this.balls=balls.clone();
-		this.blocks=blocks.clone();
+		this.blocks=new BlockTable(blocks);
+		this.bottomRight=bottomRight;
+		this.paddle=new MutablePaddle(paddle);
+		this.hash=StateHash.of(this.balls, blocks, paddle);
+		this.expiries=new TimerWheel<>(0);
+		this.timers=new Expiry[this.balls.length];
+		this.contacts=new int[this.balls.length];
+		Arrays.fill(contacts, NO_CONTACT);
+		for (int i=0; i<this.balls.length; i++) {
+			if (this.balls[i] instanceof SuperBall superBall) {
+				scheduleExpiry(i, superBall.getLifetime());
+			}
+		}
+	}
+	
+	/**
+	 * Returns an object representing the same game state as the supplied one, with copies of its balls,
+	 * so that ticking either game state does not affect the other. The supplied game state is only read, so that
+	 * several threads can copy the same game state at once.
+	 */
+	private BreakoutState(BreakoutState other) {
+		this.time=other.time;
+		this.expiries=new TimerWheel<>(time);
+		this.balls=new Ball[other.balls.length];
+		this.timers=new Expiry[balls.length];
+		this.contacts=other.contacts.clone();
+		for (int i=0; i<balls.length; i++) {
+			this.balls[i]=other.balls[i].copy();
+			if (balls[i] instanceof SuperBall copy) {
+				// The lifetime of the original may be stale, as it is only brought up to date when it is exposed
+				long deadline = other.timers[i].getDeadline();
+				copy.changeLifetime(deadline - time);
+				scheduleExpiry(i, deadline);
+			}
+		}
+		this.blocks=new BlockTable(other.blocks);
+		this.bottomRight=other.bottomRight;
+		this.paddle=new MutablePaddle(other.paddle);
+		this.hash=other.hash;
+		this.blocksVersion=other.blocksVersion;
+		this.paddleVersion=other.paddleVersion;
+		this.ballsVersion=other.ballsVersion;
+		this.ticks=other.ticks;
+		this.reorderInterval=other.reorderInterval;
+		this.tickPool=other.tickPool;
+	}
+	
+	/**
+	 * Returns an object representing the game state with the supplied balls, blocks, paddle, clock and versions, as
+	 * read back by StateCodec. The supplied objects are used as they are: the supercharged balls expire at the
+	 * supplied deadlines, which are later than the supplied time, and all balls keep the supplied contacts, which
+	 * must refer to the slots of the supplied table or be NO_CONTACT.
+	 */
+	BreakoutState(Ball[] balls, long[] deadlines, int[] contacts, BlockTable blocks, Point bottomRight,
+			MutablePaddle paddle, long time, long ticks, int reorderInterval, long blocksVersion, long paddleVersion,
+			long ballsVersion) {
+		this.balls=balls;
+		this.timers=new Expiry[balls.length];
+		this.contacts=contacts;
+		this.blocks=blocks;
 		this.bottomRight=bottomRight;
 		this.paddle=paddle;
+		this.hash=StateHash.of(balls, blocks.toArray(), paddle.view());
+		this.time=time;
+		this.expiries=new TimerWheel<>(time);
+		for (int i=0; i<balls.length; i++) {
+			if (balls[i] instanceof SuperBall) {
+				scheduleExpiry(i, deadlines[i]);
+			}
+		}
+		this.ticks=ticks;
+		this.reorderInterval=reorderInterval;
+		this.blocksVersion=blocksVersion;
+		this.paddleVersion=paddleVersion;
+		this.ballsVersion=ballsVersion;
+	}
+	
+	/**
+	 * Returns an independent copy of this BreakoutState object, e.g. to simulate possible futures of the game
+	 * without affecting this game state.
+	 * @creates | result
+	 * @inspects | this
+	 * @post | result.stateHash() == stateHash()
+	 * @post | result.getBalls().length == getBalls().length
+	 * @post | result.getBlocks().length == getBlocks().length
+	 * @post | result.getPaddle().equals(getPaddle())
+	 * @post | result.getBottomRight().equals(getBottomRight())
+	 */
+	public BreakoutState copy() {
+		return new BreakoutState(this);
 	}
 	
 	/**
-	 * Returns the array of BallState objects contained within this BreakoutState object.
+	 * Returns the array of BallState objects contained within this BreakoutState object, with the remaining
+	 * lifetimes of its supercharged balls brought up to date with the simulated time.
 	 * @creates | result
 	 * @inspects | this 
 	 */
 	public Ball[] getBalls() {
-		return balls.clone();
+		// Within a game state, the lifetimes are derived from the timers instead of being decreased on every tick
+		Ball[] result = new Ball[balls.length];
+		for (int i=0; i<balls.length; i++) {
+			result[i] = balls[i];
+			if (timers[i] != null) {
+				((SuperBall) balls[i]).changeLifetime(timers[i].getDeadline() - time);
+			}
+		}
+		return result;
 	}
 
 	/**
@@ -110,7 +298,7 @@ public class BreakoutState {
 	 * @inspects | this
 	 */
 	public BlockState[] getBlocks() {
-		return blocks.clone();
+		return blocks.toArray();
 	}
 
 	/**
@@ -118,7 +306,7 @@ public class BreakoutState {
 	 * @inspects | this
 	 */
 	public PaddleState getPaddle() {
-		return paddle;
+		return paddle.view();
 	}
 
 	/**
@@ -130,45 +318,499 @@ public class BreakoutState {
 		return bottomRight;
 	}
 	
-	private void removeBlock(BlockState block) {
-		BlockState[] blocksLeft = new BlockState[blocks.length-1];
-		int found=0;
-		for (int index = 0; index<blocks.length; index++) {
-			if (block.equals(blocks[index])) {
-				found++;
-				continue;
+	/**
+	 * Returns a 64-bit hash of this game state, covering the presence of the blocks, the lifetimes of the
+	 * sturdy blocks, the positions, velocities and types of the balls, and the position and type of the paddle.
+	 * 
+	 * The hash is maintained incrementally as the game state changes, so that retrieving it takes constant time.
+	 * Equal game states yield equal hashes, regardless of the order in which their balls and blocks are stored.
+	 * @inspects | this
+	 */
+	public long stateHash() {
+		return hash;
+	}
+	
+	/**
+	 * Performs the supplied action for each ball contained within this BreakoutState object, in the order of
+	 * getBalls(), without copying the array of balls. The remaining lifetimes of the supercharged balls are not
+	 * brought up to date, so that visiting the balls does not modify them.
+	 * @inspects | this
+	 * @throws IllegalArgumentException if no action is supplied.
+	 * 	| action == null
+	 * @throws ConcurrentModificationException if the action ticks this game state or moves its paddle.
+	 */
+	public void forEachBall(Consumer<? super Ball> action) {
+		if (action == null) {
+			throw new IllegalArgumentException("You have not supplied a valid action!");
+		}
+		int expected = modCount;
+		Ball[] visited = balls;
+		for (int i=0; i<visited.length; i++) {
+			action.accept(visited[i]);
+			if (modCount != expected) {
+				throw new ConcurrentModificationException();
 			}
-			blocksLeft[index-found]=blocks[index];
 		}
-		blocks=blocksLeft;
 	}
 	
-	private void removeBall(Ball ball) {
-		Ball[] ballsLeft = new Ball[balls.length-1];
-		int found=0;
-		for (int index = 0; index<balls.length; index++) {
-			if (ball.equals(balls[index])) {
-				found++;
-				continue;
+	/**
+	 * Performs the supplied action for each block contained within this BreakoutState object, in the order of
+	 * getBlocks(), without creating an array of blocks.
+	 * @inspects | this
+	 * @throws IllegalArgumentException if no action is supplied.
+	 * 	| action == null
+	 * @throws ConcurrentModificationException if the action ticks this game state or moves its paddle.
+	 */
+	public void forEachBlock(Consumer<? super BlockState> action) {
+		if (action == null) {
+			throw new IllegalArgumentException("You have not supplied a valid action!");
+		}
+		int expected = modCount;
+		BlockTable visited = blocks;
+		for (int slot=0; slot<visited.slots(); slot++) {
+			if (visited.isAlive(slot)) {
+				action.accept(visited.view(slot));
+				if (modCount != expected) {
+					throw new ConcurrentModificationException();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of balls contained within this BreakoutState object.
+	 * @inspects | this
+	 * @post | result == getBalls().length
+	 */
+	public int ballCount() {
+		return balls.length;
+	}
+	
+	/**
+	 * Returns the X coordinate of the center of the ball at the supplied index, without creating a Point object.
+	 * @inspects | this
+	 * @pre | 0 <= index && index < ballCount()
+	 * @post | result == getBalls()[index].getCenter().getX()
+	 */
+	public int ballCenterX(int index) {
+		return balls[index].centerX();
+	}
+	
+	/**
+	 * Returns the Y coordinate of the center of the ball at the supplied index, without creating a Point object.
+	 * @inspects | this
+	 * @pre | 0 <= index && index < ballCount()
+	 * @post | result == getBalls()[index].getCenter().getY()
+	 */
+	public int ballCenterY(int index) {
+		return balls[index].centerY();
+	}
+	
+	/**
+	 * Returns the X component of the velocity of the ball at the supplied index, without creating a Vector object.
+	 * @inspects | this
+	 * @pre | 0 <= index && index < ballCount()
+	 * @post | result == getBalls()[index].getVelocity().getX()
+	 */
+	public int ballVelocityX(int index) {
+		return balls[index].velX();
+	}
+	
+	/**
+	 * Returns the Y component of the velocity of the ball at the supplied index, without creating a Vector object.
+	 * @inspects | this
+	 * @pre | 0 <= index && index < ballCount()
+	 * @post | result == getBalls()[index].getVelocity().getY()
+	 */
+	public int ballVelocityY(int index) {
+		return balls[index].velY();
+	}
+	
+	/**
+	 * Returns the diameter of the ball at the supplied index.
+	 * @inspects | this
+	 * @pre | 0 <= index && index < ballCount()
+	 * @post | result == getBalls()[index].getDiameter()
+	 */
+	public int ballDiameter(int index) {
+		return balls[index].getDiameter();
+	}
+	
+	/**
+	 * Returns the number of blocks contained within this BreakoutState object.
+	 * @inspects | this
+	 * @post | result == getBlocks().length
+	 */
+	public int blockCount() {
+		return blocks.aliveCount();
+	}
+	
+	/**
+	 * Returns the ball at the supplied index contained within this BreakoutState object, without copying
+	 * the array of balls. The remaining lifetime of a supercharged ball is not brought up to date; see ballLifetime.
+	 * @inspects | this
+	 * @pre | 0 <= index && index < ballCount()
+	 * @post | result == getBalls()[index]
+	 */
+	Ball ballAt(int index) {
+		return balls[index];
+	}
+	
+	/**
+	 * Returns the remaining lifetime of the ball at the supplied index, if it is a supercharged ball, without
+	 * modifying the ball.
+	 * @inspects | this
+	 * @pre | 0 <= index && index < ballCount()
+	 * @pre | getBalls()[index] instanceof SuperBall
+	 * @post | result == ((SuperBall) getBalls()[index]).getLifetime()
+	 */
+	long ballLifetime(int index) {
+		return timers[index].getDeadline() - time;
+	}
+	
+	/**
+	 * Returns the simulated time at which the ball at the supplied index expires, if it is a supercharged ball.
+	 * @inspects | this
+	 * @pre | 0 <= index && index < ballCount()
+	 * @pre | getBalls()[index] instanceof SuperBall
+	 */
+	long ballDeadline(int index) {
+		return timers[index].getDeadline();
+	}
+	
+	/**
+	 * Returns the slot of the block the ball at the supplied index bounced on most recently, or NO_CONTACT.
+	 * @inspects | this
+	 * @pre | 0 <= index && index < ballCount()
+	 */
+	int ballContact(int index) {
+		return contacts[index];
+	}
+	
+	/**
+	 * Returns the table holding the blocks of this BreakoutState object, which must not be modified.
+	 * @inspects | this
+	 * @post | result.aliveCount() == getBlocks().length
+	 */
+	BlockTable blockTable() {
+		return blocks;
+	}
+	
+	/**
+	 * Returns the X coordinate of the center of the paddle, without creating a PaddleState object.
+	 * @inspects | this
+	 * @post | result == getPaddle().getCenter().getX()
+	 */
+	int paddleCenterX() {
+		return paddle.centerX();
+	}
+	
+	/**
+	 * Returns the Y coordinate of the top of the paddle, without creating a PaddleState object.
+	 * @inspects | this
+	 * @post | result == getPaddle().rectangleOf().getTopLeft().getY()
+	 */
+	int paddleTop() {
+		return paddle.top();
+	}
+	
+	/**
+	 * Returns the remaining lifetime of the paddle if it is a replicator paddle, or 0 otherwise, without creating a
+	 * PaddleState object.
+	 * @inspects | this
+	 */
+	int paddleLifetime() {
+		return paddle.getLifetime();
+	}
+	
+	/**
+	 * Returns the simulated time in ms that has elapsed in this game state, i.e. the sum of the elapsed times of
+	 * all ticks performed so far.
+	 * @inspects | this
+	 */
+	public long getSimulatedTime() {
+		return time;
+	}
+	
+	/**
+	 * Schedules the supercharged ball that is or is about to be at the supplied index to expire at the supplied
+	 * simulated time, moving its timer if it is scheduled already.
+	 */
+	private void scheduleExpiry(int index, long deadline) {
+		if (timers[index] == null) {
+			timers[index] = new Expiry(index);
+		}
+		expiries.schedule(timers[index], deadline);
+	}
+	
+	/**
+	 * Cancels the timers of the balls in the supplied range of indices, which are about to be removed.
+	 */
+	private void cancelExpiries(int from, int to) {
+		for (int i=from; i<to; i++) {
+			if (timers[i] != null) {
+				expiries.cancel(timers[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Brings the indices of the timers of the balls from the supplied index onwards up to date after the balls moved.
+	 */
+	private void reindexExpiries(int from) {
+		for (int i=from; i<timers.length; i++) {
+			if (timers[i] != null) {
+				timers[i].index = i;
 			}
-			ballsLeft[index-found]=balls[index];
 		}
+	}
+	
+	/**
+	 * Converts the supercharged ball of the supplied timer, which fired, into a normal ball.
+	 */
+	private void expireBall(Expiry timer) {
+		int i = timer.index;
+		SuperBall superBall = (SuperBall) balls[i];
+		timers[i] = null;
+		balls[i] = superBall.convertToNormal();
+		hash += StateHash.of(balls[i]) - StateHash.of(superBall);
+		ballsVersion++;
+	}
+	
+	/**
+	 * Returns the number of ticks performed so far, which determines when the balls are reordered.
+	 * @inspects | this
+	 */
+	long tickCount() {
+		return ticks;
+	}
+	
+	/**
+	 * Returns a number that increases whenever a block of this BreakoutState object is hit, i.e. is destroyed or
+	 * loses some of its lifetime, so that observers can skip work on the blocks if it did not change since they
+	 * last looked. Copies start at the version of the game state they were copied from.
+	 * @inspects | this
+	 */
+	public long getBlocksVersion() {
+		return blocksVersion;
+	}
+	
+	/**
+	 * Returns a number that increases whenever the type or the remaining lifetime of the paddle of this
+	 * BreakoutState object changes. Moving the paddle does not change it.
+	 * @inspects | this
+	 */
+	public long getPaddleVersion() {
+		return paddleVersion;
+	}
+	
+	/**
+	 * Returns a number that increases whenever a ball is added to or removed from this BreakoutState object, a ball
+	 * is replaced by one of another type, or the balls change order. Moving and bouncing the balls does not change
+	 * it, so that the indices of ballCenterX and the like keep referring to the same balls as long as it is the same.
+	 * @inspects | this
+	 */
+	public long getBallsVersion() {
+		return ballsVersion;
+	}
+	
+	private void removeBall(int index) {
+		cancelExpiries(index, index+1);
+		Ball[] ballsLeft = new Ball[balls.length-1];
+		Expiry[] timersLeft = new Expiry[balls.length-1];
+		System.arraycopy(balls, 0, ballsLeft, 0, index);
+		System.arraycopy(balls, index+1, ballsLeft, index, balls.length-index-1);
+		System.arraycopy(timers, 0, timersLeft, 0, index);
+		System.arraycopy(timers, index+1, timersLeft, index, balls.length-index-1);
+		int[] contactsLeft = new int[balls.length-1];
+		System.arraycopy(contacts, 0, contactsLeft, 0, index);
+		System.arraycopy(contacts, index+1, contactsLeft, index, balls.length-index-1);
 		balls=ballsLeft;
+		timers=timersLeft;
+		contacts=contactsLeft;
+		reindexExpiries(index);
+		ballsVersion++;
 	}
 	
-	private void replicateBall(Ball ball, int reps) {
+	/**
+	 * Removes all balls that have the same type, center and velocity as a ball preceding them, and returns the number
+	 * of balls removed. Such balls follow the exact same path, so that merging them barely affects the game.
+	 * @mutates | this
+	 * @post | result >= 0 && getBalls().length == old(getBalls().length) - result
+	 */
+	int mergeDuplicateBalls() {
+		Map<Long, Ball> firsts = new HashMap<>();
+		Ball[] ballsLeft = new Ball[balls.length];
+		Expiry[] timersLeft = new Expiry[balls.length];
+		int[] contactsLeft = new int[balls.length];
+		int count = 0;
+		for (int i=0; i<balls.length; i++) {
+			Ball ball = balls[i];
+			long key = StateHash.of(ball);
+			Ball first = firsts.putIfAbsent(key, ball);
+			if (first == null || first.getClass() != ball.getClass() || first.center != ball.center ||
+					first.velocity != ball.velocity) {
+				timersLeft[count] = timers[i];
+				contactsLeft[count] = contacts[i];
+				ballsLeft[count++] = ball;
+			}
+			else {
+				cancelExpiries(i, i+1);
+				hash -= key;
+			}
+		}
+		int merged = balls.length - count;
+		if (merged > 0) {
+			balls = Arrays.copyOf(ballsLeft, count);
+			timers = Arrays.copyOf(timersLeft, count);
+			contacts = Arrays.copyOf(contactsLeft, count);
+			reindexExpiries(0);
+			ballsVersion++;
+		}
+		return merged;
+	}
+	
+	/**
+	 * Removes the most recently added balls so that at most the supplied number of balls remain,
+	 * and returns the number of balls removed.
+	 * @mutates | this
+	 * @pre | max >= 0
+	 * @post | getBalls().length == Math.min(old(getBalls().length), max)
+	 * @post | result == old(getBalls().length) - getBalls().length
+	 */
+	int capBalls(int max) {
+		if (balls.length <= max) {
+			return 0;
+		}
+		for (int i=max; i<balls.length; i++) {
+			hash -= StateHash.of(balls[i]);
+		}
+		int removed = balls.length - max;
+		cancelExpiries(max, balls.length);
+		balls = Arrays.copyOf(balls, max);
+		timers = Arrays.copyOf(timers, max);
+		contacts = Arrays.copyOf(contacts, max);
+		ballsVersion++;
+		return removed;
+	}
+	
+	/**
+	 * Appends the supplied number of replicates of the supplied ball, which is or is about to be at the supplied index.
+	 */
+	private void replicateBall(int index, Ball ball, int reps) {
 		if (reps == 0) {
 			return;
 		}
-		Ball[] expanded = new Ball[balls.length+reps];
-		for (int i=0; i<balls.length; i++) {
-			expanded[i] = balls[i];
-		}
+		int n = balls.length;
+		balls = Arrays.copyOf(balls, n+reps);
+		timers = Arrays.copyOf(timers, n+reps);
+		contacts = Arrays.copyOf(contacts, n+reps);
 		Ball[] replicated = ball.replicate(reps);
 		for (int j=0; j<reps; j++) {
-			expanded[balls.length+j] = replicated[j];
+			balls[n+j] = replicated[j];
+			contacts[n+j] = NO_CONTACT;
+			hash += StateHash.of(replicated[j]);
+			if (replicated[j] instanceof SuperBall) {
+				// Replicates expire together with the original ball
+				scheduleExpiry(n+j, timers[index].getDeadline());
+			}
 		}
-		balls=expanded;
+		ballsVersion++;
+	}
+	
+	/**
+	 * Executes the effects of the possible hits of the supplied ball, whose bounding box is supplied as well, on the
+	 * blocks, and returns the resulting ball.
+	 * 
+	 * The block the ball bounced on most recently is tried first, followed by the blocks found by the narrow phase in
+	 * slot order. Once the ball bounces, its collision is resolved for this tick and the remaining blocks are not
+	 * hit, so that a ball hitting two blocks at once does not bounce twice.
+	 * @mutates | this, ball
+	 */
+	private Ball hitBlocks(int index, Ball ball, int ballLeftX, int ballTopY, int ballRightX, int ballBottomY) {
+		int contact = contacts[index];
+		if (contact != NO_CONTACT && blocks.isAlive(contact)) {
+			contactLookups++;
+			ball = hitBlock(index, contact, ball, ballLeftX, ballTopY, ballRightX, ballBottomY);
+			if (bounced) {
+				contactHits++;
+				return ball;
+			}
+		}
+		int hits = blocks.overlapping(ballLeftX, ballTopY, ballRightX, ballBottomY);
+		overlapTests += blocks.tested();
+		for (int k=0; k<hits; k++) {
+			int j = blocks.candidate(k);
+			if (j != contact && blocks.isAlive(j)) {
+				ball = hitBlock(index, j, blocks.face(k), ball);
+				if (bounced) {
+					contacts[index] = j;
+					return ball;
+				}
+			}
+		}
+		return ball;
+	}
+	
+	/**
+	 * Executes the effects of a possible hit of the supplied ball, which is at the supplied index and whose bounding
+	 * box is supplied as well, on the block in the supplied slot, and returns the resulting ball. Follows the same
+	 * rules as BlockState.hitBy, dispatching on the type tag of the block.
+	 * @mutates | this, ball
+	 */
+	private Ball hitBlock(int index, int slot, Ball ball, int ballLeftX, int ballTopY, int ballRightX,
+			int ballBottomY) {
+		overlapTests++;
+		return hitBlock(index, slot, blocks.overlap(slot, ballLeftX, ballTopY, ballRightX, ballBottomY), ball);
+	}
+	
+	/**
+	 * Executes the effects of a possible hit of the supplied ball, which is at the supplied index and overlaps the
+	 * block in the supplied slot at the supplied side, or Geometry.NO_FACE, and returns the resulting ball.
+	 * @mutates | this, ball
+	 */
+	private Ball hitBlock(int index, int slot, int side, Ball ball) {
+		bounced = false;
+		if (side == Geometry.NO_FACE || Geometry.dot(Geometry.normal(side), ball.velocity) <= 0) {
+			// Bounce only when the ball is at the outside
+			return ball;
+		}
+		long key = blocks.key(slot);
+		int type = blocks.type(slot);
+		boolean destroyed = blocks.hit(slot);
+		hash += (destroyed ? 0 : blocks.key(slot)) - key;
+		blocksVersion++;
+		publish(destroyed ? TickEventRing.BLOCK_DESTROYED : TickEventRing.BLOCK_HIT, blocks.left(slot),
+				blocks.top(slot), blocks.lifetime(slot));
+		
+		// Make ball bounce when required: supercharged balls pass through the blocks they destroy
+		if (!(destroyed && ball instanceof SuperBall)) {
+			ball.bounce(side);
+			bounced = true;
+		}
+		
+		// Execute block effects
+		switch (type) {
+		case BlockTable.POWERUP -> {
+			// The ball was powered up, so (re)start its lifetime
+			SuperBall superBall = ball.powerup();
+			scheduleExpiry(index, time + Ball.MAX_LIFETIME);
+			if (!(ball instanceof SuperBall)) {
+				ballsVersion++;
+			}
+			ball = superBall;
+			publish(TickEventRing.BALL_POWERED_UP, ball.centerX(), ball.centerY(), Ball.MAX_LIFETIME);
+		}
+		case BlockTable.REPLICATOR -> {
+			hash -= paddle.key();
+			paddle.powerup();
+			hash += paddle.key();
+			paddleVersion++;
+			publish(TickEventRing.PADDLE_POWERED_UP, paddle.centerX(), paddle.centerY(), paddle.getLifetime());
+		}
+		default -> { }
+		}
+		return ball;
 	}
 	
 	/**
@@ -184,60 +826,566 @@ public class BreakoutState {
 	 * 	| getPaddle().rectangleOf().equals(old(getPaddle().rectangleOf()))
 	 */
 	public void tick(int paddleDir, int elapsedTime) {
-		for (int i=0; i<balls.length; i++) {
+		modCount++;
+		// Advance the simulated time and let the supercharged balls whose lifetime ran out expire
+		time += elapsedTime;
+		expiries.advanceTo(time, expiryHandler);
+		
+		if (blocks.compact()) {
+			// The slots changed, so the contacts of the balls no longer apply
+			Arrays.fill(contacts, NO_CONTACT);
+		}
+		
+		ticks++;
+		if (reorderInterval > 0 && ticks % reorderInterval == 0) {
+			reorderBalls();
+		}
+		
+		// Replicates created during this tick are not covered by the pre-pass
+		boolean outOfReach = blocksOutOfReach(elapsedTime);
+		int covered = outOfReach ? balls.length : 0;
+		if (outOfReach) {
+			skippedBlockPhases++;
+		}
+		
+		int first = 0;
+		if (tickPool != null && balls.length >= PARALLEL_TICK_THRESHOLD) {
+			// The original balls are simulated per strip; the replicates created by them are left to the loop below
+			first = tickStrips(paddleDir, elapsedTime, outOfReach);
+			covered = 0;
+		}
+		
+		for (int i=first; i<balls.length; i++) {
 			
 			// Retrieve the current ball state
 			Ball ball=balls[i];
+			hash -= StateHash.of(ball);
 			
-			// Age and move ball
-			ball = ball.age(elapsedTime);
-			ball.roll(elapsedTime);
+			// Move ball, and remove it if it left the game field at the bottom
+			if (!moveBall(ball, elapsedTime)) {
+				publish(TickEventRing.BALL_LOST, ball.centerX(), ball.centerY(), ball.diameter);
+				removeBall(i);
+				if (i < covered) {
+					covered--;
+				}
+				continue;
+			}
 			
-			// Determine points and sizes of the ball
-			Rect ballRect = ball.rectangleOf();
-			int ballLeftX = ballRect.getTopLeft().getX();
-			int ballRightX = ballRect.getBottomRight().getX();
-			int ballTopY = ballRect.getTopLeft().getY();
-			int ballBottomY = ballRect.getBottomRight().getY();
+			ball = collide(i, ball, i >= covered, paddleDir);
 			
-			// Bounce ball at the left, at the right and at the top of the game field, remove it at the bottom
-			if (ballLeftX <= 0) {
-				ball.bounce(Vector.LEFT);
-			}
-			else if (ballRightX >= bottomRight.getX()) {
-				ball.bounce(Vector.RIGHT);
+			// Fix ball state
+			balls[i] = ball;
+			hash += StateHash.of(ball);
+		}
+	}
+	
+	/**
+	 * Rolls the supplied ball and bounces it at the left, at the right and at the top of the game field, and
+	 * returns whether it is still in the game field, i.e. it did not reach the bottom.
+	 * @mutates | ball
+	 */
+	private boolean moveBall(Ball ball, int elapsedTime) {
+		ball.roll(elapsedTime);
+		int radius = ball.diameter/2;
+		int ballLeftX = ball.centerX() - radius;
+		int ballRightX = ball.centerX() + radius;
+		int ballTopY = ball.centerY() - radius;
+		int ballBottomY = ball.centerY() + radius;
+		if (ballLeftX <= 0) {
+			ball.bounce(Vector.LEFT);
+		}
+		else if (ballRightX >= bottomRight.getX()) {
+			ball.bounce(Vector.RIGHT);
+		}
+		if (ballTopY <= 0) {
+			ball.bounce(Vector.UP);
+		}
+		else if (ballBottomY >= bottomRight.getY()) {
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Executes the effects of the possible hits of the supplied ball, which is at the supplied index and was moved
+	 * already, on the blocks, if they are within its reach, and on the paddle, and returns the resulting ball.
+	 * @mutates | this, ball
+	 */
+	private Ball collide(int index, Ball ball, boolean blocksInReach, int paddleDir) {
+		int radius = ball.diameter/2;
+		int ballLeftX = ball.centerX() - radius;
+		int ballRightX = ball.centerX() + radius;
+		int ballTopY = ball.centerY() - radius;
+		int ballBottomY = ball.centerY() + radius;
+		
+		// Detecting and executing the possible effects of a ball-block hit, on the blocks within reach only
+		if (blocksInReach) {
+			if (blocks.mayTouch(ballLeftX, ballTopY, ballRightX, ballBottomY)) {
+				ball = hitBlocks(index, ball, ballLeftX, ballTopY, ballRightX, ballBottomY);
 			}
-			if (ballTopY <= 0) {
-				ball.bounce(Vector.UP);
+			else {
+				skippedBallBlockTests++;
 			}
-			else if (ballBottomY >= bottomRight.getY()) {
-				removeBall(ball);
+		}
+		
+		// Detecting and executing the possible effects of a ball-paddle hit
+		long paddleKey = paddle.key();
+		int reps = paddle.hitBall(ball, ballLeftX, ballTopY, ballRightX, ballBottomY, paddleDir);
+		if (reps > 0) {
+			hash += paddle.key() - paddleKey;
+			paddleVersion++;
+			publishReplication(ball, reps);
+			replicateBall(index, ball, reps);
+		}
+		return ball;
+	}
+	
+	/**
+	 * Returns the pool on which the balls are simulated in parallel when there are at least PARALLEL_TICK_THRESHOLD
+	 * of them, or null if they are always simulated on the calling thread.
+	 * @inspects | this
+	 */
+	public ForkJoinPool getTickPool() {
+		return tickPool;
+	}
+	
+	/**
+	 * Makes this game state simulate its balls in parallel on the supplied pool in every tick with at least
+	 * PARALLEL_TICK_THRESHOLD balls, or on the calling thread if null is supplied.
+	 * 
+	 * The game field is split into vertical strips, whose balls are moved and bounced off the walls and the paddle
+	 * in parallel. Only this part of a tick runs in parallel: a ball that may touch a block, or that crosses the
+	 * border of its strip, is handed off to the calling thread, which then executes the effects on the blocks, the
+	 * paddle and the other balls one ball after another, in the order of the balls, so that the resulting game state
+	 * is exactly the same as when ticking on the calling thread only.
+	 * @mutates | this
+	 * @post | getTickPool() == pool
+	 */
+	public void setTickPool(ForkJoinPool pool) {
+		tickPool = pool;
+	}
+	
+	/**
+	 * Returns the ring into which the ticks of this game state publish their events, or null if they do not publish
+	 * any.
+	 * @inspects | this
+	 */
+	public TickEventRing getEventRing() {
+		return events;
+	}
+	
+	/**
+	 * Makes the ticks of this game state publish their events into the supplied ring, or stop publishing them if
+	 * null is supplied. The ticks are the single producer of the ring, so a ring must not be shared by several game
+	 * states. Copies of this game state do not publish into the ring, so that simulating possible futures of the
+	 * game does not produce events.
+	 * @mutates | this
+	 * @post | getEventRing() == ring
+	 */
+	public void setEventRing(TickEventRing ring) {
+		events = ring;
+	}
+	
+	/**
+	 * Publishes an event of the supplied type for the current tick into the event ring, if there is one.
+	 */
+	private void publish(int type, int x, int y, int value) {
+		if (events != null) {
+			events.publish(type, ticks, x, y, value);
+		}
+	}
+	
+	/**
+	 * Publishes the events of the paddle replicating the supplied ball the supplied number of times.
+	 */
+	private void publishReplication(Ball ball, int reps) {
+		publish(TickEventRing.PADDLE_LIFETIME_DECREMENTED, paddle.centerX(), paddle.centerY(), paddle.getLifetime());
+		publish(TickEventRing.BALL_REPLICATED, ball.centerX(), ball.centerY(), reps);
+	}
+	
+	/**
+	 * Simulates the balls present at the start of the tick in strips on the tick pool, and returns the index of the
+	 * first replicate the sequential loop has to simulate next.
+	 * 
+	 * A ball leaving the game field at the bottom makes the sequential loop skip the next ball, so the balls that
+	 * are skipped and removed are resolved first, from their own position and velocity only.
+	 * 
+	 * The blocks are not split among the strips: the balls that may touch one are handed back and hit the blocks on
+	 * the calling thread, so that the ball-block phase remains serial.
+	 * @mutates | this
+	 */
+	private int tickStrips(int paddleDir, int elapsedTime, boolean outOfReach) {
+		int n = balls.length;
+		if (ballStatus.length < n) {
+			ballStatus = new byte[n];
+			stripBalls = new int[n];
+		}
+		int strips = tickPool.getParallelism() * STRIPS_PER_THREAD;
+		if (stripHashDeltas.length != strips) {
+			stripStarts = new int[strips+1];
+			stripNext = new int[strips+1];
+			stripHashDeltas = new long[strips];
+			stripSkippedTests = new long[strips];
+			stripPass = new StripPass(0, strips);
+		}
+		stripWidth = Math.max(1, (bottomRight.getX() + strips - 1) / strips);
+		stripPaddleDir = paddleDir;
+		stripElapsedTime = elapsedTime;
+		stripOutOfReach = outOfReach;
+		Arrays.fill(stripStarts, 0);
+		boolean removed = false;
+		for (int i=0; i<n; i++) {
+			Ball ball = balls[i];
+			if (removed) {
+				ballStatus[i] = SKIPPED;
+				removed = false;
 				continue;
 			}
-			
-			// Detecting and executing the possible effects of a ball-block hit
-			for (int j=0; j<blocks.length; j++) {
-				BlockState block=blocks[j];
-				ballBlockHitResults blockBallHit = block.hitBy(ball, paddle);
-				if (blockBallHit.destroyed) {
-					removeBlock(block);
+			// The vertical bounce at the top does not affect the position of the ball within this tick
+			int y = ball.centerY() + ball.velY() * elapsedTime;
+			int radius = ball.diameter/2;
+			removed = y - radius > 0 && y + radius >= bottomRight.getY();
+			if (removed) {
+				ballStatus[i] = REMOVED;
+			}
+			else {
+				ballStatus[i] = PENDING;
+				stripStarts[stripOf(ball, strips) + 1]++;
+			}
+		}
+		for (int strip=0; strip<strips; strip++) {
+			stripStarts[strip+1] += stripStarts[strip];
+		}
+		System.arraycopy(stripStarts, 0, stripNext, 0, strips+1);
+		for (int i=0; i<n; i++) {
+			if (ballStatus[i] == PENDING) {
+				stripBalls[stripNext[stripOf(balls[i], strips)]++] = i;
+			}
+		}
+		
+		stripPass.reinitialize();
+		tickPool.invoke(stripPass);
+		
+		// Execute the effects on the shared state in the order of the balls
+		int removedCount = 0;
+		for (int i=0; i<n; i++) {
+			Ball ball = balls[i];
+			switch (ballStatus[i]) {
+			case REMOVED -> {
+				hash -= StateHash.of(ball);
+				moveBall(ball, elapsedTime);
+				publish(TickEventRing.BALL_LOST, ball.centerX(), ball.centerY(), ball.diameter);
+				removedCount++;
+			}
+			case PADDLE_HIT -> {
+				long paddleKey = paddle.key();
+				int reps = paddle.replicate();
+				if (reps > 0) {
+					hash += paddle.key() - paddleKey;
+					paddleVersion++;
+					publishReplication(ball, reps);
+					replicateBall(i, ball, reps);
+				}
+			}
+			case HANDED_OFF -> {
+				ball = collide(i, ball, !outOfReach, paddleDir);
+				balls[i] = ball;
+				hash += StateHash.of(ball);
+			}
+			default -> { }
+			}
+		}
+		for (int strip=0; strip<strips; strip++) {
+			hash += stripHashDeltas[strip];
+			skippedBallBlockTests += stripSkippedTests[strip];
+		}
+		
+		if (removedCount > 0) {
+			Ball[] ballsLeft = new Ball[balls.length - removedCount];
+			Expiry[] timersLeft = new Expiry[balls.length - removedCount];
+			int[] contactsLeft = new int[balls.length - removedCount];
+			int count = 0;
+			for (int i=0; i<balls.length; i++) {
+				if (i >= n || ballStatus[i] != REMOVED) {
+					timersLeft[count] = timers[i];
+					contactsLeft[count] = contacts[i];
+					ballsLeft[count++] = balls[i];
 				}
 				else {
-					blocks[j] = blockBallHit.block;
+					cancelExpiries(i, i+1);
 				}
-				ball = blockBallHit.ball;
-				paddle = blockBallHit.paddle;
 			}
-			
-			// Detecting and executing the possible effects of a ball-paddle hit
-			ballPaddleHitResults paddleBallHit = paddle.hitBall(ball, paddleDir);
-			ball = paddleBallHit.ball;
-			replicateBall(ball, paddleBallHit.reps);
-			paddle = paddleBallHit.paddle;
-			
-			// Fix ball state
-			balls[i] = ball;
+			balls = ballsLeft;
+			timers = timersLeft;
+			contacts = contactsLeft;
+			reindexExpiries(0);
+			ballsVersion++;
+		}
+		// As in the sequential loop, the ball following the last removed one is skipped
+		return n - removedCount + (ballStatus[n-1] == REMOVED ? 1 : 0);
+	}
+	
+	private int stripOf(Ball ball, int strips) {
+		return Math.max(0, Math.min(strips - 1, ball.centerX() / stripWidth));
+	}
+	
+	/**
+	 * Simulates the balls of a range of strips on the tick pool. A ball is moved and bounced off the walls and the
+	 * paddle, which does not depend on the other balls, unless it may touch a block or crosses the border of its
+	 * strip, in which case it is handed off, since the strips do not own the blocks. The changes of the hash are
+	 * summed per strip.
+	 * 
+	 * The tasks form a tree over the strips, which is built once and run again in every tick.
+	 */
+	private final class StripPass extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		// The range of strips of this task, and the tasks simulating its two halves, or null if it has one strip
+		private final int firstStrip;
+		private final int endStrip;
+		private final StripPass left;
+		private final StripPass right;
+		
+		StripPass(int firstStrip, int endStrip) {
+			this.firstStrip = firstStrip;
+			this.endStrip = endStrip;
+			if (endStrip - firstStrip == 1) {
+				left = null;
+				right = null;
+			}
+			else {
+				int middle = (firstStrip + endStrip) >>> 1;
+				left = new StripPass(firstStrip, middle);
+				right = new StripPass(middle, endStrip);
+			}
+		}
+		
+		@Override
+		protected void compute() {
+			if (left == null) {
+				simulateStrip(firstStrip);
+				return;
+			}
+			left.reinitialize();
+			right.reinitialize();
+			invokeAll(left, right);
+		}
+		
+		private void simulateStrip(int strip) {
+			// The outer strips extend beyond the game field
+			int stripLeft = strip == 0 ? Integer.MIN_VALUE : strip * stripWidth;
+			int stripRight = strip == stripHashDeltas.length - 1 ? Integer.MAX_VALUE : (strip + 1) * stripWidth;
+			long hashDelta = 0;
+			long skipped = 0;
+			for (int k=stripStarts[strip]; k<stripStarts[strip+1]; k++) {
+				int i = stripBalls[k];
+				Ball ball = balls[i];
+				hashDelta -= StateHash.of(ball);
+				moveBall(ball, stripElapsedTime);
+				int radius = ball.diameter/2;
+				int ballLeftX = ball.centerX() - radius;
+				int ballRightX = ball.centerX() + radius;
+				int ballTopY = ball.centerY() - radius;
+				int ballBottomY = ball.centerY() + radius;
+				if (ballLeftX < stripLeft || ballRightX >= stripRight) {
+					ballStatus[i] = HANDED_OFF;
+					continue;
+				}
+				if (!stripOutOfReach) {
+					if (!blocks.mayTouch(ballLeftX, ballTopY, ballRightX, ballBottomY)) {
+						skipped++;
+					}
+					else if ((contacts[i] != NO_CONTACT && blocks.isAlive(contacts[i])) ||
+							blocks.anyCandidate(ballLeftX, ballTopY, ballRightX, ballBottomY)) {
+						// Blocks are only destroyed during a tick, so a ball touching none now touches none later
+						ballStatus[i] = HANDED_OFF;
+						continue;
+					}
+				}
+				boolean hit = paddle.bounceBall(ball, ballLeftX, ballTopY, ballRightX, ballBottomY, stripPaddleDir);
+				ballStatus[i] = hit ? PADDLE_HIT : DONE;
+				hashDelta += StateHash.of(ball);
+			}
+			stripHashDeltas[strip] = hashDelta;
+			stripSkippedTests[strip] = skipped;
+		}
+	}
+	
+	/**
+	 * Returns the number of ticks between two reorderings of the balls by the Morton code of their centers,
+	 * or 0 if the balls are not reordered.
+	 * @inspects | this
+	 */
+	public int getBallReorderInterval() {
+		return reorderInterval;
+	}
+	
+	/**
+	 * Makes this game state reorder its balls by the Morton code (Z-order) of their centers every supplied number of
+	 * ticks, so that balls that are close to each other are processed one after another and touch the same blocks
+	 * and grid cells, or stops reordering them if 0 is supplied.
+	 * 
+	 * Reordering changes the order in which the balls are processed and returned by getBalls. Since it only depends
+	 * on the number of ticks performed, the game remains deterministic.
+	 * @mutates | this
+	 * @throws IllegalArgumentException if the interval is negative.
+	 * 	| interval < 0
+	 * @post | getBallReorderInterval() == interval
+	 */
+	public void setBallReorderInterval(int interval) {
+		if (interval < 0) {
+			throw new IllegalArgumentException("You have supplied an invalid reorder interval!");
+		}
+		reorderInterval = interval;
+	}
+	
+	/**
+	 * Returns the Morton code of the supplied point within the game field, interleaving the 16 most significant bits
+	 * of its coordinates relative to the size of the game field.
+	 */
+	private int mortonCode(int x, int y) {
+		int width = bottomRight.getX();
+		int height = bottomRight.getY();
+		long scaledX = (long) Math.max(0, Math.min(width, x)) * 0xFFFF / width;
+		long scaledY = (long) Math.max(0, Math.min(height, y)) * 0xFFFF / height;
+		return spreadBits((int) scaledX) | (spreadBits((int) scaledY) << 1);
+	}
+	
+	/**
+	 * Returns the supplied 16-bit value with a zero bit inserted before each of its bits.
+	 */
+	private static int spreadBits(int value) {
+		value = (value | (value << 8)) & 0x00FF00FF;
+		value = (value | (value << 4)) & 0x0F0F0F0F;
+		value = (value | (value << 2)) & 0x33333333;
+		return (value | (value << 1)) & 0x55555555;
+	}
+	
+	/**
+	 * Sorts the balls by the Morton code of their centers, keeping balls with equal codes in their current order.
+	 */
+	private void reorderBalls() {
+		int n = balls.length;
+		if (reorderKeys.length < n) {
+			reorderKeys = new long[n];
+		}
+		for (int i=0; i<n; i++) {
+			reorderKeys[i] = Integer.toUnsignedLong(mortonCode(balls[i].centerX(), balls[i].centerY())) << 32 | i;
+		}
+		Arrays.sort(reorderKeys, 0, n);
+		Ball[] reordered = new Ball[n];
+		Expiry[] reorderedTimers = new Expiry[n];
+		int[] reorderedContacts = new int[n];
+		for (int i=0; i<n; i++) {
+			int from = (int) reorderKeys[i];
+			reordered[i] = balls[from];
+			reorderedTimers[i] = timers[from];
+			reorderedContacts[i] = contacts[from];
+		}
+		balls = reordered;
+		timers = reorderedTimers;
+		contacts = reorderedContacts;
+		reindexExpiries(0);
+		ballsVersion++;
+	}
+	
+	/**
+	 * Returns whether none of the balls can touch a block in a tick of the supplied elapsed time, by testing the
+	 * bounding box of the rectangles of all balls after rolling against the bounding box of the blocks.
+	 */
+	private boolean blocksOutOfReach(int elapsedTime) {
+		if (balls.length == 0) {
+			return false;
+		}
+		int left = Integer.MAX_VALUE;
+		int top = Integer.MAX_VALUE;
+		int right = Integer.MIN_VALUE;
+		int bottom = Integer.MIN_VALUE;
+		for (Ball ball : balls) {
+			// A ball only changes its velocity after rolling, so it ends up exactly one step of travel further
+			int x = ball.centerX() + ball.velX() * elapsedTime;
+			int y = ball.centerY() + ball.velY() * elapsedTime;
+			int radius = ball.diameter/2;
+			left = Math.min(left, x - radius);
+			top = Math.min(top, y - radius);
+			right = Math.max(right, x + radius);
+			bottom = Math.max(bottom, y + radius);
+		}
+		return !(blocks.mayTouch(left, top, right, bottom));
+	}
+	
+	/**
+	 * Returns the number of ticks in which the ball-block collision phase was skipped as a whole, since the bounding
+	 * box of all balls did not touch the bounding box of the blocks.
+	 * @inspects | this
+	 */
+	public long getSkippedBlockPhases() {
+		return skippedBlockPhases;
+	}
+	
+	/**
+	 * Returns the number of times the ball-block collision phase was skipped for a single ball, since it did not
+	 * touch the bounding box of the blocks, in ticks where the phase was not skipped as a whole.
+	 * @inspects | this
+	 */
+	public long getSkippedBallBlockTests() {
+		return skippedBallBlockTests;
+	}
+	
+	/**
+	 * Returns the number of exact ball-block overlap tests performed so far.
+	 * @inspects | this
+	 */
+	public long getOverlapTests() {
+		return overlapTests;
+	}
+	
+	/**
+	 * Returns the number of times the block a ball bounced on most recently was tried first.
+	 * @inspects | this
+	 */
+	public long getContactLookups() {
+		return contactLookups;
+	}
+	
+	/**
+	 * Returns the number of times the ball bounced again on the block it bounced on most recently, when that block
+	 * was tried first, so that no other block had to be tested.
+	 * @inspects | this
+	 */
+	public long getContactHits() {
+		return contactHits;
+	}
+	
+	/**
+	 * Returns the fraction of the lookups of the block a ball bounced on most recently that made the ball bounce
+	 * again, or 0 if there were no lookups.
+	 * @inspects | this
+	 * @post | result >= 0 && result <= 1
+	 */
+	public double getContactHitRate() {
+		return contactLookups == 0 ? 0 : (double) contactHits / contactLookups;
+	}
+	
+	/**
+	 * Moves the paddle in the supplied direction and subsequently performs one movement iteration of the game,
+	 * as happens during one frame of the game.
+	 * @inspects | this
+	 * @mutates | this
+	 * @pre paddleDir should be 0, 1 or -1.
+	 * 	| paddleDir == 0 || paddleDir == 1 || paddleDir == -1
+	 * @pre elapsedTime should be larger than 0 and smaller than or equal to MAX_ELAPSED_TIME.
+	 * 	| elapsedTime > 0 && elapsedTime <= MAX_ELAPSED_TIME
+	 */
+	public void step(int paddleDir, int elapsedTime) {
+		if (paddleDir == -1) {
+			movePaddleLeft(elapsedTime);
 		}
+		if (paddleDir == 1) {
+			movePaddleRight(elapsedTime);
+		}
+		tick(paddleDir, elapsedTime);
 	}
 	
 	/**
@@ -256,11 +1404,7 @@ public class BreakoutState {
 	 * 	| getPaddle().getSize().equals(old(getPaddle().getSize()))	
 	 */
 	public void movePaddleRight(int elapsedTime) {
-		Point newCenter = paddle.getCenter().plus(new Vector(10*elapsedTime,0));
-		if (newCenter.plus(paddle.getSize()).getX() > bottomRight.getX()) {
-			newCenter=paddle.getCenter();
-		}
-		paddle = paddle.changeCenter(newCenter);
+		movePaddle(10*elapsedTime);
 	}
 
 	/**
@@ -279,11 +1423,19 @@ public class BreakoutState {
 	 * 	| getPaddle().getSize().equals(old(getPaddle().getSize()))	
 	 */
 	public void movePaddleLeft(int elapsedTime) {
-		Point newCenter = paddle.getCenter().minus(new Vector(10*elapsedTime,0));
-		if (newCenter.minus(paddle.getSize()).getX() < 0) {
-			newCenter=paddle.getCenter();
+		movePaddle(-10*elapsedTime);
+	}
+	
+	/**
+	 * Moves the paddle horizontally by the supplied distance in place, unless that would move it out of the game
+	 * field.
+	 */
+	private void movePaddle(int dx) {
+		modCount++;
+		long key = paddle.key();
+		if (paddle.moveBy(dx, 0, bottomRight.getX())) {
+			hash += paddle.key() - key;
 		}
-		paddle = paddle.changeCenter(newCenter);
 	}
 	
 	/**
@@ -291,7 +1443,7 @@ public class BreakoutState {
 	 * @inspects | this
 	 */
 	public boolean isWon() {
-		return (blocks.length == 0 && balls.length > 0);
+		return (blocks.aliveCount() == 0 && balls.length > 0);
 	}
 
 	/**
@@ -1,10 +1,17 @@
 package breakout;
 
 import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 
+import breakout.gui.BreakoutApplication;
+
 class BreakoutStateTest {
 
 	// Initialising a game state
@@ -245,4 +252,384 @@ class BreakoutStateTest {
 		assert Stream.of(ballBottomGame.getBalls()).allMatch(e -> Stream.of(gameBallsBottom).anyMatch(f -> f.equals(e)));
 		assert Stream.of(ballBottomGame.getBalls()).allMatch(e -> !(e.equals(gameBallsBottom[0])));
 	}
+	
+	@Test
+	void testStateHash() {
+		
+		// equal game states have equal hashes
+		BreakoutState copy = new BreakoutState(game.getBalls(),game.getBlocks(),game.getBottomRight(),game.getPaddle());
+		assertEquals(game.stateHash(), copy.stateHash());
+		
+		// the incrementally maintained hash matches the hash computed from scratch
+		BreakoutState mapGame = GameMap.createStateFromDescription("""
+##########
+###!######
+##########
+SSS!SSR!#S
+     o
+
+     =
+
+""");
+		long initialHash = mapGame.stateHash();
+		for (int i=0; i<2000 && !(mapGame.isDead()); i++) {
+			// let the paddle follow the first ball, so that blocks get hit
+			int ballX = mapGame.getBalls()[0].getCenter().getX();
+			int paddleX = mapGame.getPaddle().getCenter().getX();
+			int paddleDir = ballX > paddleX + 500 ? 1 : (ballX < paddleX - 500 ? -1 : 0);
+			if (paddleDir == 1) {
+				mapGame.movePaddleRight(20);
+			}
+			if (paddleDir == -1) {
+				mapGame.movePaddleLeft(20);
+			}
+			mapGame.tick(paddleDir, 20);
+			assertEquals(StateHash.of(mapGame.getBalls(), mapGame.getBlocks(), mapGame.getPaddle()), mapGame.stateHash());
+		}
+		assertNotEquals(initialHash, mapGame.stateHash());
+	}
+	
+	@Test
+	void testCopyAndStep() {
+		BreakoutState copy = game.copy();
+		assertEquals(game.stateHash(), copy.stateHash());
+		assertEquals(game.getPaddle(), copy.getPaddle());
+		
+		// stepping moves the paddle and ticks the copy only
+		copy.step(1, 1);
+		assertEquals(510, copy.getPaddle().getCenter().getX());
+		assertEquals(500, game.getPaddle().getCenter().getX());
+		assertEquals(ballcenter, game.getBalls()[0].getCenter());
+		assertEquals(ballcenter.plus(initVelocity.plus(initVelocity.scaled(0))), copy.getBalls()[0].getCenter());
+		assertNotEquals(game.stateHash(), copy.stateHash());
+	}
+	
+	@Test
+	void testSuperBallExpiry() {
+		Ball[] superBalls = {new SuperBall(ballcenter, diameter, initVelocity, 50)};
+		BreakoutState superGame = new BreakoutState(superBalls, new BlockState[0], bottomRight, paddle);
+		
+		// the remaining lifetime follows the simulated time
+		superGame.tick(0, 20);
+		assertEquals(20, superGame.getSimulatedTime());
+		assertEquals(30, ((SuperBall) superGame.getBalls()[0]).getLifetime());
+		BreakoutState copy = superGame.copy();
+		superGame.tick(0, 20);
+		assertTrue(superGame.getBalls()[0] instanceof SuperBall);
+		
+		// the ball expires in the tick its lifetime runs out, in the copy as well
+		superGame.tick(0, 20);
+		assertTrue(superGame.getBalls()[0] instanceof NormalBall);
+		assertEquals(StateHash.of(superGame.getBalls(), superGame.getBlocks(), superGame.getPaddle()),
+				superGame.stateHash());
+		copy.tick(0, 20);
+		copy.tick(0, 20);
+		assertTrue(copy.getBalls()[0] instanceof NormalBall);
+		assertEquals(superGame.stateHash(), copy.stateHash());
+		
+		// copying only reads the original, whose balls keep their lifetime until it exposes them again
+		Ball[] freshBalls = {new SuperBall(ballcenter, diameter, initVelocity, 50)};
+		BreakoutState original = new BreakoutState(freshBalls, new BlockState[0], bottomRight, paddle);
+		original.tick(0, 20);
+		SuperBall ball = (SuperBall) original.getBalls()[0];
+		original.tick(0, 10);
+		BreakoutState later = original.copy();
+		assertEquals(30, ball.getLifetime());
+		assertEquals(20, ((SuperBall) later.getBalls()[0]).getLifetime());
+		assertEquals(20, ((SuperBall) original.getBalls()[0]).getLifetime());
+
+		// game states sharing a ball each keep their own deadline for it
+		BreakoutState first = new BreakoutState(original.getBalls(), new BlockState[0], bottomRight, paddle);
+		original.tick(0, 5);
+		BreakoutState second = new BreakoutState(original.getBalls(), new BlockState[0], bottomRight, paddle);
+		first.tick(0, 19);
+		assertTrue(first.getBalls()[0] instanceof SuperBall);
+		first.tick(0, 1);
+		assertTrue(first.getBalls()[0] instanceof NormalBall);
+		second.tick(0, 14);
+		assertEquals(1, ((SuperBall) second.getBalls()[0]).getLifetime());
+		second.tick(0, 1);
+		assertTrue(second.getBalls()[0] instanceof NormalBall);
+		original.tick(0, 15);
+		assertTrue(original.getBalls()[0] instanceof NormalBall);
+		
+		// visiting the balls leaves their lifetimes alone, which are read from the game state instead
+		Ball[] sharedBalls = {new SuperBall(ballcenter, diameter, initVelocity, 50)};
+		BreakoutState sharing = new BreakoutState(sharedBalls, new BlockState[0], bottomRight, paddle);
+		sharing.tick(0, 10);
+		sharing.forEachBall(e -> assertSame(sharedBalls[0], e));
+		assertSame(sharedBalls[0], sharing.ballAt(0));
+		assertEquals(50, ((SuperBall) sharedBalls[0]).getLifetime());
+		assertEquals(40, sharing.ballLifetime(0));
+		assertEquals(40, ((SuperBall) sharing.getBalls()[0]).getLifetime());
+	}
+
+	@Test
+	void testStaggeredExpiry() {
+		// super balls with staggered deadlines, of which some are lost, capped and reordered, each expire on their own
+		Ball[] staggered = new Ball[20];
+		for (int i=0; i<staggered.length; i++) {
+			Point center = new Point(50 + 45*i, i % 3 == 1 ? 980 : 500);
+			Vector velocity = new Vector(i % 2 == 0 ? 1 : -1, i % 3 == 1 ? 3 : -1);
+			staggered[i] = new SuperBall(center, 10 + i, velocity, 3 * (i+1));
+		}
+		BreakoutState state = new BreakoutState(staggered, new BlockState[0], bottomRight, paddle);
+		state.setBallReorderInterval(1);
+		for (int t=1; t<=70; t++) {
+			state.tick(0, 1);
+			if (t == 10) {
+				assertEquals(13, state.getBalls().length);
+				state.capBalls(10);
+			}
+			for (Ball ball : state.getBalls()) {
+				long deadline = 3 * (ball.getDiameter() - 10 + 1);
+				assertEquals(deadline > t, ball instanceof SuperBall);
+				if (ball instanceof SuperBall superBall) {
+					assertEquals(deadline - t, superBall.getLifetime());
+				}
+			}
+		}
+		assertEquals(10, state.getBalls().length);
+		assertEquals(StateHash.of(state.getBalls(), state.getBlocks(), state.getPaddle()), state.stateHash());
+	}
+
+	@Test
+	void testSturdyBlockLifetime() {
+		BlockState[] sturdyBlocks = {new SturdyBlockState(TL, BL, 3)};
+		Ball[] ballBelow = {new NormalBall(new Point(125,165),10,new Vector(0,-15))};
+		BreakoutState sturdyGame = new BreakoutState(ballBelow, sturdyBlocks, bottomRight, paddle);
+		BlockState before = sturdyGame.getBlocks()[0];
+		sturdyGame.tick(0,1);
+		
+		// the view reflects the decreased lifetime, while views handed out earlier are left unchanged
+		SturdyBlockState after = (SturdyBlockState) sturdyGame.getBlocks()[0];
+		assertEquals(2, after.getLifetime());
+		assertEquals(java.awt.Color.lightGray, after.getColor());
+		assertEquals(after, sturdyGame.getBlocks()[0]);
+		assertEquals(3, ((SturdyBlockState) before).getLifetime());
+		assertEquals(StateHash.of(sturdyGame.getBalls(), sturdyGame.getBlocks(), sturdyGame.getPaddle()),
+				sturdyGame.stateHash());
+	}
+	
+	@Test
+	void testBlockPrePass() {
+		// the ball is far from all blocks, so the ball-block phase is skipped as a whole
+		game.tick(0,1);
+		assertEquals(1, game.getSkippedBlockPhases());
+		assertEquals(0, game.getSkippedBallBlockTests());
+		
+		// only the ball far from the blocks skips the ball-block phase, the other one still hits a block
+		Ball[] twoBalls = {new NormalBall(new Point(125,165),10,new Vector(0,-15)), new NormalBall(ballcenter, diameter, initVelocity)};
+		BreakoutState twoBallGame = new BreakoutState(twoBalls, blocks, bottomRight, paddle);
+		twoBallGame.tick(0,1);
+		assertEquals(0, twoBallGame.getSkippedBlockPhases());
+		assertEquals(1, twoBallGame.getSkippedBallBlockTests());
+		assertEquals(1, twoBallGame.getBlocks().length);
+	}
+	
+	@Test
+	void testSingleBounce() {
+		// a ball hitting the corner between two blocks bounces once, on the first one, and destroys it only
+		BlockState[] adjacent = {new NormalBlockState(new Point(100,100), new Point(150,150)),
+				new NormalBlockState(new Point(150,100), new Point(200,150))};
+		Ball[] ballBelow = {new NormalBall(new Point(150,156),10,new Vector(0,-2))};
+		BreakoutState cornerGame = new BreakoutState(ballBelow, adjacent, bottomRight, paddle);
+		cornerGame.tick(0,1);
+		assertEquals(new Vector(0,2), cornerGame.getBalls()[0].getVelocity());
+		assertEquals(1, cornerGame.getBlocks().length);
+		// both blocks are tested at once by the narrow phase, but only the first one is hit
+		assertEquals(2, cornerGame.getOverlapTests());
+		assertEquals(0, cornerGame.getContactLookups());
+
+		// the block a ball bounced on most recently is kept by the game state, not by the ball shared with another one
+		Ball[] ballRight = {new NormalBall(new Point(175,156),10,new Vector(0,-2))};
+		BreakoutState rightGame = new BreakoutState(ballRight, adjacent, bottomRight, paddle);
+		rightGame.tick(0,1);
+		assertEquals(new Vector(0,2), rightGame.getBalls()[0].getVelocity());
+		BlockState[] blockBelow = {new NormalBlockState(new Point(150,160), new Point(200,200))};
+		BreakoutState belowGame = new BreakoutState(rightGame.getBalls(), blockBelow, bottomRight, paddle);
+		belowGame.tick(0,1);
+		assertEquals(new Vector(0,-2), belowGame.getBalls()[0].getVelocity());
+		assertEquals(0, belowGame.getContactLookups());
+		assertEquals(0, belowGame.getBlocks().length);
+	}
+	
+	@Test
+	void testBallReorder() {
+		assertThrows(IllegalArgumentException.class, () -> game.setBallReorderInterval(-1));
+		Ball[] spread = {new NormalBall(new Point(900,800), diameter, initVelocity),
+				new NormalBall(new Point(600,600), diameter, initVelocity),
+				new NormalBall(new Point(100,700), diameter, initVelocity)};
+		BreakoutState reordered = new BreakoutState(spread, blocks, bottomRight, paddle);
+		BreakoutState unordered = reordered.copy();
+		reordered.setBallReorderInterval(2);
+		assertEquals(2, reordered.getBallReorderInterval());
+		
+		// the balls are reordered by Morton code every second tick, which does not affect the state otherwise
+		reordered.tick(0,1);
+		assertEquals(901, reordered.getBalls()[0].getCenter().getX());
+		reordered.tick(0,1);
+		unordered.tick(0,1);
+		unordered.tick(0,1);
+		assertEquals(102, reordered.getBalls()[0].getCenter().getX());
+		assertEquals(602, reordered.getBalls()[1].getCenter().getX());
+		assertEquals(902, reordered.getBalls()[2].getCenter().getX());
+		assertEquals(unordered.stateHash(), reordered.stateHash());
+	}
+	
+	@Test
+	void testTickPool() {
+		// many balls between the blocks of the default map and its paddle, so that blocks are hit over many ticks
+		BreakoutState map = GameMap.createStateFromDescription(BreakoutApplication.initMap);
+		int width = map.getBottomRight().getX();
+		int blocksBottom = Stream.of(map.getBlocks()).mapToInt(e -> e.getBottomRight().getY()).max().getAsInt();
+		Random random = new Random(11);
+		Ball[] many = new Ball[2000];
+		for (int i=0; i<many.length; i++) {
+			Point center = new Point(500 + random.nextInt(width - 1000),
+					blocksBottom + 500 + random.nextInt(map.paddleTop() - blocksBottom - 1000));
+			Vector velocity = new Vector(random.nextInt(11) - 5, random.nextBoolean() ? 6 : -6);
+			many[i] = new NormalBall(center, 400, velocity);
+		}
+		BreakoutState sequential = new BreakoutState(many, map.getBlocks(), map.getBottomRight(), map.getPaddle());
+		BreakoutState parallel = sequential.copy();
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			parallel.setTickPool(pool);
+			assertSame(pool, parallel.getTickPool());
+			assertNull(sequential.getTickPool());
+			
+			// ticking in strips yields exactly the same game state, including the order of the balls
+			boolean replicated = false;
+			for (int tick=0; tick<400; tick++) {
+				int paddleDir = tick / 50 % 3 - 1;
+				sequential.tick(paddleDir, BreakoutState.MAX_ELAPSED_TIME);
+				parallel.tick(paddleDir, BreakoutState.MAX_ELAPSED_TIME);
+				assertEquals(sequential.stateHash(), parallel.stateHash());
+				replicated |= parallel.getPaddle() instanceof ReplicatorPaddleState;
+			}
+			assertTrue(replicated);
+			assertTrue(parallel.getBlocks().length < map.getBlocks().length);
+			Ball[] expected = sequential.getBalls();
+			Ball[] actual = parallel.getBalls();
+			assertEquals(expected.length, actual.length);
+			for (int i=0; i<expected.length; i++) {
+				assertEquals(expected[i].getClass(), actual[i].getClass());
+				assertEquals(expected[i].getCenter(), actual[i].getCenter());
+				assertEquals(expected[i].getVelocity(), actual[i].getVelocity());
+			}
+			assertEquals(sequential.getBlocks().length, parallel.getBlocks().length);
+			assertEquals(sequential.getSkippedBallBlockTests(), parallel.getSkippedBallBlockTests());
+			assertEquals(sequential.getOverlapTests(), parallel.getOverlapTests());
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	void testIteration() {
+		// the visitors and indexed accessors see the same balls and blocks as the copying getters
+		BreakoutState state = GameMap.createStateFromDescription(BreakoutApplication.initMap);
+		for (int t=0; t<200; t++) {
+			Ball[] expectedBalls = state.getBalls();
+			List<Ball> visitedBalls = new ArrayList<>();
+			state.forEachBall(visitedBalls::add);
+			assertArrayEquals(expectedBalls, visitedBalls.toArray());
+			assertEquals(expectedBalls.length, state.ballCount());
+			for (int i=0; i<state.ballCount(); i++) {
+				assertEquals(expectedBalls[i].getCenter(), new Point(state.ballCenterX(i), state.ballCenterY(i)));
+				assertEquals(expectedBalls[i].getVelocity(), new Vector(state.ballVelocityX(i), state.ballVelocityY(i)));
+				assertEquals(expectedBalls[i].getDiameter(), state.ballDiameter(i));
+			}
+			BlockState[] expectedBlocks = state.getBlocks();
+			List<BlockState> visitedBlocks = new ArrayList<>();
+			state.forEachBlock(visitedBlocks::add);
+			assertArrayEquals(expectedBlocks, visitedBlocks.toArray());
+			assertEquals(expectedBlocks.length, state.blockCount());
+			state.tick(0, 10);
+		}
+		
+		// ticking or moving the paddle during an iteration fails fast
+		assertThrows(ConcurrentModificationException.class, () -> game.forEachBall(ball -> game.tick(0, 1)));
+		assertThrows(ConcurrentModificationException.class, () -> game.forEachBlock(block -> game.movePaddleLeft(1)));
+		assertThrows(IllegalArgumentException.class, () -> game.forEachBall(null));
+	}
+	
+	@Test
+	void testVersions() {
+		// a version only stays the same while the part of the game state it covers does not change
+		BreakoutState state = GameMap.createStateFromDescription(BreakoutApplication.initMap);
+		long blocksVersion = state.getBlocksVersion();
+		long paddleVersion = state.getPaddleVersion();
+		long ballsVersion = state.getBallsVersion();
+		BlockState[] blocks = state.getBlocks();
+		PaddleState paddle = state.getPaddle();
+		Ball[] balls = state.getBalls();
+		for (int t=0; t<3000 && !state.isDead(); t++) {
+			int paddleDir = Integer.signum(state.ballCenterX(0) - state.getPaddle().getCenter().getX());
+			state.step(paddleDir, 10);
+			assertTrue(state.getBlocksVersion() >= blocksVersion);
+			assertTrue(state.getPaddleVersion() >= paddleVersion);
+			assertTrue(state.getBallsVersion() >= ballsVersion);
+			if (state.getBlocksVersion() == blocksVersion) {
+				assertArrayEquals(blocks, state.getBlocks());
+			}
+			if (state.getPaddleVersion() == paddleVersion) {
+				assertEquals(paddle.getClass(), state.getPaddle().getClass());
+				if (paddle instanceof ReplicatorPaddleState replicator) {
+					assertEquals(replicator.getLifetime(), ((ReplicatorPaddleState) state.getPaddle()).getLifetime());
+				}
+			}
+			if (state.getBallsVersion() == ballsVersion) {
+				Ball[] now = state.getBalls();
+				assertEquals(balls.length, now.length);
+				for (int i=0; i<now.length; i++) {
+					assertSame(balls[i], now[i]);
+				}
+			}
+			blocksVersion = state.getBlocksVersion();
+			paddleVersion = state.getPaddleVersion();
+			ballsVersion = state.getBallsVersion();
+			blocks = state.getBlocks();
+			paddle = state.getPaddle();
+			balls = state.getBalls();
+		}
+		assertTrue(state.getBlocksVersion() > 0);
+		assertEquals(state.getBlocksVersion(), state.copy().getBlocksVersion());
+		assertEquals(state.getBallsVersion(), state.copy().getBallsVersion());
+	}
+	
+	@Test
+	void testEventRing() {
+		// the events published by the ticks account for the blocks destroyed and the balls lost and added
+		BreakoutState state = GameMap.createStateFromDescription(BreakoutApplication.initMap);
+		TickEventRing ring = new TickEventRing(1024);
+		state.setEventRing(ring);
+		TickEventRing.Cursor cursor = ring.cursor();
+		int[] counts = new int[7];
+		for (int t=1; t<=3000 && !state.isDead(); t++) {
+			int blocksBefore = state.blockCount();
+			int ballsBefore = state.ballCount();
+			int paddleDir = Integer.signum(state.ballCenterX(0) - state.getPaddle().getCenter().getX());
+			state.step(paddleDir, 10);
+			state.copy().tick(0, 10);
+			int[] tickCounts = new int[7];
+			int replicates = 0;
+			while (cursor.poll()) {
+				assertEquals(t, cursor.tick());
+				tickCounts[cursor.type()]++;
+				counts[cursor.type()]++;
+				if (cursor.type() == TickEventRing.BALL_REPLICATED) {
+					replicates += cursor.value();
+				}
+			}
+			assertEquals(blocksBefore - state.blockCount(), tickCounts[TickEventRing.BLOCK_DESTROYED]);
+			assertEquals(state.ballCount() - ballsBefore, replicates - tickCounts[TickEventRing.BALL_LOST]);
+			assertEquals(tickCounts[TickEventRing.BALL_REPLICATED], tickCounts[TickEventRing.PADDLE_LIFETIME_DECREMENTED]);
+		}
+		assertEquals(0, cursor.lost());
+		assertTrue(counts[TickEventRing.BLOCK_DESTROYED] > 0);
+		assertNull(state.copy().getEventRing());
+	}
 }
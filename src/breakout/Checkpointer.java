@@ -0,0 +1,410 @@
+package breakout;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Each instance of this class periodically saves the state of a running game to a checkpoint file, from which the
+ * game can be resumed after the process dies.
+ *
+ * The game loop calls offer after each tick. Every getInterval() ms, offering takes a copy of the game state and
+ * leaves it for a background thread, which polls for copies on its own schedule and encodes them with StateCodec
+ * and writes them to the checkpoint file. The game thread never waits for nor even wakes up that thread, and
+ * offering while the previous copy was not picked up yet takes no copy.
+ *
+ * The checkpoint file is allocated up front and consists of two slots of getSlotSize() bytes, each holding a
+ * checkpoint along with its sequence number and a checksum. The writes are forced to the device only after every
+ * getCheckpointsPerSync() checkpoints, and until then they all go to the same slot, so that the other slot keeps the
+ * latest checkpoint that was forced: whenever the process dies, at least one of the slots holds a complete
+ * checkpoint, and restore returns the latest one.
+ *
+ * @invar | getSlotSize() > HEADER_SIZE
+ * @invar | getInterval() >= 0
+ * @invar | getCheckpointsPerSync() > 0
+ * @invar | getCheckpointCount() >= 0 && getSyncCount() >= 0
+ */
+public final class Checkpointer implements AutoCloseable {
+
+	private static final Logger LOGGER = Logger.getLogger(Checkpointer.class.getName());
+
+	// The first bytes of every slot that holds a checkpoint
+	static final int MAGIC = 0x42524b43;
+	/**
+	 * The length in bytes of the header of a slot: the magic number, the sequence number, the length of the
+	 * checkpoint and its checksum.
+	 */
+	public static final int HEADER_SIZE = 20;
+	// The default configuration: slots of 1 MiB, a checkpoint every second, and a sync every five checkpoints
+	private static final int DEFAULT_SLOT_SIZE = 1 << 20;
+	private static final long DEFAULT_INTERVAL = 1000;
+	private static final int DEFAULT_CHECKPOINTS_PER_SYNC = 5;
+
+	/**
+	 * @invar | file != null && channel != null && writer != null && pending != null
+	 * @invar | slotSize > HEADER_SIZE
+	 * @invar | interval >= 0
+	 * @invar | checkpointsPerSync > 0
+	 * @invar | syncedSlot == 0 || syncedSlot == 1
+	 */
+	private final Path file;
+	private final FileChannel channel;
+	private final ScheduledExecutorService writer;
+	private final int slotSize;
+	private final long interval;
+	private final int checkpointsPerSync;
+	// The copy left for the writer thread, if it did not pick it up yet
+	private final AtomicReference<BreakoutState> pending = new AtomicReference<>();
+	private long lastOffer = Long.MIN_VALUE;
+
+	// The state of the writer thread: the slot holding the latest checkpoint that was forced, the sequence number of
+	// the latest checkpoint and the number of checkpoints written since the latest sync
+	private int syncedSlot;
+	private long sequence;
+	private int unsynced;
+	private volatile long checkpointCount;
+	private volatile long syncCount;
+
+	/**
+	 * Initializes this object as a checkpointer that saves a checkpoint every second to the supplied file, in slots
+	 * of 1 MiB, and forces every fifth checkpoint to the device.
+	 * @throws IllegalArgumentException if no file is supplied.
+	 * 	| file == null
+	 * @throws IOException if the file cannot be opened or allocated.
+	 */
+	public Checkpointer(Path file) throws IOException {
+		this(file, DEFAULT_SLOT_SIZE, DEFAULT_INTERVAL, DEFAULT_CHECKPOINTS_PER_SYNC);
+	}
+
+	/**
+	 * Initializes this object as a checkpointer that saves a checkpoint every supplied number of ms to the supplied
+	 * file, in slots of the supplied number of bytes, and forces every so many checkpoints to the device. Checkpoints
+	 * in the file are kept until they are superseded, so that a game can be restored from the file before it is
+	 * checkpointed again.
+	 * @throws IllegalArgumentException if no file is supplied, or the slot size, the interval or the number of
+	 * 	checkpoints per sync is invalid.
+	 * 	| file == null || slotSize <= HEADER_SIZE || interval < 0 || checkpointsPerSync <= 0
+	 * @throws IllegalArgumentException if the file is not empty and its size is not that of two slots of the
+	 * 	supplied size, so that it is not a checkpoint file of this configuration and is left untouched.
+	 * @throws IOException if the file cannot be opened or allocated.
+	 * @post | getSlotSize() == slotSize
+	 * @post | getInterval() == interval
+	 * @post | getCheckpointsPerSync() == checkpointsPerSync
+	 * @post | getCheckpointCount() == 0 && getSyncCount() == 0
+	 */
+	public Checkpointer(Path file, int slotSize, long interval, int checkpointsPerSync) throws IOException {
+		if (file == null || slotSize <= HEADER_SIZE || interval < 0 || checkpointsPerSync <= 0) {
+			throw new IllegalArgumentException("You have supplied an invalid checkpoint configuration!");
+		}
+		this.file = file;
+		this.slotSize = slotSize;
+		this.interval = interval;
+		this.checkpointsPerSync = checkpointsPerSync;
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			long size = channel.size();
+			if (size != 0 && size != 2L * slotSize) {
+				throw new IllegalArgumentException("The file does not hold checkpoints in slots of " + slotSize
+						+ " bytes");
+			}
+			// Continue after the latest valid checkpoint, keeping its slot intact until the next sync
+			Slot latest = latest(channel, slotSize);
+			if (latest != null) {
+				syncedSlot = latest.index;
+				sequence = latest.sequence;
+			}
+			if (size == 0) {
+				channel.write(ByteBuffer.allocate(1), 2L * slotSize - 1);
+			}
+			channel.force(true);
+		}
+		catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "checkpointer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long period = Math.max(interval, 1);
+		writer.scheduleWithFixedDelay(this::drain, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns the size in bytes of each of the two slots of the checkpoint file.
+	 */
+	public int getSlotSize() {
+		return slotSize;
+	}
+
+	/**
+	 * Returns the number of ms between checkpoints.
+	 */
+	public long getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Returns the number of checkpoints written between syncs.
+	 */
+	public int getCheckpointsPerSync() {
+		return checkpointsPerSync;
+	}
+
+	/**
+	 * Returns the number of checkpoints written so far.
+	 */
+	public long getCheckpointCount() {
+		return checkpointCount;
+	}
+
+	/**
+	 * Returns the number of times the checkpoints were forced to the device so far.
+	 */
+	public long getSyncCount() {
+		return syncCount;
+	}
+
+	/**
+	 * Takes a copy of the supplied game state to be written as a checkpoint, if the interval has passed since the
+	 * previous one and that one was picked up by the writer thread, and returns whether it did.
+	 * @throws IllegalArgumentException if no game state is supplied.
+	 * 	| state == null
+	 * @throws IllegalStateException if this checkpointer is closed.
+	 * @mutates | this
+	 * @inspects | state
+	 */
+	public boolean offer(BreakoutState state) {
+		if (state == null) {
+			throw new IllegalArgumentException("You have not supplied a valid game state!");
+		}
+		if (writer.isShutdown()) {
+			throw new IllegalStateException("This checkpointer is closed");
+		}
+		long now = System.nanoTime();
+		if (lastOffer != Long.MIN_VALUE && now - lastOffer < TimeUnit.MILLISECONDS.toNanos(interval)
+				|| pending.get() != null) {
+			return false;
+		}
+		lastOffer = now;
+		pending.set(state.copy());
+		return true;
+	}
+
+	/**
+	 * Writes the copy left by the game thread, if any.
+	 */
+	private void drain() {
+		BreakoutState copy = pending.getAndSet(null);
+		if (copy != null) {
+			try {
+				write(StateCodec.encode(copy));
+			}
+			catch (IOException | RuntimeException e) {
+				LOGGER.log(Level.WARNING, "Could not write checkpoint", e);
+			}
+		}
+	}
+
+	private void write(byte[] checkpoint) throws IOException {
+		if (checkpoint.length > slotSize - HEADER_SIZE) {
+			throw new IOException("A checkpoint of " + checkpoint.length + " bytes does not fit in a slot");
+		}
+		long next = sequence + 1;
+		ByteBuffer slot = ByteBuffer.allocate(HEADER_SIZE + checkpoint.length);
+		slot.putInt(MAGIC).putLong(next).putInt(checkpoint.length).putInt(checksum(next, checkpoint));
+		slot.put(checkpoint).flip();
+		long position = (long) (1 - syncedSlot) * slotSize;
+		while (slot.hasRemaining()) {
+			position += channel.write(slot, position);
+		}
+		sequence = next;
+		checkpointCount++;
+		if (++unsynced >= checkpointsPerSync) {
+			sync();
+		}
+	}
+
+	private void sync() throws IOException {
+		if (unsynced > 0) {
+			channel.force(false);
+			syncedSlot = 1 - syncedSlot;
+			unsynced = 0;
+			syncCount++;
+		}
+	}
+
+	private static int checksum(long sequence, byte[] checkpoint) {
+		CRC32C crc = new CRC32C();
+		crc.update(ByteBuffer.allocate(Long.BYTES).putLong(sequence).flip());
+		crc.update(checkpoint);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Waits until the checkpoints taken so far are written, and forces them to the device.
+	 * @throws IllegalStateException if this checkpointer is closed.
+	 * @throws IOException if the checkpoints cannot be forced.
+	 * @mutates | this
+	 */
+	public void flush() throws IOException {
+		try {
+			writer.submit(() -> {
+				drain();
+				sync();
+				return null;
+			}).get();
+		}
+		catch (RejectedExecutionException e) {
+			throw new IllegalStateException("This checkpointer is closed");
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while flushing checkpoints", e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException cause) {
+				throw cause;
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Writes and forces the checkpoints taken so far, and closes the checkpoint file. Closing a closed checkpointer
+	 * has no effect.
+	 * @throws IOException if the checkpoints cannot be forced or the file cannot be closed.
+	 * @mutates | this
+	 */
+	@Override
+	public void close() throws IOException {
+		if (writer.isShutdown()) {
+			return;
+		}
+		try (channel) {
+			flush();
+		}
+		finally {
+			writer.shutdown();
+		}
+	}
+
+	/**
+	 * Closes this checkpointer and deletes its checkpoint file, e.g. when the game it saves is over, so that it is
+	 * not resumed.
+	 * @throws IOException if the file cannot be closed or deleted.
+	 * @mutates | this
+	 */
+	public void discard() throws IOException {
+		try {
+			close();
+		}
+		finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * Returns the game state saved by the latest complete checkpoint in the supplied checkpoint file, or null if
+	 * the file does not exist or holds no complete checkpoint.
+	 * @throws IllegalArgumentException if no file is supplied.
+	 * 	| file == null
+	 * @throws IOException if the file cannot be read.
+	 * @creates | result
+	 */
+	public static BreakoutState restore(Path file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("You have not supplied a valid checkpoint file!");
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < 2 * HEADER_SIZE || size % 2 != 0 || size / 2 > Integer.MAX_VALUE) {
+				return null;
+			}
+			Slot latest = latest(channel, (int) (size / 2));
+			return latest == null ? null : latest.state;
+		}
+		catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Each instance of this class represents a complete checkpoint read from one of the slots of a checkpoint file,
+	 * along with the game state it decodes to.
+	 */
+	private static final class Slot {
+		final int index;
+		final long sequence;
+		final BreakoutState state;
+
+		Slot(int index, long sequence, BreakoutState state) {
+			this.index = index;
+			this.sequence = sequence;
+			this.state = state;
+		}
+	}
+
+	/**
+	 * Returns the complete checkpoint with the highest sequence number in the supplied file, or null if there is none.
+	 */
+	private static Slot latest(FileChannel channel, int slotSize) throws IOException {
+		Slot latest = null;
+		for (int index=0; index<2; index++) {
+			Slot slot = read(channel, index, slotSize);
+			if (slot != null && (latest == null || slot.sequence > latest.sequence)) {
+				latest = slot;
+			}
+		}
+		return latest;
+	}
+
+	private static Slot read(FileChannel channel, int index, int slotSize) throws IOException {
+		long start = (long) index * slotSize;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		if (!readFully(channel, header, start) || header.flip().getInt() != MAGIC) {
+			return null;
+		}
+		long sequence = header.getLong();
+		int length = header.getInt();
+		int checksum = header.getInt();
+		if (length < 0 || length > slotSize - HEADER_SIZE) {
+			return null;
+		}
+		ByteBuffer checkpoint = ByteBuffer.allocate(length);
+		if (!readFully(channel, checkpoint, start + HEADER_SIZE) || checksum(sequence, checkpoint.array()) != checksum) {
+			return null;
+		}
+		// A checkpoint that does not decode, e.g. one written in an unknown format, is not resumed from
+		try {
+			return new Slot(index, sequence, StateCodec.decode(checkpoint.array()));
+		}
+		catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
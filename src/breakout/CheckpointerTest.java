@@ -0,0 +1,155 @@
+package breakout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import breakout.gui.BreakoutApplication;
+
+class CheckpointerTest {
+
+	static final int SLOT_SIZE = 1 << 16;
+
+	static BreakoutState play(BreakoutState state, int ticks) {
+		for (int t=0; t<ticks; t++) {
+			state.step(Integer.signum(state.ballCenterX(0) - state.getPaddle().getCenter().getX()), 10);
+		}
+		return state;
+	}
+
+	static void delete(Path file) throws IOException {
+		Files.deleteIfExists(file);
+		Files.deleteIfExists(file.getParent());
+	}
+
+	@Test
+	void testConstr() throws IOException {
+		Path file = Files.createTempDirectory("checkpoint").resolve("game.checkpoint");
+		try {
+			assertThrows(IllegalArgumentException.class, () -> new Checkpointer(null));
+			assertThrows(IllegalArgumentException.class, () -> new Checkpointer(file, Checkpointer.HEADER_SIZE, 0, 1));
+			assertThrows(IllegalArgumentException.class, () -> new Checkpointer(file, SLOT_SIZE, -1, 1));
+			assertThrows(IllegalArgumentException.class, () -> new Checkpointer(file, SLOT_SIZE, 0, 0));
+			assertNull(Checkpointer.restore(file));
+			try (Checkpointer checkpointer = new Checkpointer(file, SLOT_SIZE, 0, 1)) {
+				assertEquals(SLOT_SIZE, checkpointer.getSlotSize());
+				assertEquals(0, checkpointer.getInterval());
+				assertEquals(1, checkpointer.getCheckpointsPerSync());
+				assertEquals(0, checkpointer.getCheckpointCount());
+				assertThrows(IllegalArgumentException.class, () -> checkpointer.offer(null));
+			}
+			// the file is allocated up front, but holds no checkpoint yet
+			assertEquals(2 * SLOT_SIZE, Files.size(file));
+			assertNull(Checkpointer.restore(file));
+			// a file of another size is not a checkpoint file of this configuration, and is left alone
+			assertThrows(IllegalArgumentException.class, () -> new Checkpointer(file, SLOT_SIZE / 2, 0, 1));
+			assertEquals(2 * SLOT_SIZE, Files.size(file));
+		}
+		finally {
+			delete(file);
+		}
+	}
+
+	@Test
+	void testRestore() throws IOException {
+		Path file = Files.createTempDirectory("checkpoint").resolve("game.checkpoint");
+		try {
+			BreakoutState state = GameMap.createStateFromDescription(BreakoutApplication.initMap);
+			byte[] expected;
+			try (Checkpointer checkpointer = new Checkpointer(file, SLOT_SIZE, 0, 1)) {
+				for (int i=0; i<5; i++) {
+					play(state, 100);
+					assertTrue(checkpointer.offer(state));
+					checkpointer.flush();
+					assertArrayEquals(StateCodec.encode(state), StateCodec.encode(Checkpointer.restore(file)));
+				}
+				assertEquals(5, checkpointer.getCheckpointCount());
+				assertEquals(5, checkpointer.getSyncCount());
+				expected = StateCodec.encode(state);
+			}
+
+			// a resumed game is checkpointed to the same file without losing the checkpoint it resumed from
+			BreakoutState resumed = Checkpointer.restore(file);
+			assertArrayEquals(expected, StateCodec.encode(resumed));
+			Checkpointer checkpointer = new Checkpointer(file, SLOT_SIZE, 0, 1);
+			assertArrayEquals(expected, StateCodec.encode(Checkpointer.restore(file)));
+			play(resumed, 100);
+			checkpointer.offer(resumed);
+			checkpointer.close();
+			assertThrows(IllegalStateException.class, () -> checkpointer.offer(resumed));
+			checkpointer.close();
+			assertArrayEquals(StateCodec.encode(resumed), StateCodec.encode(Checkpointer.restore(file)));
+		}
+		finally {
+			delete(file);
+		}
+	}
+
+	@Test
+	void testBatchedSync() throws IOException {
+		Path file = Files.createTempDirectory("checkpoint").resolve("game.checkpoint");
+		try (Checkpointer checkpointer = new Checkpointer(file, SLOT_SIZE, 0, 3)) {
+			BreakoutState state = GameMap.createStateFromDescription(BreakoutApplication.initMap);
+			// the writer thread is waited for, but a stalled one fails the test rather than hanging it
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			for (int i=0; i<7; i++) {
+				play(state, 10);
+				while (!checkpointer.offer(state)) {
+					assertTrue(System.nanoTime() - deadline < 0);
+					Thread.onSpinWait();
+				}
+			}
+			while (checkpointer.getCheckpointCount() < 7) {
+				assertTrue(System.nanoTime() - deadline < 0);
+				Thread.onSpinWait();
+			}
+			assertEquals(2, checkpointer.getSyncCount());
+			checkpointer.flush();
+			assertEquals(3, checkpointer.getSyncCount());
+			assertArrayEquals(StateCodec.encode(state), StateCodec.encode(Checkpointer.restore(file)));
+		}
+		finally {
+			delete(file);
+		}
+	}
+
+	@Test
+	void testTornSlot() throws IOException {
+		// a checkpoint that was not written completely is skipped in favour of the previous one
+		Path file = Files.createTempDirectory("checkpoint").resolve("game.checkpoint");
+		try {
+			BreakoutState state = GameMap.createStateFromDescription(BreakoutApplication.initMap);
+			byte[] previous;
+			try (Checkpointer checkpointer = new Checkpointer(file, SLOT_SIZE, 0, 1)) {
+				checkpointer.offer(play(state, 100));
+				checkpointer.flush();
+				previous = StateCodec.encode(state);
+				checkpointer.offer(play(state, 100));
+			}
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				// the first checkpoint went to the second slot, the second one to the first slot
+				ByteBuffer b = ByteBuffer.allocate(1);
+				channel.read(b, Checkpointer.HEADER_SIZE + 10);
+				channel.write(ByteBuffer.wrap(new byte[] {(byte) ~b.get(0)}), Checkpointer.HEADER_SIZE + 10);
+			}
+			assertArrayEquals(previous, StateCodec.encode(Checkpointer.restore(file)));
+
+			Files.write(file, new byte[2 * SLOT_SIZE]);
+			assertNull(Checkpointer.restore(file));
+			Files.delete(file);
+			assertNull(Checkpointer.restore(file));
+			assertThrows(IllegalArgumentException.class, () -> Checkpointer.restore(null));
+		}
+		finally {
+			delete(file);
+		}
+	}
+}
@@ -0,0 +1,325 @@
+package breakout;
+
+import java.util.Arrays;
+
+/**
+ * Each instance of this class rebuilds the successive states of a game from the frames encoded by a DeltaEncoder,
+ * which must be decoded in the order they were encoded, starting with a keyframe.
+ *
+ * @invar | getFrameCount() >= 0
+ */
+public final class DeltaDecoder {
+
+	// The minimum number of bytes taken by a block and by a ball in a keyframe, which bound the counts read
+	private static final int MIN_BLOCK_SIZE = 6;
+	private static final int MIN_BALL_SIZE = 6;
+
+	private long frameCount;
+	private boolean keyed;
+
+	/**
+	 * Each instance of this class holds a game state as of a frame, laid out as in DeltaEncoder.
+	 *
+	 * @invar | ballXs != null && ballYs != null && ballVxs != null && ballVys != null
+	 * @invar | ballDiameters != null && ballLifetimes != null
+	 * @invar | blockLefts != null && blockTops != null && blockRights != null && blockBottoms != null
+	 * @invar | blockTypes != null && blockLifetimes != null
+	 */
+	private static final class Frame {
+		long time;
+		int fieldWidth;
+		int fieldHeight;
+		int paddleX;
+		int paddleY;
+		int paddleHalfWidth;
+		int paddleHalfHeight;
+		int paddleLifetime;
+		int ballCount;
+		int[] ballXs = new int[0];
+		int[] ballYs = new int[0];
+		int[] ballVxs = new int[0];
+		int[] ballVys = new int[0];
+		int[] ballDiameters = new int[0];
+		int[] ballLifetimes = new int[0];
+		int blockCount;
+		int[] blockLefts = new int[0];
+		int[] blockTops = new int[0];
+		int[] blockRights = new int[0];
+		int[] blockBottoms = new int[0];
+		int[] blockTypes = new int[0];
+		int[] blockLifetimes = new int[0];
+
+		void ensureBallCapacity(int count) {
+			if (ballXs.length < count) {
+				int capacity = Math.max(count, ballXs.length * 2);
+				ballXs = Arrays.copyOf(ballXs, capacity);
+				ballYs = Arrays.copyOf(ballYs, capacity);
+				ballVxs = Arrays.copyOf(ballVxs, capacity);
+				ballVys = Arrays.copyOf(ballVys, capacity);
+				ballDiameters = Arrays.copyOf(ballDiameters, capacity);
+				ballLifetimes = Arrays.copyOf(ballLifetimes, capacity);
+			}
+		}
+
+		void ensureBlockCapacity(int count) {
+			if (blockLefts.length < count) {
+				blockLefts = new int[count];
+				blockTops = new int[count];
+				blockRights = new int[count];
+				blockBottoms = new int[count];
+				blockTypes = new int[count];
+				blockLifetimes = new int[count];
+			}
+		}
+
+		void copyBlocks(Frame from) {
+			blockCount = from.blockCount;
+			ensureBlockCapacity(blockCount);
+			System.arraycopy(from.blockLefts, 0, blockLefts, 0, blockCount);
+			System.arraycopy(from.blockTops, 0, blockTops, 0, blockCount);
+			System.arraycopy(from.blockRights, 0, blockRights, 0, blockCount);
+			System.arraycopy(from.blockBottoms, 0, blockBottoms, 0, blockCount);
+			System.arraycopy(from.blockTypes, 0, blockTypes, 0, blockCount);
+			System.arraycopy(from.blockLifetimes, 0, blockLifetimes, 0, blockCount);
+		}
+	}
+
+	/**
+	 * @invar | current != null && spare != null && current != spare
+	 */
+	// The game state as of the latest frame, and the one into which the next frame is decoded, which replaces the
+	// former only once the whole frame was read, so that a malformed frame leaves it untouched
+	private Frame current = new Frame();
+	private Frame spare = new Frame();
+
+	/**
+	 * Returns the number of frames decoded so far.
+	 */
+	public long getFrameCount() {
+		return frameCount;
+	}
+
+	/**
+	 * Returns the simulated time in ms of the game state as of the latest frame.
+	 */
+	public long getSimulatedTime() {
+		return current.time;
+	}
+
+	/**
+	 * Applies the supplied frame to the game state rebuilt so far. A malformed frame is not applied at all, so that
+	 * decoding can continue with the next one.
+	 * @mutates | this
+	 * @throws IllegalArgumentException if no frame is supplied.
+	 * 	| frame == null
+	 * @throws IllegalArgumentException if the frame is malformed, or is a delta and no keyframe was decoded yet.
+	 * @post | getFrameCount() == old(getFrameCount()) + 1
+	 */
+	public void decode(byte[] frame) {
+		if (frame == null) {
+			throw new IllegalArgumentException("You have not supplied a valid frame!");
+		}
+		VarintReader in = new VarintReader(frame);
+		int kind = in.readByte();
+		if (kind == DeltaEncoder.KEYFRAME) {
+			decodeKeyframe(in, spare);
+		}
+		else if (kind == DeltaEncoder.DELTA) {
+			if (!keyed) {
+				throw new IllegalArgumentException("A delta frame cannot be decoded before a keyframe");
+			}
+			decodeDelta(in, current, spare);
+		}
+		else {
+			throw new IllegalArgumentException("The frame is of an unknown kind");
+		}
+		if (!in.isAtEnd()) {
+			throw new IllegalArgumentException("The frame holds trailing data");
+		}
+		Frame decoded = spare;
+		spare = current;
+		current = decoded;
+		keyed = true;
+		frameCount++;
+	}
+
+	private static void decodeKeyframe(VarintReader in, Frame to) {
+		to.time = in.readUnsigned();
+		to.fieldWidth = in.readInt();
+		to.fieldHeight = in.readInt();
+		to.paddleX = in.readInt();
+		to.paddleY = in.readInt();
+		to.paddleHalfWidth = in.readInt();
+		to.paddleHalfHeight = in.readInt();
+		to.paddleLifetime = in.readCount(PaddleState.MAX_REPLICATOR_LIFETIME);
+
+		to.blockCount = in.readCount(in.remaining() / MIN_BLOCK_SIZE);
+		to.ensureBlockCapacity(to.blockCount);
+		for (int k=0; k<to.blockCount; k++) {
+			to.blockLefts[k] = in.readInt();
+			to.blockTops[k] = in.readInt();
+			to.blockRights[k] = in.readInt();
+			to.blockBottoms[k] = in.readInt();
+			to.blockTypes[k] = in.readCount(BlockTable.REPLICATOR);
+			to.blockLifetimes[k] = in.readCount(Integer.MAX_VALUE);
+		}
+
+		to.ballCount = in.readCount(in.remaining() / MIN_BALL_SIZE);
+		to.ensureBallCapacity(to.ballCount);
+		for (int i=0; i<to.ballCount; i++) {
+			readBall(in, to, i);
+		}
+	}
+
+	private static void decodeDelta(VarintReader in, Frame from, Frame to) {
+		int elapsed = in.readCount(Integer.MAX_VALUE);
+		to.time = from.time + elapsed;
+		to.fieldWidth = from.fieldWidth;
+		to.fieldHeight = from.fieldHeight;
+		to.paddleX = from.paddleX;
+		to.paddleY = from.paddleY;
+		to.paddleHalfWidth = from.paddleHalfWidth;
+		to.paddleHalfHeight = from.paddleHalfHeight;
+		to.paddleLifetime = from.paddleLifetime;
+		int flags = in.readCount(0xF);
+		if ((flags & DeltaEncoder.PADDLE_MOVED) != 0) {
+			to.paddleX += in.readInt();
+		}
+		if ((flags & DeltaEncoder.PADDLE_CHANGED) != 0) {
+			to.paddleLifetime = in.readCount(PaddleState.MAX_REPLICATOR_LIFETIME);
+		}
+		to.copyBlocks(from);
+		if ((flags & DeltaEncoder.BLOCKS_CHANGED) != 0) {
+			decodeBlockChanges(in, to);
+		}
+
+		// The index in the previous frame of each ball, or -1 for new balls
+		int[] sources = null;
+		to.ballCount = from.ballCount;
+		if ((flags & DeltaEncoder.BALLS_CHANGED) != 0) {
+			// Each ball takes at least the byte referring to its index in the previous frame
+			to.ballCount = in.readCount(in.remaining());
+			to.ensureBallCapacity(to.ballCount);
+			sources = new int[to.ballCount];
+			for (int i=0; i<to.ballCount; i++) {
+				int reference = in.readCount(from.ballCount);
+				sources[i] = reference - 1;
+				if (reference == DeltaEncoder.NEW_BALL) {
+					readBall(in, to, i);
+				}
+			}
+		}
+		else {
+			to.ensureBallCapacity(to.ballCount);
+		}
+
+		// Roll the balls along their predicted path
+		for (int i=0; i<to.ballCount; i++) {
+			int source = sources == null ? i : sources[i];
+			if (source >= 0) {
+				to.ballXs[i] = from.ballXs[source] + from.ballVxs[source] * elapsed;
+				to.ballYs[i] = from.ballYs[source] + from.ballVys[source] * elapsed;
+				to.ballVxs[i] = from.ballVxs[source];
+				to.ballVys[i] = from.ballVys[source];
+				to.ballDiameters[i] = from.ballDiameters[source];
+				to.ballLifetimes[i] = from.ballLifetimes[source] < 0 ? -1 : from.ballLifetimes[source] - elapsed;
+			}
+		}
+
+		// Correct the balls that deviated from it
+		int deviating = in.readCount(to.ballCount);
+		int i = 0;
+		for (int d=0; d<deviating; d++) {
+			i += in.readCount(to.ballCount);
+			if (i >= to.ballCount) {
+				throw new IllegalArgumentException("The frame refers to a ball that does not exist");
+			}
+			int mask = in.readByte();
+			if ((mask & DeltaEncoder.X) != 0) {
+				to.ballXs[i] += in.readInt();
+			}
+			if ((mask & DeltaEncoder.Y) != 0) {
+				to.ballYs[i] += in.readInt();
+			}
+			if ((mask & DeltaEncoder.VX) != 0) {
+				to.ballVxs[i] += in.readInt();
+			}
+			if ((mask & DeltaEncoder.VY) != 0) {
+				to.ballVys[i] += in.readInt();
+			}
+			if ((mask & DeltaEncoder.LIFETIME) != 0) {
+				to.ballLifetimes[i] += in.readInt();
+			}
+		}
+	}
+
+	private static void decodeBlockChanges(VarintReader in, Frame to) {
+		int changes = in.readCount(to.blockCount);
+		int k = 0;
+		for (int c=0; c<changes; c++) {
+			k += in.readCount(to.blockCount);
+			if (k >= to.blockCount) {
+				throw new IllegalArgumentException("The frame refers to a block that does not exist");
+			}
+			to.blockLifetimes[k] = in.readCount(Integer.MAX_VALUE);
+		}
+		int kept = 0;
+		for (k=0; k<to.blockCount; k++) {
+			if (to.blockLifetimes[k] > 0) {
+				to.blockLefts[kept] = to.blockLefts[k];
+				to.blockTops[kept] = to.blockTops[k];
+				to.blockRights[kept] = to.blockRights[k];
+				to.blockBottoms[kept] = to.blockBottoms[k];
+				to.blockTypes[kept] = to.blockTypes[k];
+				to.blockLifetimes[kept++] = to.blockLifetimes[k];
+			}
+		}
+		to.blockCount = kept;
+	}
+
+	private static void readBall(VarintReader in, Frame to, int i) {
+		to.ballDiameters[i] = in.readCount(Integer.MAX_VALUE);
+		to.ballLifetimes[i] = in.readInt();
+		to.ballXs[i] = in.readInt();
+		to.ballYs[i] = in.readInt();
+		to.ballVxs[i] = in.readInt();
+		to.ballVys[i] = in.readInt();
+	}
+
+	/**
+	 * Returns a new game state equal to the one encoded by the latest frame: it has the same balls, in the same
+	 * order, the same blocks and the same paddle, and hence the same state hash.
+	 * @throws IllegalStateException if no keyframe was decoded yet.
+	 * @creates | result
+	 */
+	public BreakoutState toState() {
+		if (!keyed) {
+			throw new IllegalStateException("No keyframe was decoded yet");
+		}
+		Frame frame = current;
+		Ball[] balls = new Ball[frame.ballCount];
+		for (int i=0; i<frame.ballCount; i++) {
+			Point center = new Point(frame.ballXs[i], frame.ballYs[i]);
+			Vector velocity = new Vector(frame.ballVxs[i], frame.ballVys[i]);
+			balls[i] = frame.ballLifetimes[i] < 0 ? new NormalBall(center, frame.ballDiameters[i], velocity)
+					: new SuperBall(center, frame.ballDiameters[i], velocity, frame.ballLifetimes[i]);
+		}
+		BlockState[] blocks = new BlockState[frame.blockCount];
+		for (int k=0; k<frame.blockCount; k++) {
+			Point tl = new Point(frame.blockLefts[k], frame.blockTops[k]);
+			Point br = new Point(frame.blockRights[k], frame.blockBottoms[k]);
+			blocks[k] = switch (frame.blockTypes[k]) {
+			case BlockTable.STURDY -> new SturdyBlockState(tl, br, frame.blockLifetimes[k]);
+			case BlockTable.POWERUP -> new PowerupBallBlockState(tl, br);
+			case BlockTable.REPLICATOR -> new ReplicatorBlockState(tl, br);
+			default -> new NormalBlockState(tl, br);
+			};
+		}
+		Point paddleCenter = new Point(frame.paddleX, frame.paddleY);
+		Vector paddleSize = new Vector(frame.paddleHalfWidth, frame.paddleHalfHeight);
+		PaddleState paddle = frame.paddleLifetime > 0
+				? new ReplicatorPaddleState(paddleCenter, paddleSize, frame.paddleLifetime)
+				: new NormalPaddleState(paddleCenter, paddleSize);
+		return new BreakoutState(balls, blocks, new Point(frame.fieldWidth, frame.fieldHeight), paddle);
+	}
+}
@@ -0,0 +1,407 @@
+package breakout;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Each instance of this class encodes the successive states of one running game into compact frames, to be sent to
+ * a recorder or spectator and rebuilt by a DeltaDecoder.
+ *
+ * The first frame is a keyframe, holding the full game state. Each next frame is a delta against the previous one:
+ * - the elapsed simulated time, and the horizontal movement and the lifetime of the paddle if they changed;
+ * - if the blocks version changed, the blocks that were destroyed or lost some of their lifetime, by their index in
+ *   the previous frame;
+ * - if the balls version changed, for each ball the index of the same ball in the previous frame, or the full ball
+ *   if it is new; otherwise the balls are the same as in the previous frame;
+ * - the balls whose center, velocity or lifetime differs from what rolling them for the elapsed time predicts, i.e.
+ *   the balls that bounced, with the difference from the prediction.
+ * All integers are written as variable-length quantities by a VarintWriter, so that a tick in which no ball bounces
+ * takes a few bytes whatever the number of balls.
+ *
+ * @invar | getFrameCount() >= 0
+ */
+public final class DeltaEncoder {
+
+	// The kinds of frames
+	static final int KEYFRAME = 1;
+	static final int DELTA = 2;
+	// The sections present in a delta frame
+	static final int PADDLE_MOVED = 1;
+	static final int PADDLE_CHANGED = 2;
+	static final int BLOCKS_CHANGED = 4;
+	static final int BALLS_CHANGED = 8;
+	// The fields of a ball that differ from the prediction
+	static final int X = 1;
+	static final int Y = 2;
+	static final int VX = 4;
+	static final int VY = 8;
+	static final int LIFETIME = 16;
+	// The index referring to a ball that is new in a delta frame
+	static final int NEW_BALL = 0;
+
+	private final VarintWriter out = new VarintWriter();
+	private long frameCount;
+
+	/**
+	 * @invar | ballRefs != null && ballXs != null && ballYs != null && ballVxs != null && ballVys != null
+	 * @invar | ballDiameters != null && ballLifetimes != null
+	 * @invar | blockLefts != null && blockTops != null && blockRights != null && blockBottoms != null
+	 * @invar | blockTypes != null && blockLifetimes != null
+	 */
+	// The game state encoded by the previous frame, or null, and what it looked like then
+	private BreakoutState previous;
+	private long time;
+	private long blocksVersion;
+	private long ballsVersion;
+	private int paddleX;
+	private int paddleLifetime;
+	// The balls, with their center, velocity, diameter and remaining lifetime, or -1 for a normal ball
+	private int ballCount;
+	private Ball[] ballRefs = new Ball[0];
+	private int[] ballXs = new int[0];
+	private int[] ballYs = new int[0];
+	private int[] ballVxs = new int[0];
+	private int[] ballVys = new int[0];
+	private int[] ballDiameters = new int[0];
+	private int[] ballLifetimes = new int[0];
+	// The blocks that are not destroyed, in slot order
+	private int blockCount;
+	private int[] blockLefts = new int[0];
+	private int[] blockTops = new int[0];
+	private int[] blockRights = new int[0];
+	private int[] blockBottoms = new int[0];
+	private int[] blockTypes = new int[0];
+	private int[] blockLifetimes = new int[0];
+
+	/**
+	 * Returns the number of frames encoded so far.
+	 */
+	public long getFrameCount() {
+		return frameCount;
+	}
+
+	/**
+	 * Returns a frame encoding the supplied game state: a delta against the previous frame if that encoded the same
+	 * game state object, and a keyframe otherwise. Must be called between two ticks of the game state.
+	 * @inspects | state
+	 * @mutates | this
+	 * @throws IllegalArgumentException if no game state is supplied.
+	 * 	| state == null
+	 * @creates | result
+	 * @post | getFrameCount() == old(getFrameCount()) + 1
+	 */
+	public byte[] encode(BreakoutState state) {
+		if (state == null) {
+			throw new IllegalArgumentException("You have not supplied a valid game state!");
+		}
+		if (state != previous || state.getSimulatedTime() < time) {
+			return encodeKeyframe(state);
+		}
+		out.clear();
+		out.writeByte(DELTA);
+		int elapsed = (int) (state.getSimulatedTime() - time);
+		out.writeUnsigned(elapsed);
+		time = state.getSimulatedTime();
+
+		int newPaddleX = state.paddleCenterX();
+		int newPaddleLifetime = state.paddleLifetime();
+		int flags = (newPaddleX != paddleX ? PADDLE_MOVED : 0) |
+				(newPaddleLifetime != paddleLifetime ? PADDLE_CHANGED : 0) |
+				(state.getBlocksVersion() != blocksVersion ? BLOCKS_CHANGED : 0) |
+				(state.getBallsVersion() != ballsVersion ? BALLS_CHANGED : 0);
+		out.writeUnsigned(flags);
+		if ((flags & PADDLE_MOVED) != 0) {
+			out.writeSigned(newPaddleX - paddleX);
+			paddleX = newPaddleX;
+		}
+		if ((flags & PADDLE_CHANGED) != 0) {
+			out.writeUnsigned(newPaddleLifetime);
+			paddleLifetime = newPaddleLifetime;
+		}
+		if ((flags & BLOCKS_CHANGED) != 0) {
+			encodeBlockChanges(state.blockTable());
+			blocksVersion = state.getBlocksVersion();
+		}
+		encodeBalls(state, elapsed, (flags & BALLS_CHANGED) != 0);
+		ballsVersion = state.getBallsVersion();
+		frameCount++;
+		return out.toByteArray();
+	}
+
+	/**
+	 * Returns a keyframe encoding the full supplied game state, so that the next frames are deltas against it.
+	 * @inspects | state
+	 * @mutates | this
+	 * @throws IllegalArgumentException if no game state is supplied.
+	 * 	| state == null
+	 * @creates | result
+	 * @post | getFrameCount() == old(getFrameCount()) + 1
+	 */
+	public byte[] encodeKeyframe(BreakoutState state) {
+		if (state == null) {
+			throw new IllegalArgumentException("You have not supplied a valid game state!");
+		}
+		out.clear();
+		out.writeByte(KEYFRAME);
+		previous = state;
+		time = state.getSimulatedTime();
+		blocksVersion = state.getBlocksVersion();
+		ballsVersion = state.getBallsVersion();
+		out.writeUnsigned(time);
+		out.writeSigned(state.getBottomRight().getX());
+		out.writeSigned(state.getBottomRight().getY());
+
+		PaddleState paddle = state.getPaddle();
+		paddleX = paddle.getCenter().getX();
+		paddleLifetime = state.paddleLifetime();
+		out.writeSigned(paddleX);
+		out.writeSigned(paddle.getCenter().getY());
+		out.writeSigned(paddle.getSize().getX());
+		out.writeSigned(paddle.getSize().getY());
+		out.writeUnsigned(paddleLifetime);
+
+		BlockTable table = state.blockTable();
+		blockCount = 0;
+		ensureBlockCapacity(table.aliveCount());
+		out.writeUnsigned(table.aliveCount());
+		for (int slot=0; slot<table.slots(); slot++) {
+			if (table.isAlive(slot)) {
+				int k = blockCount++;
+				blockLefts[k] = table.left(slot);
+				blockTops[k] = table.top(slot);
+				blockRights[k] = table.right(slot);
+				blockBottoms[k] = table.bottom(slot);
+				blockTypes[k] = table.type(slot);
+				blockLifetimes[k] = table.lifetime(slot);
+				out.writeSigned(blockLefts[k]);
+				out.writeSigned(blockTops[k]);
+				out.writeSigned(blockRights[k]);
+				out.writeSigned(blockBottoms[k]);
+				out.writeUnsigned(blockTypes[k]);
+				out.writeUnsigned(blockLifetimes[k]);
+			}
+		}
+
+		ballCount = state.ballCount();
+		ensureBallCapacity(ballCount);
+		out.writeUnsigned(ballCount);
+		for (int i=0; i<ballCount; i++) {
+			takeBall(state, i);
+			writeBall(i);
+		}
+		frameCount++;
+		return out.toByteArray();
+	}
+
+	/**
+	 * Writes the blocks that were destroyed or lost some of their lifetime since the previous frame, and removes
+	 * the destroyed ones from the blocks of the previous frame.
+	 *
+	 * The blocks that are not destroyed keep their slot order, so each block of the previous frame is either the
+	 * next block of the table or destroyed.
+	 */
+	private void encodeBlockChanges(BlockTable table) {
+		int changes = 0;
+		int slot = nextAlive(table, 0);
+		for (int k=0; k<blockCount; k++) {
+			if (slot < table.slots() && sameBlock(table, slot, k)) {
+				if (table.lifetime(slot) != blockLifetimes[k]) {
+					changes++;
+				}
+				slot = nextAlive(table, slot + 1);
+			}
+			else {
+				changes++;
+			}
+		}
+		out.writeUnsigned(changes);
+		int kept = 0;
+		int last = 0;
+		slot = nextAlive(table, 0);
+		for (int k=0; k<blockCount; k++) {
+			int lifetime = 0;
+			if (slot < table.slots() && sameBlock(table, slot, k)) {
+				lifetime = table.lifetime(slot);
+				slot = nextAlive(table, slot + 1);
+			}
+			if (lifetime != blockLifetimes[k]) {
+				out.writeUnsigned(k - last);
+				out.writeUnsigned(lifetime);
+				last = k;
+			}
+			if (lifetime > 0) {
+				blockLefts[kept] = blockLefts[k];
+				blockTops[kept] = blockTops[k];
+				blockRights[kept] = blockRights[k];
+				blockBottoms[kept] = blockBottoms[k];
+				blockTypes[kept] = blockTypes[k];
+				blockLifetimes[kept++] = lifetime;
+			}
+		}
+		blockCount = kept;
+	}
+
+	private static int nextAlive(BlockTable table, int slot) {
+		while (slot < table.slots() && !table.isAlive(slot)) {
+			slot++;
+		}
+		return slot;
+	}
+
+	private boolean sameBlock(BlockTable table, int slot, int k) {
+		return table.left(slot) == blockLefts[k] && table.top(slot) == blockTops[k] &&
+				table.right(slot) == blockRights[k] && table.bottom(slot) == blockBottoms[k];
+	}
+
+	/**
+	 * Writes the balls of the supplied game state: if the balls version changed, the reference to the same ball in
+	 * the previous frame or the full new ball for each of them, followed by the balls that deviate from their
+	 * predicted path.
+	 */
+	private void encodeBalls(BreakoutState state, int elapsed, boolean structureChanged) {
+		int newCount = state.ballCount();
+		// The index in the previous frame of each ball, or -1 for new balls
+		int[] sources = null;
+		Ball[] oldRefs = ballRefs;
+		int[] oldXs = ballXs;
+		int[] oldYs = ballYs;
+		int[] oldVxs = ballVxs;
+		int[] oldVys = ballVys;
+		int[] oldLifetimes = ballLifetimes;
+		if (structureChanged) {
+			Map<Ball, Integer> indices = new IdentityHashMap<>(ballCount * 2);
+			for (int i=0; i<ballCount; i++) {
+				indices.put(ballRefs[i], i);
+			}
+			sources = new int[newCount];
+			out.writeUnsigned(newCount);
+			oldRefs = ballRefs.clone();
+			oldXs = ballXs.clone();
+			oldYs = ballYs.clone();
+			oldVxs = ballVxs.clone();
+			oldVys = ballVys.clone();
+			oldLifetimes = ballLifetimes.clone();
+			ensureBallCapacity(newCount);
+			for (int i=0; i<newCount; i++) {
+				Ball ball = state.ballAt(i);
+				Integer source = indices.get(ball);
+				if (source == null || (oldLifetimes[source] < 0) != (ball instanceof NormalBall)) {
+					// New balls, including balls that changed type in place, are written in full
+					sources[i] = -1;
+					out.writeUnsigned(NEW_BALL);
+					takeBall(state, i);
+					writeBall(i);
+				}
+				else {
+					sources[i] = source;
+					out.writeUnsigned(source + 1);
+				}
+			}
+			ballCount = newCount;
+		}
+
+		// Count the balls that deviate from their prediction, then write them
+		int deviating = 0;
+		for (int pass=0; pass<2; pass++) {
+			if (pass == 1) {
+				out.writeUnsigned(deviating);
+			}
+			int last = 0;
+			for (int i=0; i<ballCount; i++) {
+				int source = sources == null ? i : sources[i];
+				if (source < 0) {
+					continue;
+				}
+				Ball ball = state.ballAt(i);
+				int vx = oldVxs[source];
+				int vy = oldVys[source];
+				int x = oldXs[source] + vx * elapsed;
+				int y = oldYs[source] + vy * elapsed;
+				int lifetime = oldLifetimes[source] < 0 ? -1 : oldLifetimes[source] - elapsed;
+				int newLifetime = lifetimeOf(state, i);
+				int mask = (ball.centerX() != x ? X : 0) | (ball.centerY() != y ? Y : 0) | (ball.velX() != vx ? VX : 0) |
+						(ball.velY() != vy ? VY : 0) | (newLifetime != lifetime ? LIFETIME : 0);
+				if (pass == 0) {
+					if (mask != 0) {
+						deviating++;
+					}
+					continue;
+				}
+				if (mask != 0) {
+					out.writeUnsigned(i - last);
+					last = i;
+					out.writeByte(mask);
+					if ((mask & X) != 0) {
+						out.writeSigned(ball.centerX() - x);
+					}
+					if ((mask & Y) != 0) {
+						out.writeSigned(ball.centerY() - y);
+					}
+					if ((mask & VX) != 0) {
+						out.writeSigned(ball.velX() - vx);
+					}
+					if ((mask & VY) != 0) {
+						out.writeSigned(ball.velY() - vy);
+					}
+					if ((mask & LIFETIME) != 0) {
+						out.writeSigned(newLifetime - lifetime);
+					}
+				}
+				takeBall(state, i);
+			}
+		}
+	}
+
+	private void takeBall(BreakoutState state, int i) {
+		Ball ball = state.ballAt(i);
+		ballRefs[i] = ball;
+		ballXs[i] = ball.centerX();
+		ballYs[i] = ball.centerY();
+		ballVxs[i] = ball.velX();
+		ballVys[i] = ball.velY();
+		ballDiameters[i] = ball.diameter;
+		ballLifetimes[i] = lifetimeOf(state, i);
+	}
+
+	/**
+	 * Returns the remaining lifetime of the ball at the supplied index of the supplied game state, or -1 for a
+	 * normal ball.
+	 */
+	private static int lifetimeOf(BreakoutState state, int i) {
+		return state.ballAt(i) instanceof SuperBall ? (int) state.ballLifetime(i) : -1;
+	}
+
+	private void writeBall(int i) {
+		out.writeUnsigned(ballDiameters[i]);
+		out.writeSigned(ballLifetimes[i]);
+		out.writeSigned(ballXs[i]);
+		out.writeSigned(ballYs[i]);
+		out.writeSigned(ballVxs[i]);
+		out.writeSigned(ballVys[i]);
+	}
+
+	private void ensureBallCapacity(int count) {
+		if (ballRefs.length < count) {
+			int capacity = Math.max(count, ballRefs.length * 2);
+			ballRefs = Arrays.copyOf(ballRefs, capacity);
+			ballXs = Arrays.copyOf(ballXs, capacity);
+			ballYs = Arrays.copyOf(ballYs, capacity);
+			ballVxs = Arrays.copyOf(ballVxs, capacity);
+			ballVys = Arrays.copyOf(ballVys, capacity);
+			ballDiameters = Arrays.copyOf(ballDiameters, capacity);
+			ballLifetimes = Arrays.copyOf(ballLifetimes, capacity);
+		}
+	}
+
+	private void ensureBlockCapacity(int count) {
+		if (blockLefts.length < count) {
+			blockLefts = new int[count];
+			blockTops = new int[count];
+			blockRights = new int[count];
+			blockBottoms = new int[count];
+			blockTypes = new int[count];
+			blockLifetimes = new int[count];
+		}
+	}
+}
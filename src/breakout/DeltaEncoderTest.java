@@ -0,0 +1,127 @@
+package breakout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import breakout.gui.BreakoutApplication;
+
+class DeltaEncoderTest {
+
+	DeltaEncoder encoder = new DeltaEncoder();
+	DeltaDecoder decoder = new DeltaDecoder();
+
+	/**
+	 * Asserts that the supplied decoded game state has the same balls, in the same order, blocks and paddle as the
+	 * supplied original one.
+	 */
+	static void assertSameState(BreakoutState expected, BreakoutState actual) {
+		assertEquals(expected.stateHash(), actual.stateHash());
+		Ball[] expectedBalls = expected.getBalls();
+		Ball[] actualBalls = actual.getBalls();
+		assertEquals(expectedBalls.length, actualBalls.length);
+		for (int i=0; i<expectedBalls.length; i++) {
+			assertEquals(expectedBalls[i].getCenter(), actualBalls[i].getCenter());
+			assertEquals(expectedBalls[i].getVelocity(), actualBalls[i].getVelocity());
+			assertEquals(expectedBalls[i].getDiameter(), actualBalls[i].getDiameter());
+			assertEquals(expectedBalls[i].getClass(), actualBalls[i].getClass());
+			if (expectedBalls[i] instanceof SuperBall superBall) {
+				assertEquals(superBall.getLifetime(), ((SuperBall) actualBalls[i]).getLifetime());
+			}
+		}
+		BlockState[] expectedBlocks = expected.getBlocks();
+		BlockState[] actualBlocks = actual.getBlocks();
+		assertEquals(expectedBlocks.length, actualBlocks.length);
+		for (int k=0; k<expectedBlocks.length; k++) {
+			assertEquals(StateHash.of(expectedBlocks[k]), StateHash.of(actualBlocks[k]));
+		}
+		assertEquals(StateHash.of(expected.getPaddle()), StateHash.of(actual.getPaddle()));
+		assertEquals(expected.getBottomRight(), actual.getBottomRight());
+	}
+
+	@Test
+	void testRoundTrip() {
+		// a game played through powerups, replications, sturdy hits and lost balls is rebuilt after every tick
+		BreakoutState state = GameMap.createStateFromDescription(BreakoutApplication.initMap);
+		decoder.decode(encoder.encode(state));
+		assertSameState(state, decoder.toState());
+		for (int t=0; t<3000 && !state.isDead(); t++) {
+			int paddleDir = Integer.signum(state.ballCenterX(0) - state.getPaddle().getCenter().getX());
+			state.step(paddleDir, 10);
+			byte[] frame = encoder.encode(state);
+			assertEquals(DeltaEncoder.DELTA, frame[0]);
+			decoder.decode(frame);
+			assertEquals(state.getSimulatedTime(), decoder.getSimulatedTime());
+			assertSameState(state, decoder.toState());
+		}
+		assertEquals(encoder.getFrameCount(), decoder.getFrameCount());
+
+		// encoding another game state starts over with a keyframe
+		BreakoutState other = state.copy();
+		byte[] keyframe = encoder.encode(other);
+		assertEquals(DeltaEncoder.KEYFRAME, keyframe[0]);
+		decoder.decode(keyframe);
+		assertSameState(other, decoder.toState());
+	}
+
+	@Test
+	void testManyBalls() {
+		// many reordered balls bouncing between the blocks and the paddle, with deltas far smaller than keyframes
+		BreakoutState map = GameMap.createStateFromDescription(BreakoutApplication.initMap);
+		int width = map.getBottomRight().getX();
+		int blocksBottom = Stream.of(map.getBlocks()).mapToInt(e -> e.getBottomRight().getY()).max().getAsInt();
+		Random random = new Random(5);
+		Ball[] balls = new Ball[500];
+		for (int i=0; i<balls.length; i++) {
+			Point center = new Point(500 + random.nextInt(width - 1000),
+					blocksBottom + 500 + random.nextInt(map.paddleTop() - blocksBottom - 1000));
+			Vector velocity = new Vector(random.nextInt(11) - 5, random.nextBoolean() ? 6 : -6);
+			balls[i] = i % 5 == 0 ? new SuperBall(center, 400, velocity, Ball.MAX_LIFETIME)
+					: new NormalBall(center, 400, velocity);
+		}
+		BreakoutState state = new BreakoutState(balls, map.getBlocks(), map.getBottomRight(), map.getPaddle());
+		state.setBallReorderInterval(7);
+		int keyframeSize = encoder.encode(state).length;
+		decoder.decode(encoder.encodeKeyframe(state));
+		long deltaSize = 0;
+		int ticks = 300;
+		for (int t=0; t<ticks; t++) {
+			state.step(random.nextInt(3) - 1, 1 + random.nextInt(BreakoutState.MAX_ELAPSED_TIME));
+			byte[] frame = encoder.encode(state);
+			deltaSize += frame.length;
+			decoder.decode(frame);
+			assertSameState(state, decoder.toState());
+		}
+		assertTrue(deltaSize / ticks < keyframeSize / 4);
+	}
+
+	@Test
+	void testMalformed() {
+		BreakoutState state = GameMap.createStateFromDescription(BreakoutApplication.initMap);
+		byte[] keyframe = encoder.encode(state);
+		state.tick(0, 10);
+		byte[] delta = encoder.encode(state);
+		assertThrows(IllegalArgumentException.class, () -> decoder.decode(delta));
+		assertThrows(IllegalStateException.class, () -> decoder.toState());
+		assertThrows(IllegalArgumentException.class, () -> decoder.decode(new byte[] {7}));
+		assertThrows(IllegalArgumentException.class, () -> decoder.decode(
+				Arrays.copyOf(keyframe, keyframe.length - 1)));
+		assertThrows(IllegalArgumentException.class, () -> decoder.decode(null));
+		assertThrows(IllegalArgumentException.class, () -> encoder.encode(null));
+
+		// a malformed delta is not applied at all, so that the intact one still decodes to the right state
+		decoder.decode(keyframe);
+		for (int length=1; length<delta.length; length++) {
+			byte[] truncated = Arrays.copyOf(delta, length);
+			assertThrows(IllegalArgumentException.class, () -> decoder.decode(truncated));
+		}
+		assertThrows(IllegalArgumentException.class, () -> decoder.decode(Arrays.copyOf(delta, delta.length + 1)));
+		assertEquals(0, decoder.getSimulatedTime());
+		decoder.decode(delta);
+		assertSameState(state, decoder.toState());
+	}
+}
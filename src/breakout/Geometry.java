@@ -0,0 +1,134 @@
+package breakout;
+
+/**
+ * This class offers the geometry of Point, Vector and Rect as static methods on primitive values, so that the physics
+ * of the game does not allocate an object for every intermediate result.
+ *
+ * Points and vectors are packed into a single long, holding the X coordinate in the upper and the Y coordinate in the
+ * lower 32 bits. Rectangles are passed as their left, top, right and bottom coordinates. All arithmetic wraps around
+ * as the int arithmetic of Point and Vector does.
+ */
+public final class Geometry {
+
+	// The faces at which a rectangle overlaps another, as returned by overlap, indexing NORMALS
+	public static final int NO_FACE = -1;
+	public static final int RIGHT = 0;
+	public static final int LEFT = 1;
+	public static final int DOWN = 2;
+	public static final int UP = 3;
+
+	private static final long[] NORMALS = {pack(1,0), pack(-1,0), pack(0,1), pack(0,-1)};
+
+	private Geometry() {
+		throw new AssertionError("This class is not intended to be instantiated");
+	}
+
+	/**
+	 * Returns the point or vector with the supplied coordinates, packed into a long.
+	 * @post | x(result) == x && y(result) == y
+	 */
+	public static long pack(int x, int y) {
+		return ((long) x << 32) | (y & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the X coordinate of the supplied packed point or vector.
+	 */
+	public static int x(long packed) {
+		return (int) (packed >> 32);
+	}
+
+	/**
+	 * Returns the Y coordinate of the supplied packed point or vector.
+	 */
+	public static int y(long packed) {
+		return (int) packed;
+	}
+
+	/**
+	 * Returns the packed point or vector moved by the supplied packed vector, as Point.plus and Vector.plus.
+	 * @post | x(result) == x(p) + x(v) && y(result) == y(p) + y(v)
+	 */
+	public static long plus(long p, long v) {
+		return pack(x(p) + x(v), y(p) + y(v));
+	}
+
+	/**
+	 * Returns the packed point or vector moved by the opposite of the supplied packed vector, as Point.minus and
+	 * Vector.minus.
+	 * @post | x(result) == x(p) - x(v) && y(result) == y(p) - y(v)
+	 */
+	public static long minus(long p, long v) {
+		return pack(x(p) - x(v), y(p) - y(v));
+	}
+
+	/**
+	 * Returns the supplied packed vector scaled by the supplied factor, as Vector.scaled.
+	 * @post | x(result) == x(v) * factor && y(result) == y(v) * factor
+	 */
+	public static long scaled(long v, int factor) {
+		return pack(x(v) * factor, y(v) * factor);
+	}
+
+	/**
+	 * Returns the dot product of the supplied packed vectors, as Vector.product.
+	 * @post | result == x(v) * x(w) + y(v) * y(w)
+	 */
+	public static int dot(long v, long w) {
+		return x(v) * x(w) + y(v) * y(w);
+	}
+
+	/**
+	 * Returns the supplied packed vector mirrored over the supplied packed unit vector, as Vector.mirrorOver.
+	 * @post | result == minus(v, scaled(m, 2*dot(v, m)))
+	 */
+	public static long mirror(long v, long m) {
+		return minus(v, scaled(m, 2*dot(v, m)));
+	}
+
+	/**
+	 * Returns the packed normal unit vector of the supplied face.
+	 * @pre | RIGHT <= face && face <= UP
+	 */
+	public static long normal(int face) {
+		return NORMALS[face];
+	}
+
+	/**
+	 * Returns the face at which the first supplied rectangle overlaps the second one, or NO_FACE if it does not, as
+	 * Rect.overlap returns the normal vector of that face.
+	 */
+	public static int overlap(int left, int top, int right, int bottom, int otherLeft, int otherTop, int otherRight,
+			int otherBottom) {
+		int centerX = left + (right - left)/2;
+		int centerY = top + (bottom - top)/2;
+		if (centerY >= otherTop && centerY <= otherBottom) {
+			if (right >= otherLeft && left < otherLeft) {
+				return RIGHT;
+			}
+			if (left <= otherRight && right > otherRight) {
+				return LEFT;
+			}
+		}
+		if (centerX >= otherLeft && centerX <= otherRight) {
+			if (bottom >= otherTop && top < otherTop) {
+				return DOWN;
+			}
+			if (top <= otherBottom && bottom > otherBottom) {
+				return UP;
+			}
+		}
+		return NO_FACE;
+	}
+
+	/**
+	 * Returns whether the supplied rectangle contains the supplied packed point, including its border, as
+	 * Rect.contains.
+	 * @post | result == (left <= x(p) && x(p) <= right && top <= y(p) && y(p) <= bottom)
+	 */
+	public static boolean contains(int left, int top, int right, int bottom, long p) {
+		int x = x(p);
+		int y = y(p);
+		return left <= x && x <= right && top <= y && y <= bottom;
+	}
+}
@@ -0,0 +1,113 @@
+package breakout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class GeometryTest {
+
+	Random random = new Random(13);
+	Vector[] normals = {Vector.RIGHT, Vector.LEFT, Vector.DOWN, Vector.UP};
+
+	int coordinate() {
+		return random.nextInt(2001) - 1000;
+	}
+
+	@Test
+	void testPack() {
+		int[] values = {0, 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, 12345, -54321};
+		for (int x : values) {
+			for (int y : values) {
+				long packed = Geometry.pack(x, y);
+				assertEquals(x, Geometry.x(packed));
+				assertEquals(y, Geometry.y(packed));
+			}
+		}
+	}
+
+	@Test
+	void testArithmetic() {
+		// the packed operations match those of Point and Vector, including around the int range
+		for (int i=0; i<10000; i++) {
+			int px = i % 100 == 0 ? Integer.MAX_VALUE - random.nextInt(10) : coordinate();
+			Point p = new Point(px, coordinate());
+			Vector v = new Vector(coordinate(), coordinate());
+			Vector m = normals[random.nextInt(4)];
+			int factor = random.nextInt(101) - 50;
+			long packedP = Geometry.pack(p.getX(), p.getY());
+			long packedV = Geometry.pack(v.getX(), v.getY());
+			long packedM = Geometry.pack(m.getX(), m.getY());
+			assertEquals(p.plus(v), point(Geometry.plus(packedP, packedV)));
+			assertEquals(p.minus(v), point(Geometry.minus(packedP, packedV)));
+			assertEquals(v.scaled(factor), vector(Geometry.scaled(packedV, factor)));
+			assertEquals(v.product(m), Geometry.dot(packedV, packedM));
+			assertEquals(v.mirrorOver(m), vector(Geometry.mirror(packedV, packedM)));
+		}
+		for (int face=Geometry.RIGHT; face<=Geometry.UP; face++) {
+			assertEquals(normals[face], vector(Geometry.normal(face)));
+		}
+	}
+
+	@Test
+	void testRectangles() {
+		// overlap and contains match Rect.overlap and Rect.contains
+		for (int i=0; i<10000; i++) {
+			int x = random.nextInt(200);
+			int y = random.nextInt(200);
+			Rect rect = new Rect(new Point(x, y), new Point(x + random.nextInt(80), y + random.nextInt(80)));
+			int bx = random.nextInt(300);
+			int by = random.nextInt(300);
+			int radius = random.nextInt(30);
+			Rect ball = new Rect(new Point(bx - radius, by - radius), new Point(bx + radius, by + radius));
+			int face = Geometry.overlap(bx - radius, by - radius, bx + radius, by + radius, x, y,
+					rect.getBottomRight().getX(), rect.getBottomRight().getY());
+			assertEquals(ball.overlap(rect), face == Geometry.NO_FACE ? null : normals[face]);
+			assertEquals(rect.contains(new Point(bx, by)), Geometry.contains(x, y, rect.getBottomRight().getX(),
+					rect.getBottomRight().getY(), Geometry.pack(bx, by)));
+		}
+	}
+
+	@Test
+	void testBallPhysics() {
+		// rolling, bouncing and hitting blocks give the same results as the object API
+		for (int i=0; i<2000; i++) {
+			Point center = new Point(random.nextInt(300), random.nextInt(300));
+			Vector velocity = new Vector(random.nextInt(11) - 5, random.nextBoolean() ? 3 : -3);
+			int diameter = 2 + random.nextInt(40);
+			Ball ball = random.nextBoolean() ? new NormalBall(center, diameter, velocity)
+					: new SuperBall(center, diameter, velocity, Ball.MAX_LIFETIME);
+			int elapsed = 1 + random.nextInt(20);
+			ball.roll(elapsed);
+			Point rolled = center.plus(velocity.scaled(elapsed));
+			assertEquals(rolled, ball.getCenter());
+			Vector m = normals[random.nextInt(4)];
+			ball.bounce(m);
+			Vector bounced = velocity.mirrorOver(m);
+			assertEquals(bounced, ball.getVelocity());
+
+			int x = random.nextInt(250);
+			int y = random.nextInt(250);
+			Point tl = new Point(x, y);
+			Point br = new Point(x + 1 + random.nextInt(80), y + 1 + random.nextInt(80));
+			BlockState block = random.nextBoolean() ? new NormalBlockState(tl, br) : new SturdyBlockState(tl, br, 2);
+			Vector face = new Rect(rolled.minus(new Vector(diameter/2, diameter/2)),
+					rolled.plus(new Vector(diameter/2, diameter/2))).overlap(new Rect(tl, br));
+			boolean hit = face != null && face.product(bounced) > 0;
+			boolean destroyed = hit && block instanceof NormalBlockState;
+			Vector expected = hit && !(destroyed && ball instanceof SuperBall) ? bounced.mirrorOver(face) : bounced;
+			ballBlockHitResults results = block.hitBy(ball, new NormalPaddleState(new Point(0,0), new Vector(1,1)));
+			assertEquals(destroyed, results.destroyed);
+			assertEquals(expected, results.ball.getVelocity());
+		}
+	}
+
+	static Point point(long packed) {
+		return new Point(Geometry.x(packed), Geometry.y(packed));
+	}
+
+	static Vector vector(long packed) {
+		return new Vector(Geometry.x(packed), Geometry.y(packed));
+	}
+}
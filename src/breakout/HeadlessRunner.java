@@ -0,0 +1,81 @@
+package breakout;
+
+import breakout.gui.BreakoutApplication;
+
+/**
+ * Runs breakout games without a graphical user interface, with the paddle being moved by a PaddleController,
+ * e.g. to generate load or to test the balance of a map.
+ */
+public class HeadlessRunner {
+	
+	// The simulated time in ms between two game ticks
+	public static final int TICK_MILLIS = 20;
+	
+	private HeadlessRunner() {
+		throw new AssertionError("This class is not intended to be instantiated");
+	}
+	
+	/**
+	 * Plays the supplied game state with the supplied controller until the game is won or lost, or until the
+	 * supplied maximum number of ticks has been performed, and returns the number of ticks performed.
+	 * @mutates | state
+	 * @pre | state != null
+	 * @pre | controller != null
+	 * @pre | elapsedTime > 0 && elapsedTime <= BreakoutState.MAX_ELAPSED_TIME
+	 * @pre | maxTicks >= 0
+	 * @post | result >= 0 && result <= maxTicks
+	 */
+	public static int run(BreakoutState state, PaddleController controller, int elapsedTime, int maxTicks) {
+		int ticks = 0;
+		while (ticks < maxTicks && !(state.isDead()) && !(state.isWon())) {
+			state.step(controller.decide(state, elapsedTime), elapsedTime);
+			ticks++;
+		}
+		return ticks;
+	}
+	
+	/**
+	 * Plays the supplied game state like run(state, controller, elapsedTime, maxTicks), but performs the iterations
+	 * through the supplied governor, which keeps the game within its limits.
+	 * @mutates | state, governor
+	 * @pre | state != null
+	 * @pre | controller != null
+	 * @pre | governor != null
+	 * @pre | elapsedTime > 0 && elapsedTime <= BreakoutState.MAX_ELAPSED_TIME
+	 * @pre | maxTicks >= 0
+	 * @post | result >= 0 && result <= maxTicks
+	 */
+	public static int run(BreakoutState state, PaddleController controller, TickGovernor governor, int elapsedTime,
+			int maxTicks) {
+		int ticks = 0;
+		while (ticks < maxTicks && !(state.isDead()) && !(state.isWon())) {
+			governor.step(state, controller.decide(state, elapsedTime), elapsedTime);
+			ticks++;
+		}
+		return ticks;
+	}
+	
+	/**
+	 * Plays the default map with a Monte Carlo autopilot and reports the outcome and the rollout throughput.
+	 * Arguments (all optional): maximum number of ticks, time budget per decision in ms, number of threads.
+	 */
+	public static void main(String[] args) {
+		int maxTicks = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+		int budgetMillis = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		
+		BreakoutState state = GameMap.createStateFromDescription(BreakoutApplication.initMap);
+		int blocksBefore = state.getBlocks().length;
+		try (MonteCarloAutopilot autopilot = new MonteCarloAutopilot(budgetMillis, MonteCarloAutopilot.DEFAULT_HORIZON,
+				threads)) {
+			int ticks = run(state, autopilot, TICK_MILLIS, maxTicks);
+			String outcome = state.isWon() ? "won" : (state.isDead() ? "lost" : "running");
+			System.out.printf("%s after %d ticks, %d/%d blocks destroyed, %d balls left%n", outcome, ticks,
+					blocksBefore - state.getBlocks().length, blocksBefore, state.getBalls().length);
+			System.out.printf("%d threads: %d rollouts, %.0f rollouts/s%n", threads, autopilot.getTotalRollouts(),
+					autopilot.getRolloutsPerSecond());
+			System.out.printf("%d overlap tests, contact hit rate %.3f, %d block phases skipped%n",
+					state.getOverlapTests(), state.getContactHitRate(), state.getSkippedBlockPhases());
+		}
+	}
+}
@@ -0,0 +1,307 @@
+package breakout;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Each instance of this class represents a paddle controller that plays the breakout game by means of Monte Carlo
+ * rollouts: for every decision, it simulates many random continuations of copies of the current game state
+ * for each possible paddle direction, and picks the direction leading to the best average outcome.
+ * 
+ * The rollouts are run in parallel on a work-stealing pool, until the time budget per decision runs out. An
+ * asynchronous autopilot does not make its caller wait for that: it decides in the background on a copy of the game
+ * state, and returns the latest decision it completed instead.
+ * 
+ * @invar | getBudgetMillis() > 0
+ * @invar | getHorizon() > 0
+ * @invar | getParallelism() > 0
+ * @invar | getTotalRollouts() >= 0
+ */
+public class MonteCarloAutopilot implements PaddleController, AutoCloseable {
+	
+	// The default number of ticks simulated per rollout, i.e. about one round trip of a ball
+	public static final int DEFAULT_HORIZON = 200;
+	
+	// The possible paddle directions
+	private static final int[] DIRECTIONS = {-1, 0, 1};
+	// The number of rollouts below which a batch is not split any further
+	private static final int LEAF_ROLLOUTS = 4;
+	// The number of consecutive ticks a random rollout keeps the same paddle direction
+	private static final int RANDOM_HOLD_TICKS = 10;
+	
+	// Rollout scores
+	private static final long BLOCK_SCORE = 10;
+	private static final long BALL_SCORE = 50;
+	private static final long WIN_SCORE = 1000;
+	private static final long DEATH_PENALTY = 1000;
+	
+	/**
+	 * @invar | budgetNanos > 0
+	 * @invar | horizon > 0
+	 * @invar | pool != null
+	 * @invar | totalRollouts >= 0
+	 * @invar | totalNanos >= 0
+	 */
+	private final long budgetNanos;
+	private final int horizon;
+	private final ForkJoinPool pool;
+	private final SplittableRandom seeds;
+	
+	private long totalRollouts;
+	private long totalNanos;
+	private long lastRollouts;
+	
+	// Whether decisions are made in the background, the decision being made, or null, and the latest one made
+	private boolean asynchronous;
+	private ForkJoinTask<Integer> pending;
+	private int latestDirection;
+	
+	/**
+	 * Returns a Monte Carlo autopilot that spends the supplied time budget on every decision, simulates the supplied
+	 * number of ticks per rollout and runs its rollouts on the supplied number of threads.
+	 * @throws IllegalArgumentException if the time budget, the horizon or the parallelism is not positive.
+	 * 	| budgetMillis <= 0 || horizon <= 0 || parallelism <= 0
+	 * @post | getBudgetMillis() == budgetMillis
+	 * @post | getHorizon() == horizon
+	 * @post | getParallelism() == parallelism
+	 * @post | getTotalRollouts() == 0
+	 */
+	public MonteCarloAutopilot(int budgetMillis, int horizon, int parallelism) {
+		if (budgetMillis <= 0 || horizon <= 0 || parallelism <= 0) {
+			throw new IllegalArgumentException("You have supplied an invalid autopilot configuration!");
+		}
+		this.budgetNanos = budgetMillis * 1_000_000L;
+		this.horizon = horizon;
+		this.pool = new ForkJoinPool(parallelism);
+		this.seeds = new SplittableRandom();
+	}
+	
+	/**
+	 * Returns a Monte Carlo autopilot with the supplied time budget per decision, the default horizon and
+	 * one thread per available processor.
+	 */
+	public MonteCarloAutopilot(int budgetMillis) {
+		this(budgetMillis, DEFAULT_HORIZON, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Returns the time budget in ms spent on every decision.
+	 */
+	public int getBudgetMillis() {
+		return (int) (budgetNanos / 1_000_000L);
+	}
+	
+	/**
+	 * Returns the number of ticks simulated per rollout.
+	 */
+	public int getHorizon() {
+		return horizon;
+	}
+	
+	/**
+	 * Returns the number of threads running the rollouts.
+	 */
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+	
+	/**
+	 * Returns the total number of rollouts performed so far.
+	 */
+	public synchronized long getTotalRollouts() {
+		return totalRollouts;
+	}
+	
+	/**
+	 * Returns the number of rollouts performed for the latest decision.
+	 */
+	public synchronized long getLastRollouts() {
+		return lastRollouts;
+	}
+	
+	/**
+	 * Returns the average number of rollouts performed per second of decision time, or 0 if no decision was made yet.
+	 */
+	public synchronized double getRolloutsPerSecond() {
+		if (totalNanos == 0) {
+			return 0;
+		}
+		return totalRollouts * 1e9 / totalNanos;
+	}
+	
+	/**
+	 * Returns whether this autopilot decides in the background instead of making its caller wait.
+	 */
+	public boolean isAsynchronous() {
+		return asynchronous;
+	}
+	
+	/**
+	 * Makes this autopilot decide in the background, or on the calling thread if false is supplied. An asynchronous
+	 * autopilot returns from decide at once with the latest decision it completed, which was made for the game
+	 * state supplied to an earlier call, or 0 while it has not completed one yet, and starts a new decision on a copy
+	 * of the supplied game state unless one is still being made. This suits a caller that must not block, such as
+	 * the thread painting the game.
+	 * @mutates | this
+	 * @post | isAsynchronous() == asynchronous
+	 */
+	public void setAsynchronous(boolean asynchronous) {
+		this.asynchronous = asynchronous;
+	}
+	
+	public int decide(BreakoutState state, int elapsedTime) {
+		if (savableBalls(state) == 0 || state.isWon()) {
+			return 0;
+		}
+		// The rollouts copy the root concurrently, so they get a private copy the game loop cannot touch meanwhile
+		if (!asynchronous) {
+			return decideOn(state.copy(), elapsedTime);
+		}
+		if (pending == null || pending.isDone()) {
+			if (pending != null) {
+				latestDirection = pending.join();
+			}
+			BreakoutState root = state.copy();
+			pending = pool.submit(() -> decideOn(root, elapsedTime));
+		}
+		return latestDirection;
+	}
+	
+	/**
+	 * Returns the direction leading to the best average outcome of the rollouts from the supplied game state, which
+	 * is not modified by anyone else meanwhile.
+	 */
+	private int decideOn(BreakoutState root, int elapsedTime) {
+		long start = System.nanoTime();
+		long deadline = start + budgetNanos;
+		long[] stats = new long[2*DIRECTIONS.length];
+		do {
+			long[] batch = pool.invoke(new RolloutBatch(root, elapsedTime, 0, 4*LEAF_ROLLOUTS*getParallelism(),
+					deadline, seeds.nextLong()));
+			for (int i=0; i<stats.length; i++) {
+				stats[i] += batch[i];
+			}
+		} while (System.nanoTime() < deadline);
+		long elapsed = System.nanoTime() - start;
+		
+		// Pick the direction with the best average score
+		int best = 1;
+		double bestScore = Double.NEGATIVE_INFINITY;
+		long rollouts = 0;
+		for (int d=0; d<DIRECTIONS.length; d++) {
+			long count = stats[2*d+1];
+			rollouts += count;
+			if (count > 0 && (double) stats[2*d] / count > bestScore) {
+				bestScore = (double) stats[2*d] / count;
+				best = d;
+			}
+		}
+		synchronized (this) {
+			totalRollouts += rollouts;
+			totalNanos += elapsed;
+			lastRollouts = rollouts;
+		}
+		return DIRECTIONS[best];
+	}
+	
+	/**
+	 * Shuts down the threads running the rollouts of this autopilot, once the decision being made, if any, is
+	 * complete.
+	 */
+	public void close() {
+		pool.shutdown();
+	}
+	
+	/**
+	 * Returns the score of a random continuation of a copy of the supplied game state, of which the first tick
+	 * moves the paddle in the supplied direction.
+	 */
+	private long rollout(BreakoutState root, int firstDir, int elapsedTime, SplittableRandom random) {
+		BreakoutState state = root.copy();
+		int blocksBefore = root.blockCount();
+		// Keep the first direction for a random number of ticks, so that all reachable paddle positions get explored
+		int firstTicks = 1 + random.nextInt(horizon);
+		int paddleDir = firstDir;
+		int t = 0;
+		int balls = savableBalls(state);
+		for (; t<horizon && balls > 0 && !(state.isWon()); t++) {
+			if (t >= firstTicks && (t - firstTicks) % RANDOM_HOLD_TICKS == 0) {
+				paddleDir = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+			}
+			state.step(paddleDir, elapsedTime);
+			balls = savableBalls(state);
+		}
+		long score = BLOCK_SCORE * (blocksBefore - state.blockCount()) + BALL_SCORE * balls;
+		if (state.isWon()) {
+			score += WIN_SCORE;
+		}
+		if (balls == 0) {
+			// Losing early is worse than losing late
+			score -= DEATH_PENALTY * (2*horizon - t) / horizon;
+		}
+		return score;
+	}
+	
+	/**
+	 * Returns the number of balls of the supplied game state that have not yet passed the top of the paddle,
+	 * i.e. the balls that can still be kept in play.
+	 */
+	private static int savableBalls(BreakoutState state) {
+		int paddleTop = state.paddleTop();
+		int count = 0;
+		for (int i=0; i<state.ballCount(); i++) {
+			if (state.ballCenterY(i) < paddleTop) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Each instance of this class represents a batch of rollouts, which is split recursively so that idle threads
+	 * can steal parts of it. Its result holds, per direction, the sum of the scores and the number of rollouts.
+	 */
+	@SuppressWarnings("serial")
+	private class RolloutBatch extends RecursiveTask<long[]> {
+		private final BreakoutState root;
+		private final int elapsedTime;
+		private final int from;
+		private final int to;
+		private final long deadline;
+		private final long seed;
+		
+		RolloutBatch(BreakoutState root, int elapsedTime, int from, int to, long deadline, long seed) {
+			this.root = root;
+			this.elapsedTime = elapsedTime;
+			this.from = from;
+			this.to = to;
+			this.deadline = deadline;
+			this.seed = seed;
+		}
+		
+		@Override
+		protected long[] compute() {
+			if (to - from > LEAF_ROLLOUTS) {
+				int mid = (from + to) >>> 1;
+				RolloutBatch left = new RolloutBatch(root, elapsedTime, from, mid, deadline, seed);
+				left.fork();
+				long[] result = new RolloutBatch(root, elapsedTime, mid, to, deadline, seed).compute();
+				long[] other = left.join();
+				for (int i=0; i<result.length; i++) {
+					result[i] += other[i];
+				}
+				return result;
+			}
+			long[] result = new long[2*DIRECTIONS.length];
+			SplittableRandom random = new SplittableRandom(seed + from);
+			for (int r=from; r<to && System.nanoTime() < deadline; r++) {
+				int d = r % DIRECTIONS.length;
+				result[2*d] += rollout(root, DIRECTIONS[d], elapsedTime, random);
+				result[2*d+1]++;
+			}
+			return result;
+		}
+	}
+}
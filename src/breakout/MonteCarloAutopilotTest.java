@@ -0,0 +1,67 @@
+package breakout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class MonteCarloAutopilotTest {
+	
+	BreakoutFacade facade = new BreakoutFacade();
+	Point bottomRight = new Point(50000, 30000);
+	BlockState[] blocks = {facade.createNormalBlockState(new Point(1000, 1000), new Point(5000, 3000))};
+	
+	@Test
+	void testConstr() {
+		assertThrows(IllegalArgumentException.class, () -> new MonteCarloAutopilot(0, 10, 1));
+		assertThrows(IllegalArgumentException.class, () -> new MonteCarloAutopilot(1, 0, 1));
+		assertThrows(IllegalArgumentException.class, () -> new MonteCarloAutopilot(1, 10, 0));
+		try (MonteCarloAutopilot autopilot = new MonteCarloAutopilot(5, 50, 2)) {
+			assertEquals(5, autopilot.getBudgetMillis());
+			assertEquals(50, autopilot.getHorizon());
+			assertEquals(2, autopilot.getParallelism());
+			assertEquals(0, autopilot.getTotalRollouts());
+			assertEquals(0, autopilot.getRolloutsPerSecond());
+		}
+	}
+	
+	@Test
+	void testDecide() {
+		// The ball falls far to the right of the paddle, so the paddle should move right
+		Ball[] balls = {facade.createNormalBall(new Point(36000, 10000), 700, new Vector(0, 5))};
+		PaddleState paddle = facade.createNormalPaddleState(new Point(25000, 24000));
+		BreakoutState state = facade.createBreakoutState(balls, blocks, bottomRight, paddle);
+		long hash = state.stateHash();
+		try (MonteCarloAutopilot autopilot = new MonteCarloAutopilot(300, 150, 2)) {
+			assertEquals(1, autopilot.decide(state, 20));
+			assertTrue(autopilot.getLastRollouts() > 0);
+			assertEquals(autopilot.getLastRollouts(), autopilot.getTotalRollouts());
+			assertTrue(autopilot.getRolloutsPerSecond() > 0);
+		}
+		// The rollouts do not affect the game state itself
+		assertEquals(hash, state.stateHash());
+	}
+	
+	@Test
+	void testAsynchronous() throws InterruptedException {
+		Ball[] balls = {facade.createNormalBall(new Point(36000, 10000), 700, new Vector(0, 5))};
+		PaddleState paddle = facade.createNormalPaddleState(new Point(25000, 24000));
+		BreakoutState state = facade.createBreakoutState(balls, blocks, bottomRight, paddle);
+		long hash = state.stateHash();
+		try (MonteCarloAutopilot autopilot = new MonteCarloAutopilot(300, 150, 2)) {
+			assertFalse(autopilot.isAsynchronous());
+			autopilot.setAsynchronous(true);
+			assertTrue(autopilot.isAsynchronous());
+			
+			// The first call only starts deciding, and later ones return the decision once it is complete
+			assertEquals(0, autopilot.decide(state, 20));
+			int direction = 0;
+			for (int i=0; i<500 && direction == 0; i++) {
+				Thread.sleep(10);
+				direction = autopilot.decide(state, 20);
+			}
+			assertEquals(1, direction);
+			assertTrue(autopilot.getTotalRollouts() > 0);
+		}
+		assertEquals(hash, state.stateHash());
+	}
+}
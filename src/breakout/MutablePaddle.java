@@ -0,0 +1,178 @@
+package breakout;
+
+/**
+ * Each instance of this class represents the paddle of a breakout game state, stored in primitive fields that are
+ * updated in place as the paddle moves, hits balls or is powered up.
+ *
+ * The immutable PaddleState object of the existing API is a view on the paddle, which is only created when asked for
+ * and reused until the paddle changes.
+ *
+ * @invar | getType() == NORMAL || getType() == REPLICATOR
+ * @invar | getType() == NORMAL ? getLifetime() == 0 : 1 <= getLifetime() && getLifetime() <= 3
+ */
+final class MutablePaddle {
+
+	// The type tags of the paddles, as used by StateHash
+	static final int NORMAL = 0;
+	static final int REPLICATOR = 1;
+
+	private int centerX;
+	private int centerY;
+	private int halfWidth;
+	private int halfHeight;
+	private int type;
+	// The remaining lifetime in number of hits of a replicator paddle, or 0 for a normal paddle
+	private int lifetime;
+	// The view handed out since the latest change of the paddle, if any
+	private PaddleState view;
+
+	/**
+	 * Returns a mutable paddle matching the supplied paddle, which serves as its initial view.
+	 * @pre | paddle != null
+	 * @post | view() == paddle
+	 */
+	MutablePaddle(PaddleState paddle) {
+		Point center = paddle.getCenter();
+		Vector size = paddle.getSize();
+		centerX = center.getX();
+		centerY = center.getY();
+		halfWidth = size.getX();
+		halfHeight = size.getY();
+		if (paddle instanceof ReplicatorPaddleState replicator) {
+			type = REPLICATOR;
+			lifetime = replicator.getLifetime();
+		}
+		view = paddle;
+	}
+
+	/**
+	 * Returns an independent copy of the supplied paddle.
+	 * @pre | other != null
+	 */
+	MutablePaddle(MutablePaddle other) {
+		centerX = other.centerX;
+		centerY = other.centerY;
+		halfWidth = other.halfWidth;
+		halfHeight = other.halfHeight;
+		type = other.type;
+		lifetime = other.lifetime;
+		view = other.view;
+	}
+
+	int getType() {
+		return type;
+	}
+
+	int getLifetime() {
+		return lifetime;
+	}
+
+	int centerX() {
+		return centerX;
+	}
+
+	int centerY() {
+		return centerY;
+	}
+
+	int top() {
+		return centerY - halfHeight;
+	}
+
+	/**
+	 * Returns the hash key of this paddle, as StateHash.of would for its view.
+	 */
+	long key() {
+		return StateHash.paddle(centerX, centerY, type, lifetime);
+	}
+
+	/**
+	 * Moves this paddle horizontally by the supplied distance, unless that would move it beyond the supplied
+	 * horizontal bounds, and returns whether it moved.
+	 * @mutates | this
+	 */
+	boolean moveBy(int dx, int minX, int maxX) {
+		int newX = centerX + dx;
+		if (dx == 0 || newX - halfWidth < minX || newX + halfWidth > maxX) {
+			return false;
+		}
+		centerX = newX;
+		view = null;
+		return true;
+	}
+
+	/**
+	 * Executes the effects of a possible hit of the supplied ball, whose bounding box is supplied as well, on this
+	 * paddle, and returns the number of replicates of the ball required. Follows the same rules as
+	 * PaddleState.hitBall.
+	 * @mutates | this, ball
+	 * @post | result >= 0 && result <= 3
+	 */
+	int hitBall(Ball ball, int ballLeft, int ballTop, int ballRight, int ballBottom, int paddleDir) {
+		if (!bounceBall(ball, ballLeft, ballTop, ballRight, ballBottom, paddleDir)) {
+			return 0;
+		}
+		return replicate();
+	}
+
+	/**
+	 * Bounces the supplied ball, whose bounding box is supplied as well, off this paddle if it hits it, and returns
+	 * whether it did. Does not change this paddle, so that it may be called for several balls concurrently.
+	 * @mutates | ball
+	 */
+	boolean bounceBall(Ball ball, int ballLeft, int ballTop, int ballRight, int ballBottom, int paddleDir) {
+		int side = Geometry.overlap(ballLeft, ballTop, ballRight, ballBottom, centerX - halfWidth,
+				centerY - halfHeight, centerX + halfWidth, centerY + halfHeight);
+		if (side == Geometry.NO_FACE || Geometry.dot(Geometry.normal(side), ball.velocity) <= 0) {
+			// Bounce only when the ball is at the outside
+			return false;
+		}
+		ball.bounce(side);
+		ball.push(2*paddleDir);
+		return true;
+	}
+
+	/**
+	 * Executes the effect of a ball bouncing off this paddle on the paddle itself, and returns the number of
+	 * replicates of the ball required.
+	 * @mutates | this
+	 * @post | result >= 0 && result <= 3
+	 */
+	int replicate() {
+		if (type == NORMAL) {
+			return 0;
+		}
+		int reps = lifetime;
+		lifetime--;
+		if (lifetime == 0) {
+			type = NORMAL;
+		}
+		view = null;
+		return reps;
+	}
+
+	/**
+	 * Powers up this paddle to a replicator paddle with the maximum lifetime.
+	 * @mutates | this
+	 * @post | getType() == REPLICATOR
+	 * @post | getLifetime() == PaddleState.MAX_REPLICATOR_LIFETIME
+	 */
+	void powerup() {
+		type = REPLICATOR;
+		lifetime = PaddleState.MAX_REPLICATOR_LIFETIME;
+		view = null;
+	}
+
+	/**
+	 * Returns the PaddleState object representing this paddle.
+	 */
+	PaddleState view() {
+		if (view == null) {
+			Point center = new Point(centerX, centerY);
+			Vector size = new Vector(halfWidth, halfHeight);
+			view = type == REPLICATOR ? new ReplicatorPaddleState(center, size, lifetime)
+					: new NormalPaddleState(center, size);
+		}
+		return view;
+	}
+}
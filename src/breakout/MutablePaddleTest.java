@@ -0,0 +1,56 @@
+package breakout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class MutablePaddleTest {
+
+	PaddleState normal = new NormalPaddleState(new Point(500,900), new Vector(10,4));
+	MutablePaddle paddle = new MutablePaddle(normal);
+
+	@Test
+	void testConstr() {
+		assertSame(normal, paddle.view());
+		assertEquals(MutablePaddle.NORMAL, paddle.getType());
+		assertEquals(500, paddle.centerX());
+		assertEquals(896, paddle.top());
+		assertEquals(StateHash.of(normal), paddle.key());
+	}
+
+	@Test
+	void testMove() {
+		assertTrue(paddle.moveBy(20, 0, 1000));
+		assertEquals(520, paddle.view().getCenter().getX());
+		// the view is reused until the paddle changes
+		assertSame(paddle.view(), paddle.view());
+		assertFalse(paddle.moveBy(500, 0, 1000));
+		assertFalse(paddle.moveBy(-520, 0, 1000));
+		assertEquals(520, paddle.centerX());
+		assertEquals(StateHash.of(paddle.view()), paddle.key());
+	}
+
+	@Test
+	void testHitAndPowerup() {
+		paddle.powerup();
+		assertEquals(PaddleState.MAX_REPLICATOR_LIFETIME, ((ReplicatorPaddleState) paddle.view()).getLifetime());
+		MutablePaddle copy = new MutablePaddle(paddle);
+
+		// a ball hitting the top of the paddle bounces and is replicated, as with ReplicatorPaddleState.hitBall
+		Ball ball = new NormalBall(new Point(500,894), 4, new Vector(1,2));
+		Ball expected = ball.copy();
+		ballPaddleHitResults results = copy.view().hitBall(expected, 1);
+		assertEquals(3, paddle.hitBall(ball, 498, 892, 502, 896, 1));
+		assertEquals(expected.getVelocity(), ball.getVelocity());
+		assertEquals(StateHash.of(results.paddle), paddle.key());
+		assertEquals(2, ((ReplicatorPaddleState) paddle.view()).getLifetime());
+
+		// the copy is unaffected, and returns to a normal paddle after its last replicating hit
+		assertEquals(3, ((ReplicatorPaddleState) copy.view()).getLifetime());
+		for (int reps=3; reps>0; reps--) {
+			Ball next = new NormalBall(new Point(500,894), 4, new Vector(1,2));
+			assertEquals(reps, copy.hitBall(next, 498, 892, 502, 896, 0));
+		}
+		assertTrue(copy.view() instanceof NormalPaddleState);
+	}
+}
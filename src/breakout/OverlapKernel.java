@@ -0,0 +1,79 @@
+package breakout;
+
+/**
+ * Each instance of this class tests the bounding box of one ball against the bounds of a range of blocks, stored in
+ * primitive arrays indexed by slot as in BlockTable, at once. It produces a mask of the blocks that are alive and
+ * that the ball overlaps, and the side at which the ball overlaps each of them, following the rules of
+ * Geometry.overlap.
+ *
+ * INSTANCE is chosen once, when this class is initialized: a kernel processing several slots per instruction with the
+ * Vector API if the jdk.incubator.vector module is present (e.g. with {@code --add-modules jdk.incubator.vector}) and
+ * its preferred integer species has more than one lane, and a scalar kernel otherwise.
+ */
+abstract class OverlapKernel {
+
+	// The maximum number of slots tested per call
+	static final int MAX_LANES = 64;
+
+	// The kernel used by the block tables
+	static final OverlapKernel INSTANCE = select();
+
+	private static OverlapKernel select() {
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			try {
+				OverlapKernel kernel = (OverlapKernel) Class.forName("breakout.VectorOverlapKernel")
+						.getDeclaredConstructor().newInstance();
+				if (kernel.lanes() > 1) {
+					return kernel;
+				}
+			}
+			catch (ReflectiveOperationException | LinkageError e) {
+				// Fall back to the scalar kernel
+			}
+		}
+		return new ScalarOverlapKernel();
+	}
+
+	/**
+	 * Returns the number of slots this kernel processes per instruction.
+	 * @post | result >= 1
+	 */
+	abstract int lanes();
+
+	/**
+	 * Tests a ball with the supplied bounding box against the blocks in the slots from up to but not including to,
+	 * and returns a mask with bit {@code slot - from} set for each block that is alive, i.e. has a positive lifetime,
+	 * and that the ball overlaps. The side at which the ball overlaps the block in a slot, or
+	 * Geometry.NO_FACE, is stored in the supplied faces array at index {@code slot - from}.
+	 * @pre | lefts != null && tops != null && rights != null && bottoms != null && lifetimes != null
+	 * @pre | 0 <= from && from <= to && to - from <= MAX_LANES && to <= lefts.length
+	 * @pre | faces != null && faces.length >= to - from
+	 * @mutates | faces
+	 */
+	abstract long overlap(int ballLeft, int ballTop, int ballRight, int ballBottom, int[] lefts, int[] tops,
+			int[] rights, int[] bottoms, int[] lifetimes, int from, int to, int[] faces);
+}
+
+/**
+ * Each instance of this class represents an overlap kernel testing one slot at a time.
+ */
+final class ScalarOverlapKernel extends OverlapKernel {
+
+	int lanes() {
+		return 1;
+	}
+
+	long overlap(int ballLeft, int ballTop, int ballRight, int ballBottom, int[] lefts, int[] tops, int[] rights,
+			int[] bottoms, int[] lifetimes, int from, int to, int[] faces) {
+		long mask = 0;
+		for (int slot=from; slot<to; slot++) {
+			int side = Geometry.overlap(ballLeft, ballTop, ballRight, ballBottom, lefts[slot], tops[slot],
+					rights[slot], bottoms[slot]);
+			faces[slot - from] = side;
+			if (side != Geometry.NO_FACE && lifetimes[slot] > 0) {
+				mask |= 1L << (slot - from);
+			}
+		}
+		return mask;
+	}
+}
@@ -0,0 +1,63 @@
+package breakout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class OverlapKernelTest {
+
+	/**
+	 * Checks that the supplied kernel matches Geometry.overlap on random blocks and balls, for ranges of all lengths.
+	 */
+	void checkKernel(OverlapKernel kernel) {
+		Random random = new Random(5);
+		int n = 100;
+		int[] lefts = new int[n];
+		int[] tops = new int[n];
+		int[] rights = new int[n];
+		int[] bottoms = new int[n];
+		int[] lifetimes = new int[n];
+		for (int slot=0; slot<n; slot++) {
+			lefts[slot] = random.nextInt(200);
+			tops[slot] = random.nextInt(200);
+			rights[slot] = lefts[slot] + random.nextInt(60);
+			bottoms[slot] = tops[slot] + random.nextInt(60);
+			lifetimes[slot] = random.nextInt(3);
+		}
+		int[] faces = new int[OverlapKernel.MAX_LANES];
+		for (int i=0; i<3000; i++) {
+			int x = random.nextInt(260);
+			int y = random.nextInt(260);
+			int radius = random.nextInt(20);
+			int from = random.nextInt(n);
+			int to = Math.min(n, from + random.nextInt(OverlapKernel.MAX_LANES + 1));
+			long mask = kernel.overlap(x-radius, y-radius, x+radius, y+radius, lefts, tops, rights, bottoms,
+					lifetimes, from, to, faces);
+			for (int slot=from; slot<to; slot++) {
+				int expected = Geometry.overlap(x-radius, y-radius, x+radius, y+radius, lefts[slot], tops[slot],
+						rights[slot], bottoms[slot]);
+				assertEquals(expected, faces[slot-from]);
+				boolean hit = (mask & 1L << (slot-from)) != 0;
+				assertEquals(expected != Geometry.NO_FACE && lifetimes[slot] > 0, hit);
+			}
+			// no bits beyond the range are set
+			assertEquals(0, to - from == 64 ? 0 : mask >>> (to - from));
+		}
+	}
+
+	@Test
+	void testScalar() {
+		checkKernel(new ScalarOverlapKernel());
+	}
+
+	@Test
+	void testSelected() {
+		// the vector kernel if the jdk.incubator.vector module is present, the scalar one otherwise
+		assertTrue(OverlapKernel.INSTANCE.lanes() >= 1);
+		assertEquals(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+				OverlapKernel.INSTANCE instanceof VectorOverlapKernel);
+		checkKernel(OverlapKernel.INSTANCE);
+	}
+}
@@ -0,0 +1,18 @@
+package breakout;
+
+/**
+ * Each instance of this interface decides in which direction the paddle of a breakout game should move,
+ * e.g. a bot playing the game instead of a human player.
+ */
+public interface PaddleController {
+	
+	/**
+	 * Returns the direction in which the paddle should move during the next iteration of the supplied game state:
+	 * -1 for left, 1 for right and 0 for not moving.
+	 * @inspects | state
+	 * @pre | state != null
+	 * @pre | elapsedTime > 0 && elapsedTime <= BreakoutState.MAX_ELAPSED_TIME
+	 * @post | result == -1 || result == 0 || result == 1
+	 */
+	int decide(BreakoutState state, int elapsedTime);
+}
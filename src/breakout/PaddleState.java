@@ -150,11 +150,11 @@ final class NormalPaddleState extends PaddleState {
 	 * @post | result.paddle instanceof NormalPaddleState
 	 */
 	public ballPaddleHitResults hitBall(Ball ball, int paddleDir) {
-		Vector normVecPaddle = ball.rectangleOf().overlap(this.rectangleOf());
-		if (normVecPaddle != null &&
-			normVecPaddle.product(ball.getVelocity()) > 0) { // Bounce only when the ball is at the outside
-			ball.bounce(normVecPaddle);
-			ball.changeVelocity(ball.getVelocity().plus(Vector.RIGHT.scaled(2*paddleDir)));
+		int face = ball.faceInto(center.getX() - size.getX(), center.getY() - size.getY(), center.getX() + size.getX(),
+				center.getY() + size.getY());
+		if (face != Geometry.NO_FACE) { // Bounce only when the ball is at the outside
+			ball.bounce(face);
+			ball.push(2*paddleDir);
 		}
 		return new ballPaddleHitResults(ball, this, 0);
 	}
@@ -281,11 +281,11 @@ final class ReplicatorPaddleState extends PaddleState {
 	public ballPaddleHitResults hitBall(Ball ball, int paddleDir) {
 		int reps = 0;
 		PaddleState newState = this;
-		Vector normVecPaddle = ball.rectangleOf().overlap(this.rectangleOf());
-		if (normVecPaddle != null &&
-			normVecPaddle.product(ball.getVelocity()) > 0) { // Bounce only when the ball is at the outside
-			ball.bounce(normVecPaddle);
-			ball.changeVelocity(ball.getVelocity().plus(Vector.RIGHT.scaled(2*paddleDir)));
+		int face = ball.faceInto(center.getX() - size.getX(), center.getY() - size.getY(), center.getX() + size.getX(),
+				center.getY() + size.getY());
+		if (face != Geometry.NO_FACE) { // Bounce only when the ball is at the outside
+			ball.bounce(face);
+			ball.push(2*paddleDir);
 			newState = this.decreaseLifetime();
 			reps=this.getLifetime();
 			}
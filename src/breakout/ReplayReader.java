@@ -0,0 +1,187 @@
+package breakout;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Each instance of this class reads a replay file written by a ReplayWriter, and restores the game state as of any
+ * tick of the recorded game.
+ *
+ * The index of the keyframes is memory-mapped, and seeking to a tick reads only the segment of the replay file from
+ * the latest keyframe before it to the next one: it restores the keyframe and simulates the remaining ticks, fewer
+ * than getKeyframeInterval(), from the recorded input.
+ *
+ * @invar | getKeyframeInterval() > 0
+ * @invar | getTickCount() >= 0
+ */
+public final class ReplayReader implements AutoCloseable {
+
+	/**
+	 * @invar | data != null && offsets != null
+	 * @invar | keyframeInterval > 0
+	 * @invar | 0 <= ticks
+	 */
+	private final FileChannel data;
+	private final LongBuffer offsets;
+	private final int keyframeInterval;
+	private final long size;
+	private final long ticks;
+
+	/**
+	 * Opens the supplied replay file and its index.
+	 * @throws IllegalArgumentException if no file is supplied, or the files do not hold a replay.
+	 * 	| file == null
+	 * @throws IOException if the files cannot be read.
+	 */
+	public ReplayReader(Path file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("You have not supplied a valid replay file!");
+		}
+		this.data = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			this.size = data.size();
+			ByteBuffer header = read(0, ReplayWriter.HEADER_SIZE);
+			if (header.getInt() != ReplayWriter.MAGIC) {
+				throw new IllegalArgumentException("The file does not hold a replay");
+			}
+			this.keyframeInterval = header.getInt();
+			if (keyframeInterval <= 0) {
+				throw new IllegalArgumentException("The replay holds an invalid keyframe interval");
+			}
+			try (FileChannel index = FileChannel.open(ReplayWriter.indexOf(file), StandardOpenOption.READ)) {
+				this.offsets = index.map(FileChannel.MapMode.READ_ONLY, 0, index.size() & ~7L).asLongBuffer();
+			}
+			this.ticks = offsets.limit() == 0 ? 0 :
+				(long) (offsets.limit() - 1) * keyframeInterval + countSteps(segment(offsets.limit() - 1));
+		}
+		catch (IOException | RuntimeException e) {
+			data.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the number of ticks between the keyframes.
+	 */
+	public int getKeyframeInterval() {
+		return keyframeInterval;
+	}
+
+	/**
+	 * Returns the number of ticks recorded.
+	 */
+	public long getTickCount() {
+		return ticks;
+	}
+
+	/**
+	 * Returns the game state as of the supplied tick, i.e. after the supplied number of recorded iterations.
+	 * @throws IllegalArgumentException if the tick was not recorded, or the replay holds no game state at all.
+	 * 	| tick < 0 || tick > getTickCount()
+	 * @throws IOException if the replay file cannot be read.
+	 * @creates | result
+	 */
+	public BreakoutState seek(long tick) throws IOException {
+		if (tick < 0 || tick > ticks || offsets.limit() == 0) {
+			throw new IllegalArgumentException("You have supplied a tick that was not recorded!");
+		}
+		// The last tick has no keyframe of its own if it is a multiple of the keyframe interval
+		int keyframeIndex = (int) Math.min(tick / keyframeInterval, offsets.limit() - 1);
+		VarintReader in = segment(keyframeIndex);
+		if (in.readByte() != ReplayWriter.KEYFRAME) {
+			throw new IllegalArgumentException("The replay index does not refer to a keyframe");
+		}
+		byte[] keyframe = new byte[in.readCount(in.remaining())];
+		for (int i=0; i<keyframe.length; i++) {
+			keyframe[i] = (byte) in.readByte();
+		}
+		BreakoutState state = StateCodec.decode(keyframe);
+
+		// Simulate the remaining ticks, including the merges and caps that follow the last one
+		for (long t = (long) keyframeIndex * keyframeInterval; !in.isAtEnd(); ) {
+			int kind = in.readByte();
+			if (kind == ReplayWriter.STEP) {
+				if (t == tick) {
+					break;
+				}
+				int input = in.readCount(BreakoutState.MAX_ELAPSED_TIME << 2 | 2);
+				int paddleDir = (input & 3) - 1;
+				int elapsedTime = input >> 2;
+				if (paddleDir > 1 || elapsedTime <= 0) {
+					throw new IllegalArgumentException("The replay holds invalid input");
+				}
+				state.step(paddleDir, elapsedTime);
+				t++;
+			}
+			else if (kind == ReplayWriter.MERGE) {
+				state.mergeDuplicateBalls();
+			}
+			else if (kind == ReplayWriter.CAP) {
+				state.capBalls(in.readCount(Integer.MAX_VALUE));
+			}
+			else {
+				throw new IllegalArgumentException("The replay holds a record of an unknown kind");
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * Returns a reader of the records from the supplied keyframe to the next one.
+	 */
+	private VarintReader segment(int keyframe) throws IOException {
+		long start = offsets.get(keyframe);
+		long end = keyframe + 1 < offsets.limit() ? offsets.get(keyframe + 1) : size;
+		if (start < ReplayWriter.HEADER_SIZE || end < start || end > size || end - start > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The replay index holds an invalid offset");
+		}
+		return new VarintReader(read(start, (int) (end - start)).array());
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (data.read(buffer, position + buffer.position()) < 0) {
+				throw new IllegalArgumentException("The replay ends unexpectedly");
+			}
+		}
+		return buffer.flip();
+	}
+
+	/**
+	 * Returns the number of iterations recorded in the supplied segment.
+	 */
+	private static int countSteps(VarintReader in) {
+		int steps = 0;
+		while (!in.isAtEnd()) {
+			int kind = in.readByte();
+			if (kind == ReplayWriter.KEYFRAME) {
+				int length = in.readCount(in.remaining());
+				for (int i=0; i<length; i++) {
+					in.readByte();
+				}
+			}
+			else if (kind == ReplayWriter.STEP || kind == ReplayWriter.CAP) {
+				in.readUnsigned();
+				steps += kind == ReplayWriter.STEP ? 1 : 0;
+			}
+			else if (kind != ReplayWriter.MERGE) {
+				throw new IllegalArgumentException("The replay holds a record of an unknown kind");
+			}
+		}
+		return steps;
+	}
+
+	/**
+	 * Closes the replay file.
+	 * @throws IOException if the replay file cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		data.close();
+	}
+}
@@ -0,0 +1,186 @@
+package breakout;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Each instance of this class records a game to a replay file, which a ReplayReader can seek to any tick of the game.
+ *
+ * The replay file holds the input of every tick, i.e. the paddle direction and the elapsed time, along with the
+ * merges and caps of the balls performed by a TickGovernor, interleaved with a keyframe holding the full game state
+ * every getKeyframeInterval() ticks. The offsets of the keyframes are written to an index file next to the replay
+ * file, named as the replay file followed by ".idx", so that seeking to a tick takes restoring the latest keyframe
+ * before it and simulating fewer than getKeyframeInterval() ticks.
+ *
+ * Records are buffered and written in batches; the index only ever refers to keyframes that were written.
+ *
+ * @invar | getKeyframeInterval() > 0
+ * @invar | getTickCount() >= 0
+ */
+public final class ReplayWriter implements AutoCloseable {
+
+	// The first bytes of every replay file
+	static final int MAGIC = 0x42524b52;
+	// The length in bytes of the header: the magic number and the keyframe interval
+	static final int HEADER_SIZE = 8;
+	// The kinds of records
+	static final int STEP = 0;
+	static final int MERGE = 1;
+	static final int CAP = 2;
+	static final int KEYFRAME = 3;
+
+	// The number of buffered bytes from which they are written
+	private static final int FLUSH_SIZE = 1 << 16;
+
+	/**
+	 * @invar | data != null && index != null
+	 * @invar | keyframeInterval > 0
+	 * @invar | buffer != null
+	 * @invar | pendingOffsets != null && pendingOffsets.position() % 8 == 0
+	 */
+	private final FileChannel data;
+	private final FileChannel index;
+	private final int keyframeInterval;
+	// The records not yet written, which start at offset written in the replay file
+	private final VarintWriter buffer = new VarintWriter();
+	private long written = HEADER_SIZE;
+	// The offsets of the keyframes in the buffered records
+	private ByteBuffer pendingOffsets = ByteBuffer.allocate(64);
+	private long ticks;
+
+	/**
+	 * Creates the supplied replay file and its index, replacing any existing ones, for a game with a keyframe every
+	 * supplied number of ticks.
+	 * @throws IllegalArgumentException if no file is supplied or the keyframe interval is not positive.
+	 * 	| file == null || keyframeInterval <= 0
+	 * @throws IOException if the files cannot be created.
+	 * @post | getKeyframeInterval() == keyframeInterval
+	 * @post | getTickCount() == 0
+	 */
+	public ReplayWriter(Path file, int keyframeInterval) throws IOException {
+		if (file == null || keyframeInterval <= 0) {
+			throw new IllegalArgumentException("You have supplied an invalid replay configuration!");
+		}
+		this.keyframeInterval = keyframeInterval;
+		this.data = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			this.index = FileChannel.open(indexOf(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		}
+		catch (IOException e) {
+			data.close();
+			throw e;
+		}
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(keyframeInterval).flip();
+		while (header.hasRemaining()) {
+			data.write(header);
+		}
+	}
+
+	/**
+	 * Returns the index file of the supplied replay file.
+	 */
+	static Path indexOf(Path file) {
+		return file.resolveSibling(file.getFileName() + ".idx");
+	}
+
+	/**
+	 * Returns the number of ticks between the keyframes.
+	 */
+	public int getKeyframeInterval() {
+		return keyframeInterval;
+	}
+
+	/**
+	 * Returns the number of ticks recorded so far.
+	 */
+	public long getTickCount() {
+		return ticks;
+	}
+
+	/**
+	 * Records that the supplied game state is about to perform an iteration, moving the paddle in the supplied
+	 * direction first, preceded by a keyframe if the number of ticks recorded so far is a multiple of the keyframe
+	 * interval.
+	 * @pre | state != null
+	 * @pre | paddleDir == 0 || paddleDir == 1 || paddleDir == -1
+	 * @pre | elapsedTime > 0 && elapsedTime <= BreakoutState.MAX_ELAPSED_TIME
+	 * @mutates | this
+	 * @inspects | state
+	 * @throws IOException if the records cannot be written.
+	 * @post | getTickCount() == old(getTickCount()) + 1
+	 */
+	public void recordStep(BreakoutState state, int paddleDir, int elapsedTime) throws IOException {
+		if (ticks % keyframeInterval == 0) {
+			if (!pendingOffsets.hasRemaining()) {
+				pendingOffsets = ByteBuffer.allocate(pendingOffsets.capacity() * 2).put(pendingOffsets.flip());
+			}
+			pendingOffsets.putLong(written + buffer.size());
+			byte[] keyframe = StateCodec.encode(state);
+			buffer.writeByte(KEYFRAME);
+			buffer.writeUnsigned(keyframe.length);
+			for (byte b : keyframe) {
+				buffer.writeByte(b);
+			}
+		}
+		buffer.writeByte(STEP);
+		buffer.writeUnsigned((elapsedTime << 2) | (paddleDir + 1));
+		ticks++;
+		if (buffer.size() >= FLUSH_SIZE) {
+			flush();
+		}
+	}
+
+	/**
+	 * Records that the duplicate balls of the game state were merged after the latest recorded iteration.
+	 * @mutates | this
+	 */
+	public void recordMerge() {
+		buffer.writeByte(MERGE);
+	}
+
+	/**
+	 * Records that the number of balls of the game state was capped at the supplied maximum after the latest
+	 * recorded iteration.
+	 * @pre | max >= 0
+	 * @mutates | this
+	 */
+	public void recordCap(int max) {
+		buffer.writeByte(CAP);
+		buffer.writeUnsigned(max);
+	}
+
+	/**
+	 * Writes the buffered records to the replay file, followed by the offsets of the keyframes among them to the index.
+	 * @mutates | this
+	 * @throws IOException if the records cannot be written.
+	 */
+	public void flush() throws IOException {
+		ByteBuffer records = ByteBuffer.wrap(buffer.toByteArray());
+		while (records.hasRemaining()) {
+			written += data.write(records);
+		}
+		buffer.clear();
+		pendingOffsets.flip();
+		while (pendingOffsets.hasRemaining()) {
+			index.write(pendingOffsets);
+		}
+		pendingOffsets.clear();
+	}
+
+	/**
+	 * Writes the buffered records and closes the replay file and its index.
+	 * @mutates | this
+	 * @throws IOException if the records cannot be written or the files cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		try (data; index) {
+			flush();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package breakout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import breakout.gui.BreakoutApplication;
+
+class ReplayWriterTest {
+
+	static void delete(Path file) throws IOException {
+		Files.deleteIfExists(file);
+		Files.deleteIfExists(ReplayWriter.indexOf(file));
+		Files.deleteIfExists(file.getParent());
+	}
+
+	@Test
+	void testSeek() throws IOException {
+		// a game of which the governor caps the balls is restored exactly at any tick
+		Path file = Files.createTempDirectory("replay").resolve("game.replay");
+		try {
+			BreakoutState state = GameMap.createStateFromDescription(BreakoutApplication.initMap);
+			TickGovernor governor = new TickGovernor(1, 2);
+			Random random = new Random(11);
+			List<byte[]> expected = new ArrayList<>();
+			try (ReplayWriter writer = new ReplayWriter(file, 100)) {
+				assertThrows(IllegalArgumentException.class, () -> new ReplayWriter(file, 0));
+				governor.setReplayWriter(writer);
+				expected.add(StateCodec.encode(state));
+				for (int t=0; t<3000 && !state.isDead(); t++) {
+					int paddleDir = Integer.signum(state.ballCenterX(0) - state.getPaddle().getCenter().getX());
+					governor.step(state, paddleDir, 5 + random.nextInt(11));
+					expected.add(StateCodec.encode(state));
+				}
+				assertEquals(expected.size() - 1, writer.getTickCount());
+			}
+			assertTrue(governor.getCaps() > 0);
+
+			try (ReplayReader reader = new ReplayReader(file)) {
+				assertEquals(100, reader.getKeyframeInterval());
+				assertEquals(expected.size() - 1, reader.getTickCount());
+				for (int t : new int[] {0, 1, 99, 100, 101, 250, 1234, expected.size() - 2, expected.size() - 1}) {
+					assertArrayEquals(expected.get(t), StateCodec.encode(reader.seek(t)));
+				}
+				for (int t=0; t<expected.size(); t+=37) {
+					assertArrayEquals(expected.get(t), StateCodec.encode(reader.seek(t)));
+				}
+				assertThrows(IllegalArgumentException.class, () -> reader.seek(-1));
+				assertThrows(IllegalArgumentException.class, () -> reader.seek(expected.size()));
+			}
+		}
+		finally {
+			delete(file);
+		}
+	}
+
+	@Test
+	void testCorruptLength() throws IOException {
+		// a keyframe whose length exceeds the segment holding it is rejected without allocating for that length
+		Path file = Files.createTempDirectory("replay").resolve("game.replay");
+		try {
+			byte[] keyframe = StateCodec.encode(GameMap.createStateFromDescription(BreakoutApplication.initMap));
+			VarintWriter out = new VarintWriter();
+			out.writeByte(ReplayWriter.KEYFRAME);
+			out.writeUnsigned(Integer.MAX_VALUE);
+			int second = out.size();
+			out.writeByte(ReplayWriter.KEYFRAME);
+			out.writeUnsigned(keyframe.length);
+			for (byte b : keyframe) {
+				out.writeByte(b);
+			}
+			Files.write(file, ByteBuffer.allocate(ReplayWriter.HEADER_SIZE + out.size()).putInt(ReplayWriter.MAGIC)
+					.putInt(1).put(out.toByteArray()).array());
+			Files.write(ReplayWriter.indexOf(file), ByteBuffer.allocate(16).putLong(ReplayWriter.HEADER_SIZE)
+					.putLong(ReplayWriter.HEADER_SIZE + second).array());
+			try (ReplayReader reader = new ReplayReader(file)) {
+				assertEquals(1, reader.getTickCount());
+				assertEquals(GameMap.createStateFromDescription(BreakoutApplication.initMap).stateHash(),
+						reader.seek(1).stateHash());
+				assertThrows(IllegalArgumentException.class, () -> reader.seek(0));
+			}
+		}
+		finally {
+			delete(file);
+		}
+	}
+
+	@Test
+	void testNotAReplay() throws IOException {
+		Path file = Files.createTempDirectory("replay").resolve("game.replay");
+		try {
+			Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+			Files.write(ReplayWriter.indexOf(file), new byte[0]);
+			assertThrows(IllegalArgumentException.class, () -> new ReplayReader(file));
+			assertThrows(IllegalArgumentException.class, () -> new ReplayReader(null));
+		}
+		finally {
+			delete(file);
+		}
+	}
+}
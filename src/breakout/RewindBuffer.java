@@ -0,0 +1,240 @@
+package breakout;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Each instance of this class keeps the recent history of a running game, so that the game can be stepped backwards
+ * one tick at a time.
+ *
+ * The history is a ring of getCapacity() segments of getSnapshotInterval() ticks each. A segment holds a snapshot of
+ * the game state taken at its first tick, encoded by StateCodec, and the input of each of its ticks, i.e. the paddle
+ * direction and the elapsed time, along with the merges and caps of the balls performed by a TickGovernor. Rewinding
+ * restores the snapshot of the segment of the previous tick and simulates the ticks from there, fewer than
+ * getSnapshotInterval(). Recording a new segment overwrites the oldest one, so that the memory used does not grow
+ * with the length of the game.
+ *
+ * Taking a snapshot only takes a copy of the game state on the game thread; the copy is encoded on the executor of
+ * this buffer, or on the game thread if the game is rewound to it before.
+ *
+ * @invar | getSnapshotInterval() > 0
+ * @invar | getCapacity() > 0
+ * @invar | 0 <= getOldestTick() && getOldestTick() <= getTickCount()
+ * @invar | getTickCount() - getOldestTick() <= (long) getCapacity() * getSnapshotInterval()
+ */
+public final class RewindBuffer {
+
+	// The layout of the input of a tick: the paddle direction plus one, the elapsed time, whether the balls were
+	// merged, and the maximum at which they were capped plus one, or zero if they were not capped
+	private static final int ELAPSED_SHIFT = 2;
+	private static final long MERGED = 1L << 8;
+	private static final int CAP_SHIFT = 9;
+
+	/**
+	 * Each instance of this class holds the snapshot and the input of a segment of the history.
+	 */
+	private static final class Segment {
+		/**
+		 * @invar | inputs != null
+		 * @invar | bytes == null || pending == null
+		 */
+		final long[] inputs;
+		// The encoded snapshot, or the copy that is still to be encoded; guarded by this
+		byte[] bytes;
+		BreakoutState pending;
+
+		Segment(int interval) {
+			inputs = new long[interval];
+		}
+	}
+
+	/**
+	 * @invar | executor != null
+	 * @invar | segments != null && segments.length > 0
+	 * @invar | interval > 0
+	 * @invar | 0 <= oldest && oldest * interval <= ticks
+	 */
+	private final Executor executor;
+	private final Segment[] segments;
+	private final int interval;
+	// The number of ticks recorded, and the index of the oldest segment kept
+	private long ticks;
+	private long oldest;
+
+	/**
+	 * Initializes this object as an empty history of the supplied number of segments of the supplied number of ticks,
+	 * encoding the snapshots on the common fork-join pool.
+	 * @throws IllegalArgumentException if the interval or the capacity is not positive.
+	 * 	| interval <= 0 || capacity <= 0
+	 * @post | getSnapshotInterval() == interval
+	 * @post | getCapacity() == capacity
+	 * @post | getTickCount() == 0
+	 */
+	public RewindBuffer(int interval, int capacity) {
+		this(interval, capacity, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Initializes this object as an empty history of the supplied number of segments of the supplied number of ticks,
+	 * encoding the snapshots on the supplied executor.
+	 * @throws IllegalArgumentException if the interval or the capacity is not positive, or no executor is supplied.
+	 * 	| interval <= 0 || capacity <= 0 || executor == null
+	 * @post | getSnapshotInterval() == interval
+	 * @post | getCapacity() == capacity
+	 * @post | getTickCount() == 0
+	 */
+	public RewindBuffer(int interval, int capacity, Executor executor) {
+		if (interval <= 0 || capacity <= 0 || executor == null) {
+			throw new IllegalArgumentException("You have supplied an invalid rewind configuration!");
+		}
+		this.interval = interval;
+		this.executor = executor;
+		this.segments = new Segment[capacity];
+		for (int i=0; i<capacity; i++) {
+			segments[i] = new Segment(interval);
+		}
+	}
+
+	/**
+	 * Returns the number of ticks between the snapshots.
+	 */
+	public int getSnapshotInterval() {
+		return interval;
+	}
+
+	/**
+	 * Returns the number of snapshots kept.
+	 */
+	public int getCapacity() {
+		return segments.length;
+	}
+
+	/**
+	 * Returns the number of ticks recorded, minus the number of ticks rewound.
+	 */
+	public long getTickCount() {
+		return ticks;
+	}
+
+	/**
+	 * Returns the earliest tick to which the game can be rewound.
+	 */
+	public long getOldestTick() {
+		return oldest * interval;
+	}
+
+	/**
+	 * Returns whether the game can be rewound by a tick.
+	 * @post | result == (getTickCount() > getOldestTick())
+	 */
+	public boolean canRewind() {
+		return ticks > oldest * interval;
+	}
+
+	/**
+	 * Records that the supplied game state is about to perform an iteration, moving the paddle in the supplied
+	 * direction first, and takes a snapshot of it if the number of ticks is a multiple of the snapshot interval.
+	 * @pre | state != null
+	 * @pre | paddleDir == 0 || paddleDir == 1 || paddleDir == -1
+	 * @pre | elapsedTime > 0 && elapsedTime <= BreakoutState.MAX_ELAPSED_TIME
+	 * @mutates | this
+	 * @inspects | state
+	 * @post | getTickCount() == old(getTickCount()) + 1
+	 */
+	public void recordStep(BreakoutState state, int paddleDir, int elapsedTime) {
+		long index = ticks / interval;
+		Segment segment = segments[(int) (index % segments.length)];
+		if (ticks % interval == 0) {
+			// Copying only reads the game state, so that recording the game does not affect how it evolves
+			BreakoutState copy = state.copy();
+			synchronized (segment) {
+				segment.bytes = null;
+				segment.pending = copy;
+			}
+			if (index - oldest >= segments.length) {
+				oldest = index - segments.length + 1;
+			}
+			try {
+				executor.execute(() -> encode(segment, copy));
+			}
+			catch (RejectedExecutionException e) {
+				// the copy is encoded when the game is rewound to it
+			}
+		}
+		segment.inputs[(int) (ticks % interval)] = (long) elapsedTime << ELAPSED_SHIFT | (paddleDir + 1);
+		ticks++;
+	}
+
+	private static void encode(Segment segment, BreakoutState copy) {
+		synchronized (segment) {
+			if (segment.pending == copy) {
+				segment.bytes = StateCodec.encode(copy);
+				segment.pending = null;
+			}
+		}
+	}
+
+	/**
+	 * Records that the duplicate balls of the game state were merged after the latest recorded iteration.
+	 * @pre | getTickCount() > 0
+	 * @mutates | this
+	 */
+	public void recordMerge() {
+		lastSegment().inputs[(int) ((ticks - 1) % interval)] |= MERGED;
+	}
+
+	/**
+	 * Records that the number of balls of the game state was capped at the supplied maximum after the latest
+	 * recorded iteration.
+	 * @pre | getTickCount() > 0
+	 * @pre | max >= 0
+	 * @mutates | this
+	 */
+	public void recordCap(int max) {
+		lastSegment().inputs[(int) ((ticks - 1) % interval)] |= (max + 1L) << CAP_SHIFT;
+	}
+
+	private Segment lastSegment() {
+		return segments[(int) ((ticks - 1) / interval % segments.length)];
+	}
+
+	/**
+	 * Returns the game state as of the tick before the current one, and forgets the current tick, so that the game
+	 * continues from the returned game state.
+	 * @throws IllegalStateException if the game cannot be rewound.
+	 * 	| !canRewind()
+	 * @mutates | this
+	 * @post | getTickCount() == old(getTickCount()) - 1
+	 * @creates | result
+	 */
+	public BreakoutState rewind() {
+		if (!canRewind()) {
+			throw new IllegalStateException("The game cannot be rewound any further");
+		}
+		long target = ticks - 1;
+		Segment segment = segments[(int) (target / interval % segments.length)];
+		byte[] bytes;
+		synchronized (segment) {
+			if (segment.pending != null) {
+				segment.bytes = StateCodec.encode(segment.pending);
+				segment.pending = null;
+			}
+			bytes = segment.bytes;
+		}
+		BreakoutState state = StateCodec.decode(bytes);
+		int remaining = (int) (target % interval);
+		for (int t=0; t<remaining; t++) {
+			long input = segment.inputs[t];
+			state.step((int) (input & 3) - 1, (int) ((input & (MERGED - 1)) >> ELAPSED_SHIFT));
+			if ((input & MERGED) != 0) {
+				state.mergeDuplicateBalls();
+			}
+			if (input >> CAP_SHIFT != 0) {
+				state.capBalls((int) (input >> CAP_SHIFT) - 1);
+			}
+		}
+		ticks = target;
+		return state;
+	}
+}
@@ -0,0 +1,83 @@
+package breakout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import breakout.gui.BreakoutApplication;
+
+class RewindBufferTest {
+
+	@Test
+	void testConstr() {
+		assertThrows(IllegalArgumentException.class, () -> new RewindBuffer(0, 10));
+		assertThrows(IllegalArgumentException.class, () -> new RewindBuffer(10, 0));
+		assertThrows(IllegalArgumentException.class, () -> new RewindBuffer(10, 10, null));
+		RewindBuffer buffer = new RewindBuffer(25, 8);
+		assertEquals(25, buffer.getSnapshotInterval());
+		assertEquals(8, buffer.getCapacity());
+		assertEquals(0, buffer.getTickCount());
+		assertFalse(buffer.canRewind());
+		assertThrows(IllegalStateException.class, () -> buffer.rewind());
+	}
+
+	@Test
+	void testSnapshotInspectsState() {
+		// taking a snapshot leaves the game state alone, including the lifetimes of the balls it exposed earlier
+		Ball[] balls = {new SuperBall(new Point(500,500), 10, new Vector(1,1), 1000)};
+		BreakoutState state = new BreakoutState(balls, new BlockState[0], new Point(1000,1000),
+				new NormalPaddleState(new Point(500,900), new Vector(10,4)));
+		SuperBall ball = (SuperBall) state.getBalls()[0];
+		state.tick(0, 10);
+		long hash = state.stateHash();
+		RewindBuffer buffer = new RewindBuffer(25, 8, task -> { });
+		buffer.recordStep(state, 0, 10);
+		assertEquals(1000, ball.getLifetime());
+		assertEquals(hash, state.stateHash());
+		assertSame(ball, state.getBalls()[0]);
+		assertEquals(990, ball.getLifetime());
+	}
+
+	@Test
+	void testRewind() {
+		// a game of which the governor caps the balls is stepped backwards exactly, as far as the history reaches
+		BreakoutState state = GameMap.createStateFromDescription(BreakoutApplication.initMap);
+		TickGovernor governor = new TickGovernor(1, 2);
+		RewindBuffer buffer = new RewindBuffer(25, 8);
+		governor.setRewindBuffer(buffer);
+		Random random = new Random(11);
+		List<byte[]> expected = new ArrayList<>();
+		for (int t=0; t<3000; t++) {
+			expected.add(StateCodec.encode(state));
+			int paddleDir = Integer.signum(state.ballCenterX(0) - state.getPaddle().getCenter().getX());
+			governor.step(state, paddleDir, 5 + random.nextInt(11));
+		}
+		assertTrue(governor.getCaps() > 0);
+		assertEquals(3000, buffer.getTickCount());
+
+		// the history is bounded: only the last 7 complete segments and the current one are kept
+		assertEquals(2800, buffer.getOldestTick());
+		while (buffer.canRewind()) {
+			state = buffer.rewind();
+			assertArrayEquals(expected.get((int) buffer.getTickCount()), StateCodec.encode(state));
+		}
+		assertEquals(2800, buffer.getTickCount());
+
+		// the game continues from where it was rewound to, and is rewound along its new course
+		List<byte[]> continued = new ArrayList<>();
+		for (int t=0; t<60; t++) {
+			continued.add(StateCodec.encode(state));
+			governor.step(state, 1, 10);
+		}
+		assertEquals(2860, buffer.getTickCount());
+		for (int t=59; t>=0; t--) {
+			state = buffer.rewind();
+			assertArrayEquals(continued.get(t), StateCodec.encode(state));
+		}
+		assertFalse(buffer.canRewind());
+	}
+}
@@ -0,0 +1,179 @@
+package breakout;
+
+/**
+ * This class writes a game state to bytes and reads it back, including everything that determines how the game
+ * state evolves, so that ticking the game state read back gives exactly the same game states as ticking the one
+ * written: besides the balls, blocks and paddle, the simulated time, the deadlines of the supercharged balls, the
+ * number of ticks performed and the reorder interval, the block each ball bounced on most recently, and the slots of
+ * the block table including those of destroyed blocks. The version stamps are kept as well.
+ *
+ * The pool on which a game state ticks is not written, as it is not part of the game.
+ */
+final class StateCodec {
+
+	// The version of the format written
+	static final int FORMAT = 1;
+	// The minimum number of bytes taken by a slot of the block table and by a ball, which bound the counts read
+	private static final int MIN_SLOT_SIZE = 6;
+	private static final int MIN_BALL_SIZE = 7;
+
+	private StateCodec() {
+		throw new AssertionError("This class is not intended to be instantiated");
+	}
+
+	/**
+	 * Returns the bytes representing the supplied game state.
+	 * @pre | state != null
+	 * @inspects | state
+	 * @creates | result
+	 */
+	static byte[] encode(BreakoutState state) {
+		VarintWriter out = new VarintWriter();
+		write(state, out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Returns the game state represented by the supplied bytes.
+	 * @throws IllegalArgumentException if the bytes do not represent a game state.
+	 * @creates | result
+	 */
+	static BreakoutState decode(byte[] bytes) {
+		if (bytes == null) {
+			throw new IllegalArgumentException("You have not supplied valid data!");
+		}
+		VarintReader in = new VarintReader(bytes);
+		BreakoutState state = read(in);
+		if (!in.isAtEnd()) {
+			throw new IllegalArgumentException("The data holds trailing bytes");
+		}
+		return state;
+	}
+
+	/**
+	 * Writes the supplied game state to the supplied writer.
+	 * @pre | state != null && out != null
+	 * @inspects | state
+	 * @mutates | out
+	 */
+	static void write(BreakoutState state, VarintWriter out) {
+		out.writeUnsigned(FORMAT);
+		out.writeUnsigned(state.getSimulatedTime());
+		out.writeUnsigned(state.tickCount());
+		out.writeUnsigned(state.getBallReorderInterval());
+		out.writeUnsigned(state.getBlocksVersion());
+		out.writeUnsigned(state.getPaddleVersion());
+		out.writeUnsigned(state.getBallsVersion());
+		out.writeSigned(state.getBottomRight().getX());
+		out.writeSigned(state.getBottomRight().getY());
+
+		PaddleState paddle = state.getPaddle();
+		out.writeSigned(paddle.getCenter().getX());
+		out.writeSigned(paddle.getCenter().getY());
+		out.writeSigned(paddle.getSize().getX());
+		out.writeSigned(paddle.getSize().getY());
+		out.writeUnsigned(state.paddleLifetime());
+
+		BlockTable blocks = state.blockTable();
+		out.writeUnsigned(blocks.slots());
+		for (int slot=0; slot<blocks.slots(); slot++) {
+			out.writeUnsigned(blocks.type(slot));
+			out.writeSigned(blocks.left(slot));
+			out.writeSigned(blocks.top(slot));
+			out.writeSigned(blocks.right(slot));
+			out.writeSigned(blocks.bottom(slot));
+			out.writeUnsigned(blocks.lifetime(slot));
+		}
+
+		out.writeUnsigned(state.ballCount());
+		for (int i=0; i<state.ballCount(); i++) {
+			Ball ball = state.ballAt(i);
+			out.writeUnsigned(ball.diameter);
+			out.writeSigned(ball.centerX());
+			out.writeSigned(ball.centerY());
+			out.writeSigned(ball.velX());
+			out.writeSigned(ball.velY());
+			out.writeSigned(state.ballContact(i));
+			if (ball instanceof SuperBall superBall) {
+				out.writeByte(1);
+				out.writeSigned(state.ballDeadline(i));
+			}
+			else {
+				out.writeByte(0);
+			}
+		}
+	}
+
+	/**
+	 * Reads a game state written by write from the supplied reader.
+	 * @pre | in != null
+	 * @mutates | in
+	 * @throws IllegalArgumentException if the reader does not hold a game state at its position.
+	 * @creates | result
+	 */
+	static BreakoutState read(VarintReader in) {
+		if (in.readUnsigned() != FORMAT) {
+			throw new IllegalArgumentException("The data is of an unknown format");
+		}
+		long time = in.readUnsigned();
+		long ticks = in.readUnsigned();
+		int reorderInterval = in.readCount(Integer.MAX_VALUE);
+		long blocksVersion = in.readUnsigned();
+		long paddleVersion = in.readUnsigned();
+		long ballsVersion = in.readUnsigned();
+		Point bottomRight = new Point(in.readInt(), in.readInt());
+
+		Point paddleCenter = new Point(in.readInt(), in.readInt());
+		Vector paddleSize = new Vector(in.readInt(), in.readInt());
+		int paddleLifetime = in.readCount(PaddleState.MAX_REPLICATOR_LIFETIME);
+		MutablePaddle paddle = new MutablePaddle(paddleLifetime > 0
+				? new ReplicatorPaddleState(paddleCenter, paddleSize, paddleLifetime)
+				: new NormalPaddleState(paddleCenter, paddleSize));
+
+		int slots = in.readCount(in.remaining() / MIN_SLOT_SIZE);
+		int[] types = new int[slots];
+		int[] lefts = new int[slots];
+		int[] tops = new int[slots];
+		int[] rights = new int[slots];
+		int[] bottoms = new int[slots];
+		int[] lifetimes = new int[slots];
+		for (int slot=0; slot<slots; slot++) {
+			types[slot] = in.readCount(BlockTable.REPLICATOR);
+			lefts[slot] = in.readInt();
+			tops[slot] = in.readInt();
+			rights[slot] = in.readInt();
+			bottoms[slot] = in.readInt();
+			lifetimes[slot] = in.readCount(Integer.MAX_VALUE);
+		}
+		BlockTable blocks = new BlockTable(types, lefts, tops, rights, bottoms, lifetimes);
+
+		Ball[] balls = new Ball[in.readCount(in.remaining() / MIN_BALL_SIZE)];
+		long[] deadlines = new long[balls.length];
+		int[] contacts = new int[balls.length];
+		for (int i=0; i<balls.length; i++) {
+			int diameter = in.readCount(Integer.MAX_VALUE);
+			long center = Geometry.pack(in.readInt(), in.readInt());
+			long velocity = Geometry.pack(in.readInt(), in.readInt());
+			contacts[i] = in.readInt();
+			if (contacts[i] < BreakoutState.NO_CONTACT || contacts[i] >= slots) {
+				throw new IllegalArgumentException("The data refers to a block that does not exist");
+			}
+			Ball ball;
+			switch (in.readByte()) {
+			case 0 -> ball = new NormalBall(center, diameter, velocity);
+			case 1 -> {
+				long expiresAt = in.readSigned();
+				if (expiresAt <= time) {
+					throw new IllegalArgumentException("The data holds a supercharged ball that has expired");
+				}
+				ball = new SuperBall(center, diameter, velocity, expiresAt - time);
+				deadlines[i] = expiresAt;
+			}
+			default -> throw new IllegalArgumentException("The data holds a ball of an unknown type");
+			}
+			balls[i] = ball;
+		}
+		return new BreakoutState(balls, deadlines, contacts, blocks, bottomRight, paddle, time, ticks,
+				reorderInterval, blocksVersion, paddleVersion, ballsVersion);
+	}
+}
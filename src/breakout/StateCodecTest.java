@@ -0,0 +1,66 @@
+package breakout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import breakout.gui.BreakoutApplication;
+
+class StateCodecTest {
+
+	@Test
+	void testRoundTrip() {
+		// a game state read back evolves exactly like the one written, through powerups, replications and lost balls
+		BreakoutState state = GameMap.createStateFromDescription(BreakoutApplication.initMap);
+		state.setBallReorderInterval(13);
+		Random random = new Random(3);
+		for (int t=0; t<1500 && !state.isDead(); t++) {
+			state.step(random.nextInt(3) - 1, 1 + random.nextInt(BreakoutState.MAX_ELAPSED_TIME));
+			if (t % 100 == 0) {
+				byte[] bytes = StateCodec.encode(state);
+				BreakoutState restored = StateCodec.decode(bytes);
+				assertArrayEquals(bytes, StateCodec.encode(restored));
+				assertEquals(state.stateHash(), restored.stateHash());
+				assertEquals(state.getBlocksVersion(), restored.getBlocksVersion());
+				BreakoutState original = state.copy();
+				Random inputs = new Random(t);
+				for (int s=0; s<300; s++) {
+					int paddleDir = inputs.nextInt(3) - 1;
+					int elapsedTime = 1 + inputs.nextInt(BreakoutState.MAX_ELAPSED_TIME);
+					original.step(paddleDir, elapsedTime);
+					restored.step(paddleDir, elapsedTime);
+				}
+				assertArrayEquals(StateCodec.encode(original), StateCodec.encode(restored));
+			}
+		}
+	}
+
+	@Test
+	void testMalformed() {
+		byte[] bytes = StateCodec.encode(GameMap.createStateFromDescription(BreakoutApplication.initMap));
+		assertThrows(IllegalArgumentException.class, () -> StateCodec.decode(null));
+		assertThrows(IllegalArgumentException.class, () -> StateCodec.decode(Arrays.copyOf(bytes, bytes.length - 1)));
+		assertThrows(IllegalArgumentException.class, () -> StateCodec.decode(Arrays.copyOf(bytes, bytes.length + 1)));
+		byte[] unknown = bytes.clone();
+		unknown[0] = 99;
+		assertThrows(IllegalArgumentException.class, () -> StateCodec.decode(unknown));
+
+		// a corrupt count is rejected for exceeding the data left, instead of making the decoder allocate for it
+		VarintWriter out = new VarintWriter();
+		out.writeUnsigned(StateCodec.FORMAT);
+		for (int i=0; i<6; i++) {
+			out.writeUnsigned(0);
+		}
+		out.writeSigned(100);
+		out.writeSigned(100);
+		for (int i=0; i<4; i++) {
+			out.writeSigned(10);
+		}
+		out.writeUnsigned(0);
+		out.writeUnsigned(Integer.MAX_VALUE);
+		assertThrows(IllegalArgumentException.class, () -> StateCodec.decode(out.toByteArray()));
+	}
+}
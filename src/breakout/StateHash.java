@@ -0,0 +1,116 @@
+package breakout;
+
+/**
+ * Computes Zobrist-style hash keys for the balls, the blocks and the paddle of a breakout game state.
+ *
+ * The hash of a game state is the sum (modulo 2^64) of the keys of all of its entities. Since summing is
+ * order-independent and invertible, the hash can be maintained incrementally by subtracting the key of an
+ * entity before it changes and adding its key afterwards. Unlike XOR-ing keys, summing does not cancel out
+ * two identical balls.
+ */
+final class StateHash {
+
+	private static final long BALL_SALT = 0x2545F4914F6CDD1DL;
+	private static final long BLOCK_SALT = 0x9E3779B97F4A7C15L;
+	private static final long PADDLE_SALT = 0xD1B54A32D192ED03L;
+
+	private StateHash() {
+		throw new AssertionError("This class is not intended to be instantiated");
+	}
+
+	/**
+	 * Returns a well-distributed 64-bit value derived from the supplied one (SplitMix64 finalizer).
+	 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Returns the key obtained by folding the supplied integer into the supplied key.
+	 */
+	static long combine(long key, long value) {
+		return mix(key + 0x9E3779B97F4A7C15L + value);
+	}
+
+	/**
+	 * Returns the hash key of a ball with the supplied position, velocity and type.
+	 */
+	static long ball(int x, int y, int vx, int vy, int type) {
+		long key = combine(BALL_SALT, type);
+		key = combine(key, x);
+		key = combine(key, y);
+		key = combine(key, vx);
+		return combine(key, vy);
+	}
+
+	/**
+	 * Returns the hash key of the supplied ball, covering its center, its velocity and its type.
+	 * @pre | ball != null
+	 */
+	static long of(Ball ball) {
+		return ball(ball.centerX(), ball.centerY(), ball.velX(), ball.velY(), ball instanceof SuperBall ? 1 : 0);
+	}
+
+	/**
+	 * Returns the hash key of a block with the supplied bounds, type and remaining lifetime.
+	 */
+	static long block(int left, int top, int right, int bottom, int type, int lifetime) {
+		long key = combine(BLOCK_SALT, type);
+		key = combine(key, left);
+		key = combine(key, top);
+		key = combine(key, right);
+		key = combine(key, bottom);
+		return combine(key, lifetime);
+	}
+
+	/**
+	 * Returns the hash key of the supplied block, covering its presence, its bounds, its type and, for sturdy
+	 * blocks, its remaining lifetime.
+	 * @pre | block != null
+	 */
+	static long of(BlockState block) {
+		Point tl = block.getTopLeft();
+		Point br = block.getBottomRight();
+		int lifetime = block instanceof SturdyBlockState sturdy ? sturdy.getLifetime() : 0;
+		return block(tl.getX(), tl.getY(), br.getX(), br.getY(), BlockTable.typeOf(block), lifetime);
+	}
+
+	/**
+	 * Returns the hash key of a paddle with the supplied position, type and remaining lifetime.
+	 */
+	static long paddle(int x, int y, int type, int lifetime) {
+		long key = combine(PADDLE_SALT, type);
+		key = combine(key, x);
+		key = combine(key, y);
+		return combine(key, lifetime);
+	}
+
+	/**
+	 * Returns the hash key of the supplied paddle, covering its position and its type.
+	 * @pre | paddle != null
+	 */
+	static long of(PaddleState paddle) {
+		Point center = paddle.getCenter();
+		if (paddle instanceof ReplicatorPaddleState replicator) {
+			return paddle(center.getX(), center.getY(), 1, replicator.getLifetime());
+		}
+		return paddle(center.getX(), center.getY(), 0, 0);
+	}
+
+	/**
+	 * Returns the hash of the game state made up of the supplied balls, blocks and paddle, computed from scratch.
+	 * @pre | balls != null && blocks != null && paddle != null
+	 */
+	static long of(Ball[] balls, BlockState[] blocks, PaddleState paddle) {
+		long hash = of(paddle);
+		for (Ball ball : balls) {
+			hash += of(ball);
+		}
+		for (BlockState block : blocks) {
+			hash += of(block);
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,362 @@
+package breakout;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Each instance of this class publishes a StateSnapshot of a running game after each of its ticks to any number of
+ * subscribers, such as spectators, loggers and analytics, following the Flow protocol.
+ *
+ * The game loop calls offer after each tick. Offering takes a single snapshot, which is shared by all subscribers,
+ * and hands it to each subscription according to the overflow policy chosen by its subscriber. It never waits for a
+ * subscriber: the snapshots are delivered on the executor of this publisher, and a subscriber that requests or
+ * consumes them too slowly only loses snapshots, or makes its own buffer grow, as its policy prescribes. If there
+ * are no subscribers, offering does not even take a snapshot.
+ *
+ * As the Flow protocol requires, subscribe throws a NullPointerException rather than an IllegalArgumentException
+ * if no subscriber is supplied, and a subscription on which a non-positive number of snapshots is requested is
+ * cancelled with an IllegalArgumentException passed to onError.
+ *
+ * @invar | getSubscriberCount() >= 0
+ */
+public final class StatePublisher implements Flow.Publisher<StateSnapshot>, AutoCloseable {
+
+	/**
+	 * The ways in which a subscription handles snapshots offered while its subscriber has not consumed the
+	 * previous ones yet.
+	 */
+	public enum Overflow {
+		/**
+		 * Up to a fixed number of snapshots are buffered; snapshots offered while the buffer is full are dropped.
+		 */
+		DROP,
+		/**
+		 * Only the latest snapshot is kept; it replaces the one the subscriber did not consume yet.
+		 */
+		LATEST,
+		/**
+		 * All snapshots are buffered until the subscriber consumes them, without any bound.
+		 */
+		BUFFER
+	}
+
+	/**
+	 * @invar | executor != null
+	 * @invar | subscriptions != null
+	 */
+	private final Executor executor;
+	private final CopyOnWriteArrayList<SnapshotSubscription> subscriptions = new CopyOnWriteArrayList<>();
+	private volatile boolean closed;
+	// The number of snapshots offered so far, and the latest one, whose blocks the next one may share
+	private long sequence;
+	private StateSnapshot previous;
+	private BreakoutState previousState;
+
+	/**
+	 * Initializes this object as a publisher delivering the snapshots on the common fork-join pool.
+	 * @post | getSubscriberCount() == 0
+	 */
+	public StatePublisher() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Initializes this object as a publisher delivering the snapshots on the supplied executor.
+	 * @throws IllegalArgumentException if no executor is supplied.
+	 * 	| executor == null
+	 * @post | getSubscriberCount() == 0
+	 */
+	public StatePublisher(Executor executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException("You have not supplied a valid executor!");
+		}
+		this.executor = executor;
+	}
+
+	/**
+	 * Subscribes the supplied subscriber, keeping only the latest snapshot it did not consume yet.
+	 */
+	@Override
+	public void subscribe(Flow.Subscriber<? super StateSnapshot> subscriber) {
+		subscribe(subscriber, Overflow.LATEST, 1);
+	}
+
+	/**
+	 * Subscribes the supplied subscriber, handling the snapshots it does not consume in time according to the
+	 * supplied policy. The supplied capacity is the number of snapshots buffered by the DROP policy, and is
+	 * ignored by the others. The subscriber receives the snapshots offered from now on; if this publisher is
+	 * already closed, it is completed right away.
+	 * @throws NullPointerException if no subscriber is supplied.
+	 * 	| subscriber == null
+	 * @throws IllegalArgumentException if no policy is supplied.
+	 * 	| policy == null
+	 * @throws IllegalArgumentException if the policy is DROP and the capacity is not positive.
+	 * 	| policy == Overflow.DROP && capacity < 1
+	 */
+	public void subscribe(Flow.Subscriber<? super StateSnapshot> subscriber, Overflow policy, int capacity) {
+		if (subscriber == null) {
+			throw new NullPointerException("You have not supplied a valid subscriber!");
+		}
+		if (policy == null) {
+			throw new IllegalArgumentException("You have not supplied a valid overflow policy!");
+		}
+		if (policy == Overflow.DROP && capacity < 1) {
+			throw new IllegalArgumentException("The capacity must be positive");
+		}
+		SnapshotSubscription subscription = new SnapshotSubscription(subscriber, policy, capacity);
+		subscriptions.add(subscription);
+		if (closed) {
+			subscription.complete();
+		}
+		subscription.signal();
+	}
+
+	/**
+	 * Returns the number of subscribers that did not cancel their subscription and were not completed yet.
+	 */
+	public int getSubscriberCount() {
+		return subscriptions.size();
+	}
+
+	/**
+	 * Offers a snapshot of the supplied game state to each subscriber, and returns the number of subscribers it
+	 * was offered to. Must be called from a single thread, the one ticking the game state, between two ticks.
+	 * @inspects | state
+	 * @throws IllegalArgumentException if no game state is supplied.
+	 * 	| state == null
+	 * @throws IllegalStateException if this publisher is closed.
+	 */
+	public int offer(BreakoutState state) {
+		if (state == null) {
+			throw new IllegalArgumentException("You have not supplied a valid game state!");
+		}
+		if (closed) {
+			throw new IllegalStateException("The publisher is closed");
+		}
+		if (subscriptions.isEmpty()) {
+			sequence++;
+			return 0;
+		}
+		StateSnapshot snapshot = new StateSnapshot(state, sequence++, state == previousState ? previous : null);
+		previous = snapshot;
+		previousState = state;
+		int offered = 0;
+		for (SnapshotSubscription subscription : subscriptions) {
+			if (subscription.enqueue(snapshot)) {
+				offered++;
+			}
+		}
+		return offered;
+	}
+
+	/**
+	 * Closes this publisher, so that each subscriber is completed once it consumed the snapshots buffered for it.
+	 * Does nothing if this publisher is already closed.
+	 * @mutates | this
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			for (SnapshotSubscription subscription : subscriptions) {
+				subscription.complete();
+			}
+		}
+	}
+
+	/**
+	 * Each instance of this class represents the subscription of one subscriber to a StatePublisher.
+	 *
+	 * The signals to the subscriber are serialized by a work-in-progress counter: the first thread to increase it
+	 * from zero schedules a drain on the executor, and other threads only increase it, so that the drain loops once
+	 * more. The subscriber's onSubscribe is called by the first drain. If the executor rejects the drain, the thread
+	 * that scheduled it runs it instead, which cancels the subscription and passes the rejection to onError.
+	 *
+	 * @invar | getDropped() >= 0
+	 */
+	public final class SnapshotSubscription implements Flow.Subscription {
+
+		/**
+		 * @invar | subscriber != null && policy != null
+		 * @invar | queue != null && latest != null
+		 */
+		private final Flow.Subscriber<? super StateSnapshot> subscriber;
+		private final Overflow policy;
+		private final int capacity;
+		// The snapshots buffered for the DROP and BUFFER policies, and the snapshot kept for the LATEST policy
+		private final ConcurrentLinkedQueue<StateSnapshot> queue = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger queued = new AtomicInteger();
+		private final AtomicReference<StateSnapshot> latest = new AtomicReference<>();
+		private final AtomicLong demand = new AtomicLong();
+		private final AtomicInteger wip = new AtomicInteger();
+		private final Runnable drainTask = this::drain;
+		// Only written by the thread offering the snapshots
+		private volatile long dropped;
+		private volatile boolean cancelled;
+		private volatile boolean completed;
+		private volatile boolean invalidRequest;
+		private volatile RejectedExecutionException rejection;
+		// Only accessed by the drain
+		private boolean subscribed;
+
+		private SnapshotSubscription(Flow.Subscriber<? super StateSnapshot> subscriber, Overflow policy,
+				int capacity) {
+			this.subscriber = subscriber;
+			this.policy = policy;
+			this.capacity = capacity;
+		}
+
+		/**
+		 * Returns the overflow policy of this subscription.
+		 */
+		public Overflow getPolicy() {
+			return policy;
+		}
+
+		/**
+		 * Returns the number of snapshots offered to this subscription that were dropped or replaced before its
+		 * subscriber could consume them.
+		 */
+		public long getDropped() {
+			return dropped;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				invalidRequest = true;
+			}
+			else {
+				demand.getAndAccumulate(n, (current, added) -> {
+					long sum = current + added;
+					return sum < 0 ? Long.MAX_VALUE : sum;
+				});
+			}
+			signal();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			subscriptions.remove(this);
+			queue.clear();
+			latest.set(null);
+		}
+
+		/**
+		 * Hands the supplied snapshot to this subscription according to its policy, and returns whether it was not
+		 * dropped.
+		 */
+		private boolean enqueue(StateSnapshot snapshot) {
+			if (cancelled) {
+				return false;
+			}
+			boolean kept = true;
+			switch (policy) {
+			case LATEST -> {
+				if (latest.getAndSet(snapshot) != null) {
+					dropped++;
+				}
+			}
+			case DROP -> {
+				if (queued.get() >= capacity) {
+					dropped++;
+					kept = false;
+				}
+				else {
+					queue.offer(snapshot);
+					queued.incrementAndGet();
+				}
+			}
+			case BUFFER -> {
+				queue.offer(snapshot);
+				queued.incrementAndGet();
+			}
+			}
+			signal();
+			return kept;
+		}
+
+		private StateSnapshot poll() {
+			if (policy == Overflow.LATEST) {
+				return latest.getAndSet(null);
+			}
+			StateSnapshot snapshot = queue.poll();
+			if (snapshot != null) {
+				queued.decrementAndGet();
+			}
+			return snapshot;
+		}
+
+		private boolean isEmpty() {
+			return policy == Overflow.LATEST ? latest.get() == null : queued.get() == 0;
+		}
+
+		private void complete() {
+			completed = true;
+			signal();
+		}
+
+		private void signal() {
+			if (wip.getAndIncrement() == 0) {
+				try {
+					executor.execute(drainTask);
+				}
+				catch (RejectedExecutionException e) {
+					// This thread owns the drain until it brings the counter back to zero
+					rejection = e;
+					drain();
+				}
+			}
+		}
+
+		private void drain() {
+			int missed = 1;
+			do {
+				if (!subscribed) {
+					subscribed = true;
+					subscriber.onSubscribe(this);
+				}
+				if (invalidRequest && !cancelled) {
+					cancel();
+					subscriber.onError(new IllegalArgumentException("The number of snapshots requested must be positive"));
+				}
+				if (rejection != null && !cancelled) {
+					cancel();
+					subscriber.onError(rejection);
+				}
+				long emitted = 0;
+				long requested = demand.get();
+				while (emitted != requested && !cancelled) {
+					StateSnapshot snapshot = poll();
+					if (snapshot == null) {
+						break;
+					}
+					try {
+						subscriber.onNext(snapshot);
+					}
+					catch (RuntimeException e) {
+						// A subscriber that throws is considered to have cancelled its subscription
+						cancel();
+					}
+					emitted++;
+				}
+				if (emitted > 0 && requested != Long.MAX_VALUE) {
+					demand.addAndGet(-emitted);
+				}
+				if (completed && !cancelled && isEmpty()) {
+					cancel();
+					subscriber.onComplete();
+				}
+				missed = wip.addAndGet(-missed);
+			} while (missed != 0);
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package breakout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import breakout.gui.BreakoutApplication;
+
+class StatePublisherTest {
+
+	/**
+	 * A subscriber recording what it receives, requesting the supplied number of snapshots, if any, on subscribing.
+	 */
+	static class Recorder implements Flow.Subscriber<StateSnapshot> {
+		final long batch;
+		final List<StateSnapshot> received = new ArrayList<>();
+		StatePublisher.SnapshotSubscription subscription;
+		Throwable error;
+		boolean completed;
+
+		Recorder(long batch) {
+			this.batch = batch;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = (StatePublisher.SnapshotSubscription) subscription;
+			if (batch > 0) {
+				subscription.request(batch);
+			}
+		}
+
+		@Override
+		public void onNext(StateSnapshot item) {
+			received.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+		}
+
+		@Override
+		public void onComplete() {
+			completed = true;
+		}
+	}
+
+	BreakoutState state = GameMap.createStateFromDescription(BreakoutApplication.initMap);
+
+	@Test
+	void testSnapshots() {
+		// with an executor running the drains right away, a subscriber with enough demand gets every snapshot
+		StatePublisher publisher = new StatePublisher(Runnable::run);
+		Recorder recorder = new Recorder(Long.MAX_VALUE);
+		publisher.subscribe(recorder, StatePublisher.Overflow.BUFFER, 0);
+		assertEquals(1, publisher.getSubscriberCount());
+		for (int t=0; t<100; t++) {
+			state.tick(0, 10);
+			assertEquals(1, publisher.offer(state));
+			StateSnapshot snapshot = recorder.received.get(t);
+			assertEquals(t, snapshot.getSequence());
+			assertEquals(state.stateHash(), snapshot.getStateHash());
+			assertEquals(state.getSimulatedTime(), snapshot.getSimulatedTime());
+			Ball[] balls = state.getBalls();
+			assertEquals(balls.length, snapshot.ballCount());
+			for (int i=0; i<balls.length; i++) {
+				assertEquals(balls[i].getCenter(), new Point(snapshot.ballCenterX(i), snapshot.ballCenterY(i)));
+				assertEquals(balls[i].getVelocity(), new Vector(snapshot.ballVelocityX(i), snapshot.ballVelocityY(i)));
+				assertEquals(balls[i].getDiameter(), snapshot.ballDiameter(i));
+			}
+			BlockState[] blocks = state.getBlocks();
+			assertEquals(blocks.length, snapshot.blockCount());
+			for (int i=0; i<blocks.length; i++) {
+				assertEquals(blocks[i].getTopLeft(), new Point(snapshot.blockLeft(i), snapshot.blockTop(i)));
+				assertEquals(blocks[i].getBottomRight(), new Point(snapshot.blockRight(i), snapshot.blockBottom(i)));
+			}
+			assertEquals(state.getPaddle().getCenter(), new Point(snapshot.paddleCenterX(), snapshot.paddleCenterY()));
+		}
+		publisher.close();
+		assertTrue(recorder.completed);
+		assertEquals(0, publisher.getSubscriberCount());
+		assertEquals(0, recorder.subscription.getDropped());
+		assertThrows(IllegalStateException.class, () -> publisher.offer(state));
+	}
+
+	@Test
+	void testPolicies() {
+		// without demand, each policy keeps what it prescribes of the snapshots offered
+		StatePublisher publisher = new StatePublisher(Runnable::run);
+		Recorder latest = new Recorder(0);
+		Recorder drop = new Recorder(0);
+		Recorder buffer = new Recorder(0);
+		publisher.subscribe(latest);
+		publisher.subscribe(drop, StatePublisher.Overflow.DROP, 3);
+		publisher.subscribe(buffer, StatePublisher.Overflow.BUFFER, 0);
+		for (int t=0; t<10; t++) {
+			state.tick(0, 10);
+			publisher.offer(state);
+		}
+		assertTrue(latest.received.isEmpty() && drop.received.isEmpty() && buffer.received.isEmpty());
+		latest.subscription.request(100);
+		drop.subscription.request(100);
+		buffer.subscription.request(100);
+		assertEquals(List.of(9L), latest.received.stream().map(StateSnapshot::getSequence).toList());
+		assertEquals(9, latest.subscription.getDropped());
+		assertEquals(List.of(0L, 1L, 2L), drop.received.stream().map(StateSnapshot::getSequence).toList());
+		assertEquals(7, drop.subscription.getDropped());
+		assertEquals(10, buffer.received.size());
+		assertEquals(0, buffer.subscription.getDropped());
+
+		latest.subscription.cancel();
+		assertEquals(2, publisher.getSubscriberCount());
+		Recorder invalid = new Recorder(0);
+		publisher.subscribe(invalid);
+		invalid.subscription.request(0);
+		assertTrue(invalid.error instanceof IllegalArgumentException);
+		assertEquals(2, publisher.getSubscriberCount());
+		assertThrows(NullPointerException.class, () -> publisher.subscribe(null));
+		assertThrows(IllegalArgumentException.class, () -> publisher.subscribe(new Recorder(1),
+				StatePublisher.Overflow.DROP, 0));
+	}
+
+	@Test
+	void testRejectingExecutor() {
+		// a subscriber whose drain is rejected is subscribed first, and then receives the rejection once
+		StatePublisher publisher = new StatePublisher(task -> {
+			throw new RejectedExecutionException("The executor is shut down");
+		});
+		List<String> signals = new ArrayList<>();
+		Recorder recorder = new Recorder(1) {
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				signals.add("subscribe");
+				super.onSubscribe(subscription);
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				signals.add("error");
+				super.onError(throwable);
+			}
+		};
+		publisher.subscribe(recorder);
+		assertEquals(List.of("subscribe", "error"), signals);
+		assertTrue(recorder.error instanceof RejectedExecutionException);
+		assertEquals(0, publisher.getSubscriberCount());
+		// the subscription is not left wedged: later signals are drained, and delivered nothing
+		recorder.subscription.request(1);
+		state.tick(0, 10);
+		assertEquals(0, publisher.offer(state));
+		assertEquals(List.of("subscribe", "error"), signals);
+	}
+
+	@Test
+	void testSlowSubscriber() throws InterruptedException {
+		// a subscriber blocked in onNext does not hold up the thread offering the snapshots
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		StatePublisher publisher = new StatePublisher(executor);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(1);
+		List<Long> received = new ArrayList<>();
+		publisher.subscribe(new Flow.Subscriber<StateSnapshot>() {
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				subscription.request(Long.MAX_VALUE);
+			}
+
+			@Override
+			public void onNext(StateSnapshot item) {
+				try {
+					release.await();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				received.add(item.getSequence());
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+			}
+
+			@Override
+			public void onComplete() {
+				done.countDown();
+			}
+		});
+		long start = System.nanoTime();
+		for (int t=0; t<200; t++) {
+			state.tick(0, 10);
+			publisher.offer(state);
+		}
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+		publisher.close();
+		release.countDown();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		executor.shutdown();
+		// the first snapshot was being consumed while the others were replaced, the latest one survived
+		assertEquals(199L, (long) received.get(received.size() - 1));
+		assertTrue(received.size() <= 3);
+	}
+}
@@ -0,0 +1,274 @@
+package breakout;
+
+/**
+ * Each instance of this class represents a compact, immutable picture of a game state taken right after one of its
+ * ticks, as published by a StatePublisher to spectators, loggers and analytics.
+ *
+ * The balls and blocks are stored in flat int arrays rather than as Ball and BlockState objects. As the blocks
+ * rarely change, consecutive snapshots of the same game state share the array of blocks as long as the blocks
+ * version of the game state stays the same.
+ *
+ * @invar | getSequence() >= 0
+ * @invar | ballCount() >= 0
+ * @invar | blockCount() >= 0
+ */
+public final class StateSnapshot {
+
+	// The types of the blocks, as returned by blockType
+	public static final int NORMAL_BLOCK = BlockTable.NORMAL;
+	public static final int STURDY_BLOCK = BlockTable.STURDY;
+	public static final int POWERUP_BLOCK = BlockTable.POWERUP;
+	public static final int REPLICATOR_BLOCK = BlockTable.REPLICATOR;
+
+	// The number of ints stored per ball and per block
+	static final int BALL_FIELDS = 6;
+	static final int BLOCK_FIELDS = 6;
+
+	/**
+	 * @invar | balls != null && balls.length % BALL_FIELDS == 0
+	 * @invar | blocks != null && blocks.length % BLOCK_FIELDS == 0
+	 */
+	private final long sequence;
+	private final long simulatedTime;
+	private final long stateHash;
+	private final long blocksVersion;
+	// The center, velocity, diameter and remaining lifetime in ms, or 0 for a normal ball, of each ball
+	private final int[] balls;
+	// The bounds, type and remaining lifetime in number of hits of each block that is not destroyed
+	private final int[] blocks;
+	private final int paddleCenterX;
+	private final int paddleCenterY;
+	private final int paddleHalfWidth;
+	private final int paddleHalfHeight;
+	// The remaining lifetime of a replicator paddle, or 0 for a normal paddle
+	private final int paddleLifetime;
+
+	/**
+	 * Initializes this object as a snapshot of the supplied game state with the supplied sequence number, sharing
+	 * the array of blocks of the supplied previous snapshot if that was taken of the same blocks.
+	 * @pre | state != null
+	 * @pre | sequence >= 0
+	 * @inspects | state
+	 */
+	StateSnapshot(BreakoutState state, long sequence, StateSnapshot previous) {
+		this.sequence = sequence;
+		this.simulatedTime = state.getSimulatedTime();
+		this.stateHash = state.stateHash();
+		this.blocksVersion = state.getBlocksVersion();
+
+		int ballCount = state.ballCount();
+		balls = new int[ballCount * BALL_FIELDS];
+		for (int i=0; i<ballCount; i++) {
+			Ball ball = state.ballAt(i);
+			int k = i * BALL_FIELDS;
+			balls[k] = ball.centerX();
+			balls[k+1] = ball.centerY();
+			balls[k+2] = ball.velX();
+			balls[k+3] = ball.velY();
+			balls[k+4] = ball.diameter;
+			balls[k+5] = ball instanceof SuperBall ? (int) state.ballLifetime(i) : 0;
+		}
+
+		if (previous != null && previous.blocksVersion == blocksVersion &&
+				previous.blocks.length == state.blockCount() * BLOCK_FIELDS) {
+			blocks = previous.blocks;
+		}
+		else {
+			BlockTable table = state.blockTable();
+			blocks = new int[table.aliveCount() * BLOCK_FIELDS];
+			int k = 0;
+			for (int slot=0; slot<table.slots(); slot++) {
+				if (table.isAlive(slot)) {
+					blocks[k] = table.left(slot);
+					blocks[k+1] = table.top(slot);
+					blocks[k+2] = table.right(slot);
+					blocks[k+3] = table.bottom(slot);
+					blocks[k+4] = table.type(slot);
+					blocks[k+5] = table.lifetime(slot);
+					k += BLOCK_FIELDS;
+				}
+			}
+		}
+
+		PaddleState paddle = state.getPaddle();
+		paddleCenterX = paddle.getCenter().getX();
+		paddleCenterY = paddle.getCenter().getY();
+		paddleHalfWidth = paddle.getSize().getX();
+		paddleHalfHeight = paddle.getSize().getY();
+		paddleLifetime = paddle instanceof ReplicatorPaddleState replicator ? replicator.getLifetime() : 0;
+	}
+
+	/**
+	 * Returns the number of game states offered to the publisher that took this snapshot before it, whether or
+	 * not they were published, so that subscribers can tell how many ticks they skipped.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Returns the simulated time in ms of the game state, as BreakoutState.getSimulatedTime.
+	 */
+	public long getSimulatedTime() {
+		return simulatedTime;
+	}
+
+	/**
+	 * Returns the hash of the game state, as BreakoutState.stateHash.
+	 */
+	public long getStateHash() {
+		return stateHash;
+	}
+
+	/**
+	 * Returns the blocks version of the game state, as BreakoutState.getBlocksVersion.
+	 */
+	public long getBlocksVersion() {
+		return blocksVersion;
+	}
+
+	/**
+	 * Returns the number of balls in the game state.
+	 */
+	public int ballCount() {
+		return balls.length / BALL_FIELDS;
+	}
+
+	/**
+	 * Returns the X coordinate of the center of the ball at the supplied index.
+	 * @pre | 0 <= index && index < ballCount()
+	 */
+	public int ballCenterX(int index) {
+		return balls[index * BALL_FIELDS];
+	}
+
+	/**
+	 * Returns the Y coordinate of the center of the ball at the supplied index.
+	 * @pre | 0 <= index && index < ballCount()
+	 */
+	public int ballCenterY(int index) {
+		return balls[index * BALL_FIELDS + 1];
+	}
+
+	/**
+	 * Returns the X component of the velocity of the ball at the supplied index.
+	 * @pre | 0 <= index && index < ballCount()
+	 */
+	public int ballVelocityX(int index) {
+		return balls[index * BALL_FIELDS + 2];
+	}
+
+	/**
+	 * Returns the Y component of the velocity of the ball at the supplied index.
+	 * @pre | 0 <= index && index < ballCount()
+	 */
+	public int ballVelocityY(int index) {
+		return balls[index * BALL_FIELDS + 3];
+	}
+
+	/**
+	 * Returns the diameter of the ball at the supplied index.
+	 * @pre | 0 <= index && index < ballCount()
+	 */
+	public int ballDiameter(int index) {
+		return balls[index * BALL_FIELDS + 4];
+	}
+
+	/**
+	 * Returns the remaining lifetime in ms of the ball at the supplied index if it is supercharged, or 0 otherwise.
+	 * @pre | 0 <= index && index < ballCount()
+	 */
+	public int ballLifetime(int index) {
+		return balls[index * BALL_FIELDS + 5];
+	}
+
+	/**
+	 * Returns the number of blocks in the game state that are not destroyed.
+	 */
+	public int blockCount() {
+		return blocks.length / BLOCK_FIELDS;
+	}
+
+	/**
+	 * Returns the X coordinate of the top left of the block at the supplied index.
+	 * @pre | 0 <= index && index < blockCount()
+	 */
+	public int blockLeft(int index) {
+		return blocks[index * BLOCK_FIELDS];
+	}
+
+	/**
+	 * Returns the Y coordinate of the top left of the block at the supplied index.
+	 * @pre | 0 <= index && index < blockCount()
+	 */
+	public int blockTop(int index) {
+		return blocks[index * BLOCK_FIELDS + 1];
+	}
+
+	/**
+	 * Returns the X coordinate of the bottom right of the block at the supplied index.
+	 * @pre | 0 <= index && index < blockCount()
+	 */
+	public int blockRight(int index) {
+		return blocks[index * BLOCK_FIELDS + 2];
+	}
+
+	/**
+	 * Returns the Y coordinate of the bottom right of the block at the supplied index.
+	 * @pre | 0 <= index && index < blockCount()
+	 */
+	public int blockBottom(int index) {
+		return blocks[index * BLOCK_FIELDS + 3];
+	}
+
+	/**
+	 * Returns the type of the block at the supplied index, e.g. STURDY_BLOCK.
+	 * @pre | 0 <= index && index < blockCount()
+	 */
+	public int blockType(int index) {
+		return blocks[index * BLOCK_FIELDS + 4];
+	}
+
+	/**
+	 * Returns the number of hits the block at the supplied index can still take.
+	 * @pre | 0 <= index && index < blockCount()
+	 */
+	public int blockLifetime(int index) {
+		return blocks[index * BLOCK_FIELDS + 5];
+	}
+
+	/**
+	 * Returns the X coordinate of the center of the paddle.
+	 */
+	public int paddleCenterX() {
+		return paddleCenterX;
+	}
+
+	/**
+	 * Returns the Y coordinate of the center of the paddle.
+	 */
+	public int paddleCenterY() {
+		return paddleCenterY;
+	}
+
+	/**
+	 * Returns the half width of the paddle, as the X component of PaddleState.getSize.
+	 */
+	public int paddleHalfWidth() {
+		return paddleHalfWidth;
+	}
+
+	/**
+	 * Returns the half height of the paddle, as the Y component of PaddleState.getSize.
+	 */
+	public int paddleHalfHeight() {
+		return paddleHalfHeight;
+	}
+
+	/**
+	 * Returns the remaining lifetime in number of hits of the paddle if it is a replicator paddle, or 0 otherwise.
+	 */
+	public int paddleLifetime() {
+		return paddleLifetime;
+	}
+}
@@ -0,0 +1,83 @@
+package breakout;
+
+import java.util.Random;
+
+import breakout.gui.BreakoutApplication;
+
+/**
+ * Measures the cost of a tick with a large number of balls spread over the blocks of the default map, with and
+ * without reordering the balls by the Morton code of their centers.
+ *
+ * The benchmark reports the time per ball per tick. To observe the effect on the L1 and L2 cache misses, run it
+ * under a hardware profiler, e.g. {@code perf stat -e L1-dcache-load-misses,l2_rqsts.miss java breakout.TickBenchmark 0}
+ * versus the same command with a non-zero interval.
+ */
+public class TickBenchmark {
+
+	// The number of ticks performed on one copy of the game state
+	private static final int TICKS = 200;
+
+	private TickBenchmark() {
+		throw new AssertionError("This class is not intended to be instantiated");
+	}
+
+	/**
+	 * Returns a game state with the blocks and the paddle of the default map, and the supplied number of balls at
+	 * random positions above the paddle, generated from the supplied seed.
+	 * @pre | balls >= 0
+	 * @creates | result
+	 */
+	public static BreakoutState createState(int balls, long seed) {
+		BreakoutState map = GameMap.createStateFromDescription(BreakoutApplication.initMap);
+		int width = map.getBottomRight().getX();
+		int paddleTop = map.paddleTop();
+		Random random = new Random(seed);
+		Ball[] created = new Ball[balls];
+		for (int i=0; i<balls; i++) {
+			Point center = new Point(1000 + random.nextInt(width - 2000), 1000 + random.nextInt(paddleTop - 2000));
+			Vector velocity = new Vector(random.nextInt(7) - 3, random.nextBoolean() ? 2 : -2);
+			created[i] = new NormalBall(center, 700, velocity);
+		}
+		return new BreakoutState(created, map.getBlocks(), map.getBottomRight(), map.getPaddle());
+	}
+
+	/**
+	 * Returns the average time in ns per ball per tick of the supplied number of rounds, each of which performs
+	 * TICKS ticks on a copy of the supplied game state, which reorders its balls with the supplied interval.
+	 * @pre | state != null
+	 * @pre | reorderInterval >= 0
+	 * @pre | rounds > 0
+	 */
+	public static double measure(BreakoutState state, int reorderInterval, int rounds) {
+		long ballTicks = 0;
+		long nanos = 0;
+		for (int round=0; round<rounds; round++) {
+			BreakoutState copy = state.copy();
+			copy.setBallReorderInterval(reorderInterval);
+			long start = System.nanoTime();
+			for (int tick=0; tick<TICKS; tick++) {
+				ballTicks += copy.ballCount();
+				copy.tick(0, HeadlessRunner.TICK_MILLIS);
+			}
+			nanos += System.nanoTime() - start;
+		}
+		return (double) nanos / ballTicks;
+	}
+
+	/**
+	 * Runs the benchmark. The optional arguments are the reorder interval, which runs both 0 and 8 if it is left
+	 * out, the number of balls and the number of rounds.
+	 */
+	public static void main(String[] args) {
+		int[] intervals = args.length > 0 ? new int[] {Integer.parseInt(args[0])} : new int[] {0, 8};
+		int balls = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		BreakoutState state = createState(balls, 42);
+		for (int interval : intervals) {
+			// Warm up first
+			measure(state, interval, rounds);
+			System.out.printf("reorder interval %d: %.1f ns per ball per tick%n", interval,
+					measure(state, interval, rounds));
+		}
+	}
+}
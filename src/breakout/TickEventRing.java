@@ -0,0 +1,260 @@
+package breakout;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Each instance of this class represents a ring buffer of a fixed capacity, into which the ticks of a game state
+ * publish what happened to its blocks, balls and paddle, so that callers can score, log or animate the game without
+ * comparing the blocks and balls before and after each tick.
+ *
+ * Each event consists of a type, the number of the tick during which it happened, two coordinates and a value,
+ * which are stored in primitive arrays allocated once, so that publishing and polling an event does not allocate.
+ *
+ * The ring has a single producer, the thread ticking the game state, and any number of consumers, each reading
+ * through its own Cursor. Neither side takes a lock or waits for the other: the producer publishes an event by
+ * advancing a counter with release semantics, and overwrites the oldest events once the ring is full. Each slot
+ * carries the sequence number of the event it holds, which the producer clears before overwriting the slot, so
+ * that a cursor detects that an event was overwritten before or while it read it, and skips and counts it as lost.
+ *
+ * @invar | capacity() >= 2
+ * @invar | published() >= 0
+ */
+public final class TickEventRing {
+
+	/**
+	 * A block was hit without being destroyed. The coordinates are the top left of the block, the value its
+	 * remaining lifetime.
+	 */
+	public static final int BLOCK_HIT = 0;
+	/**
+	 * A block was destroyed. The coordinates are the top left of the block, the value is 0.
+	 */
+	public static final int BLOCK_DESTROYED = 1;
+	/**
+	 * A ball left the game field at the bottom. The coordinates are the center of the ball, the value its diameter.
+	 */
+	public static final int BALL_LOST = 2;
+	/**
+	 * A ball was replicated by the paddle. The coordinates are the center of the ball, the value the number of
+	 * replicates added.
+	 */
+	public static final int BALL_REPLICATED = 3;
+	/**
+	 * A ball was supercharged by a powerup block. The coordinates are the center of the ball, the value its lifetime
+	 * in ms.
+	 */
+	public static final int BALL_POWERED_UP = 4;
+	/**
+	 * The paddle became a replicator paddle. The coordinates are the center of the paddle, the value its lifetime in
+	 * number of hits.
+	 */
+	public static final int PADDLE_POWERED_UP = 5;
+	/**
+	 * The replicator paddle used one hit of its lifetime. The coordinates are the center of the paddle, the value its
+	 * remaining lifetime, which is 0 once it became a normal paddle again.
+	 */
+	public static final int PADDLE_LIFETIME_DECREMENTED = 6;
+
+	private static final VarHandle PUBLISHED;
+	private static final VarHandle SEQUENCES = MethodHandles.arrayElementVarHandle(long[].class);
+
+	static {
+		try {
+			PUBLISHED = MethodHandles.lookup().findVarHandle(TickEventRing.class, "published", long.class);
+		}
+		catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * @invar | sequences != null && types != null && ticks != null && xs != null && ys != null && values != null
+	 * @invar | sequences.length == mask + 1 && types.length == mask + 1 && ticks.length == mask + 1
+	 * @invar | xs.length == mask + 1 && ys.length == mask + 1 && values.length == mask + 1
+	 */
+	private final int mask;
+	// The number of the event held by each slot plus one, or 0 while the slot holds no complete event
+	private final long[] sequences;
+	private final int[] types;
+	private final long[] ticks;
+	private final int[] xs;
+	private final int[] ys;
+	private final int[] values;
+	// The number of events published so far; event n is stored at slot n & mask
+	@SuppressWarnings("unused")
+	private volatile long published;
+
+	/**
+	 * Initializes this object as an empty ring holding the supplied number of events, of which a cursor can read at
+	 * most capacity - 1 without losing any.
+	 * @throws IllegalArgumentException if the capacity is not a power of two of at least 2.
+	 * 	| capacity < 2 || Integer.bitCount(capacity) != 1
+	 * @post | capacity() == capacity
+	 * @post | published() == 0
+	 */
+	public TickEventRing(int capacity) {
+		if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("The capacity must be a power of two of at least 2");
+		}
+		mask = capacity - 1;
+		sequences = new long[capacity];
+		types = new int[capacity];
+		ticks = new long[capacity];
+		xs = new int[capacity];
+		ys = new int[capacity];
+		values = new int[capacity];
+	}
+
+	/**
+	 * Returns the number of events this ring holds.
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Returns the number of events published into this ring so far.
+	 */
+	public long published() {
+		return (long) PUBLISHED.getAcquire(this);
+	}
+
+	/**
+	 * Publishes an event with the supplied type, tick, coordinates and value, overwriting the oldest event if this
+	 * ring is full. May only be called by the single producer of this ring.
+	 * @mutates | this
+	 * @post | published() == old(published()) + 1
+	 */
+	void publish(int type, long tick, int x, int y, int value) {
+		long n = published;
+		int slot = (int) n & mask;
+		// Claim the slot before overwriting it, so that a cursor reading the event it held sees that claim
+		SEQUENCES.setOpaque(sequences, slot, 0L);
+		VarHandle.storeStoreFence();
+		types[slot] = type;
+		ticks[slot] = tick;
+		xs[slot] = x;
+		ys[slot] = y;
+		values[slot] = value;
+		SEQUENCES.setRelease(sequences, slot, n + 1);
+		PUBLISHED.setRelease(this, n + 1);
+	}
+
+	/**
+	 * Returns a new cursor reading the events published into this ring from now on.
+	 * @creates | result
+	 * @post | result.lost() == 0
+	 */
+	public Cursor cursor() {
+		return new Cursor(this);
+	}
+
+	/**
+	 * Each instance of this class reads the events of a ring in the order they were published, on behalf of one
+	 * consumer. The fields of the event read by the latest successful call of poll are held by the cursor itself.
+	 *
+	 * @invar | lost() >= 0
+	 */
+	public static final class Cursor {
+
+		/**
+		 * @invar | ring != null
+		 * @invar | lost >= 0
+		 */
+		private final TickEventRing ring;
+		// The number of the next event to read, and the number of events overwritten before they were read
+		private long next;
+		private long lost;
+		private int type;
+		private long tick;
+		private int x;
+		private int y;
+		private int value;
+
+		private Cursor(TickEventRing ring) {
+			this.ring = ring;
+			this.next = ring.published();
+		}
+
+		/**
+		 * Reads the next event, if one was published, and returns whether it did. Events that were overwritten
+		 * before they were read are skipped, and added to lost().
+		 * @mutates | this
+		 */
+		public boolean poll() {
+			int capacity = ring.mask + 1;
+			long available = ring.published();
+			while (next < available) {
+				if (available - next >= capacity) {
+					// The producer may be writing the slot of next, or already wrote a later event into it
+					lost += available - capacity + 1 - next;
+					next = available - capacity + 1;
+				}
+				int slot = (int) next & ring.mask;
+				long sequence = (long) SEQUENCES.getAcquire(ring.sequences, slot);
+				if (sequence == next + 1) {
+					type = ring.types[slot];
+					tick = ring.ticks[slot];
+					x = ring.xs[slot];
+					y = ring.ys[slot];
+					value = ring.values[slot];
+					// The event is only valid if the producer did not claim its slot while it was being read
+					VarHandle.acquireFence();
+					if ((long) SEQUENCES.getOpaque(ring.sequences, slot) == sequence) {
+						next++;
+						return true;
+					}
+				}
+				// The event was published, so its slot was claimed for a later one
+				lost++;
+				next++;
+				available = ring.published();
+			}
+			return false;
+		}
+
+		/**
+		 * Returns the number of events that were overwritten before this cursor could read them.
+		 */
+		public long lost() {
+			return lost;
+		}
+
+		/**
+		 * Returns the type of the event read by the latest successful call of poll, e.g. BLOCK_DESTROYED.
+		 */
+		public int type() {
+			return type;
+		}
+
+		/**
+		 * Returns the number of the tick during which the event read by the latest successful call of poll happened,
+		 * counting from 1 for the first tick of the game state.
+		 */
+		public long tick() {
+			return tick;
+		}
+
+		/**
+		 * Returns the X coordinate of the event read by the latest successful call of poll.
+		 */
+		public int x() {
+			return x;
+		}
+
+		/**
+		 * Returns the Y coordinate of the event read by the latest successful call of poll.
+		 */
+		public int y() {
+			return y;
+		}
+
+		/**
+		 * Returns the value of the event read by the latest successful call of poll.
+		 */
+		public int value() {
+			return value;
+		}
+	}
+}
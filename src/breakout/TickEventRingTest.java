@@ -0,0 +1,118 @@
+package breakout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class TickEventRingTest {
+
+	@Test
+	void testPoll() {
+		TickEventRing ring = new TickEventRing(8);
+		assertEquals(8, ring.capacity());
+		ring.publish(TickEventRing.BALL_LOST, 1, 10, 20, 5);
+		// a cursor only reads the events published after it was created
+		TickEventRing.Cursor cursor = ring.cursor();
+		assertFalse(cursor.poll());
+		ring.publish(TickEventRing.BLOCK_HIT, 2, 30, 40, 1);
+		ring.publish(TickEventRing.BLOCK_DESTROYED, 2, 30, 40, 0);
+		assertEquals(3, ring.published());
+
+		assertTrue(cursor.poll());
+		assertEquals(TickEventRing.BLOCK_HIT, cursor.type());
+		assertEquals(2, cursor.tick());
+		assertEquals(30, cursor.x());
+		assertEquals(40, cursor.y());
+		assertEquals(1, cursor.value());
+		assertTrue(cursor.poll());
+		assertEquals(TickEventRing.BLOCK_DESTROYED, cursor.type());
+		assertEquals(0, cursor.value());
+		assertFalse(cursor.poll());
+		assertEquals(0, cursor.lost());
+
+		assertThrows(IllegalArgumentException.class, () -> new TickEventRing(6));
+		assertThrows(IllegalArgumentException.class, () -> new TickEventRing(1));
+	}
+
+	@Test
+	void testOverrun() {
+		// a cursor that falls behind by a full ring skips and counts the events that may have been overwritten
+		TickEventRing ring = new TickEventRing(4);
+		TickEventRing.Cursor cursor = ring.cursor();
+		for (int i=0; i<10; i++) {
+			ring.publish(TickEventRing.BALL_REPLICATED, i, i, 0, 1);
+		}
+		for (int i=7; i<10; i++) {
+			assertTrue(cursor.poll());
+			assertEquals(i, cursor.tick());
+		}
+		assertFalse(cursor.poll());
+		assertEquals(7, cursor.lost());
+	}
+
+	@Test
+	void testConcurrentConsumer() throws InterruptedException {
+		// events read by a concurrent consumer are never torn, and events are either read or counted as lost
+		TickEventRing ring = new TickEventRing(64);
+		TickEventRing.Cursor cursor = ring.cursor();
+		int count = 200000;
+		Thread producer = new Thread(() -> {
+			for (int i=0; i<count; i++) {
+				ring.publish(TickEventRing.BLOCK_HIT, i, i, -i, 2*i);
+			}
+		});
+		producer.start();
+		long read = 0;
+		long last = -1;
+		while (true) {
+			boolean done = !producer.isAlive();
+			if (cursor.poll()) {
+				read++;
+				assertTrue(cursor.tick() > last);
+				last = cursor.tick();
+				assertEquals(last, cursor.x());
+				assertEquals(-last, cursor.y());
+				assertEquals(2*last, cursor.value());
+			}
+			else if (done) {
+				break;
+			}
+		}
+		producer.join();
+		assertEquals(count, read + cursor.lost());
+	}
+
+	@Test
+	void testLappingConsumer() throws InterruptedException {
+		// a producer lapping the consumer over and over never makes it read an event mixing the fields of two events
+		TickEventRing ring = new TickEventRing(2);
+		TickEventRing.Cursor cursor = ring.cursor();
+		int count = 1000000;
+		Thread producer = new Thread(() -> {
+			for (int i=0; i<count; i++) {
+				ring.publish(i % 7, i, i, i * 31, i ^ 0x5555);
+			}
+		});
+		producer.start();
+		long read = 0;
+		long last = -1;
+		while (true) {
+			boolean done = !producer.isAlive();
+			if (cursor.poll()) {
+				read++;
+				long i = cursor.tick();
+				assertTrue(i > last);
+				last = i;
+				assertEquals(i % 7, cursor.type());
+				assertEquals((int) i, cursor.x());
+				assertEquals((int) i * 31, cursor.y());
+				assertEquals((int) i ^ 0x5555, cursor.value());
+			}
+			else if (done) {
+				break;
+			}
+		}
+		producer.join();
+		assertEquals(count, read + cursor.lost());
+	}
+}
@@ -0,0 +1,255 @@
+package breakout;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.logging.Logger;
+
+/**
+ * Each instance of this class performs the iterations of a breakout game while keeping track of their cost, and
+ * degrades the game gracefully when the configured limits are hit, e.g. when a replicator paddle multiplies the
+ * number of balls.
+ *
+ * When the average cost of an iteration exceeds the tick budget, co-located balls with identical velocities are merged
+ * and, if that does not suffice, the level of detail used for rendering is reduced until the cost has dropped below
+ * half of the budget for a while. Independently, the number of balls is capped at the configured maximum.
+ *
+ * Every action that fires is logged and counted, and if a replay writer or a rewind buffer is set, every iteration
+ * and every merge and cap is recorded to it.
+ *
+ * @invar | getTickBudgetNanos() > 0
+ * @invar | getMaxBalls() > 0
+ * @invar | getMerges() >= 0 && getMergedBalls() >= getMerges()
+ * @invar | getCaps() >= 0 && getCappedBalls() >= getCaps()
+ * @invar | getDetailReductions() >= 0
+ */
+public class TickGovernor {
+
+	private static final Logger LOGGER = Logger.getLogger(TickGovernor.class.getName());
+
+	// The weight of the latest iteration in the average cost of an iteration
+	private static final double SMOOTHING = 0.125;
+	// The number of consecutive cheap iterations after which the full level of detail is restored
+	private static final int RESTORE_TICKS = 50;
+
+	/**
+	 * @invar | tickBudgetNanos > 0
+	 * @invar | maxBalls > 0
+	 */
+	private final long tickBudgetNanos;
+	private final int maxBalls;
+
+	private double averageTickNanos;
+	private long lastTickNanos;
+	private boolean reducedDetail;
+	private int cheapTicks;
+	// The game state and the version of its balls at the latest merge that removed no balls. Duplicate balls only
+	// arise when balls are added, which changes the version, so merging is not tried again until it does.
+	private BreakoutState fruitlessState;
+	private long fruitlessVersion;
+
+	private long merges;
+	private long mergedBalls;
+	private long caps;
+	private long cappedBalls;
+	private long detailReductions;
+
+	private ReplayWriter replay;
+	private RewindBuffer rewind;
+
+	/**
+	 * Returns a governor that keeps the average cost of an iteration within the supplied budget, and the number of
+	 * balls at or below the supplied maximum.
+	 * @throws IllegalArgumentException if the budget or the maximum number of balls is not positive.
+	 * 	| tickBudgetNanos <= 0 || maxBalls <= 0
+	 * @post | getTickBudgetNanos() == tickBudgetNanos
+	 * @post | getMaxBalls() == maxBalls
+	 * @post | !isDetailReduced()
+	 */
+	public TickGovernor(long tickBudgetNanos, int maxBalls) {
+		if (tickBudgetNanos <= 0 || maxBalls <= 0) {
+			throw new IllegalArgumentException("You have supplied an invalid governor configuration!");
+		}
+		this.tickBudgetNanos = tickBudgetNanos;
+		this.maxBalls = maxBalls;
+	}
+
+	/**
+	 * Returns the budget in ns for the average cost of an iteration.
+	 */
+	public long getTickBudgetNanos() {
+		return tickBudgetNanos;
+	}
+
+	/**
+	 * Returns the maximum number of balls.
+	 */
+	public int getMaxBalls() {
+		return maxBalls;
+	}
+
+	/**
+	 * Returns the cost in ns of the latest iteration.
+	 */
+	public long getLastTickNanos() {
+		return lastTickNanos;
+	}
+
+	/**
+	 * Returns the exponential moving average of the cost in ns of the iterations.
+	 */
+	public double getAverageTickNanos() {
+		return averageTickNanos;
+	}
+
+	/**
+	 * Returns whether the game should currently be rendered with a reduced level of detail.
+	 */
+	public boolean isDetailReduced() {
+		return reducedDetail;
+	}
+
+	/**
+	 * Returns the number of times balls were merged.
+	 */
+	public long getMerges() {
+		return merges;
+	}
+
+	/**
+	 * Returns the total number of balls removed by merging.
+	 */
+	public long getMergedBalls() {
+		return mergedBalls;
+	}
+
+	/**
+	 * Returns the number of times the number of balls was capped.
+	 */
+	public long getCaps() {
+		return caps;
+	}
+
+	/**
+	 * Returns the total number of balls removed by capping.
+	 */
+	public long getCappedBalls() {
+		return cappedBalls;
+	}
+
+	/**
+	 * Returns the number of times the level of detail was reduced.
+	 */
+	public long getDetailReductions() {
+		return detailReductions;
+	}
+
+	/**
+	 * Returns the writer to which the iterations are recorded, or null if they are not recorded.
+	 */
+	public ReplayWriter getReplayWriter() {
+		return replay;
+	}
+
+	/**
+	 * Sets the writer to which the iterations are recorded, or stops recording them if null is supplied.
+	 * @mutates | this
+	 * @post | getReplayWriter() == replay
+	 */
+	public void setReplayWriter(ReplayWriter replay) {
+		this.replay = replay;
+	}
+
+	/**
+	 * Returns the buffer to which the iterations are recorded for rewinding, or null if they are not recorded.
+	 */
+	public RewindBuffer getRewindBuffer() {
+		return rewind;
+	}
+
+	/**
+	 * Sets the buffer to which the iterations are recorded for rewinding, or stops recording them if null is supplied.
+	 * @mutates | this
+	 * @post | getRewindBuffer() == rewind
+	 */
+	public void setRewindBuffer(RewindBuffer rewind) {
+		this.rewind = rewind;
+	}
+
+	/**
+	 * Moves the paddle of the supplied game state in the supplied direction and performs one iteration of the game,
+	 * measures its cost and takes the actions required to stay within the configured limits.
+	 * @mutates | this, state
+	 * @pre | state != null
+	 * @pre | paddleDir == 0 || paddleDir == 1 || paddleDir == -1
+	 * @pre | elapsedTime > 0 && elapsedTime <= BreakoutState.MAX_ELAPSED_TIME
+	 * @post | state.getBalls().length <= getMaxBalls()
+	 * @throws UncheckedIOException if the iteration cannot be recorded to the replay writer.
+	 */
+	public void step(BreakoutState state, int paddleDir, int elapsedTime) {
+		if (replay != null) {
+			try {
+				replay.recordStep(state, paddleDir, elapsedTime);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		if (rewind != null) {
+			rewind.recordStep(state, paddleDir, elapsedTime);
+		}
+		long start = System.nanoTime();
+		state.step(paddleDir, elapsedTime);
+		lastTickNanos = System.nanoTime() - start;
+		averageTickNanos = averageTickNanos == 0 ? lastTickNanos :
+			averageTickNanos + SMOOTHING * (lastTickNanos - averageTickNanos);
+
+		if (averageTickNanos > tickBudgetNanos) {
+			cheapTicks = 0;
+			boolean changed = state != fruitlessState || state.getBallsVersion() != fruitlessVersion;
+			int merged = changed ? state.mergeDuplicateBalls() : 0;
+			if (changed) {
+				fruitlessState = merged > 0 ? null : state;
+				fruitlessVersion = state.getBallsVersion();
+			}
+			if (merged > 0) {
+				if (replay != null) {
+					replay.recordMerge();
+				}
+				if (rewind != null) {
+					rewind.recordMerge();
+				}
+				merges++;
+				mergedBalls += merged;
+				LOGGER.info(() -> String.format("Average tick cost %.0f ns exceeds budget of %d ns: merged %d balls",
+						averageTickNanos, tickBudgetNanos, merged));
+			}
+			else if (!reducedDetail) {
+				reducedDetail = true;
+				detailReductions++;
+				LOGGER.info(() -> String.format("Average tick cost %.0f ns exceeds budget of %d ns: reduced detail",
+						averageTickNanos, tickBudgetNanos));
+			}
+		}
+		else if (averageTickNanos >= tickBudgetNanos / 2) {
+			cheapTicks = 0;
+		}
+		else if (reducedDetail && ++cheapTicks >= RESTORE_TICKS) {
+			reducedDetail = false;
+			LOGGER.info(() -> String.format("Average tick cost %.0f ns is back within budget: restored detail",
+					averageTickNanos));
+		}
+
+		int capped = state.capBalls(maxBalls);
+		if (capped > 0) {
+			if (replay != null) {
+				replay.recordCap(maxBalls);
+			}
+			if (rewind != null) {
+				rewind.recordCap(maxBalls);
+			}
+			caps++;
+			cappedBalls += capped;
+			LOGGER.info(() -> String.format("Number of balls exceeds maximum of %d: removed %d balls", maxBalls, capped));
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package breakout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class TickGovernorTest {
+	
+	BreakoutFacade facade = new BreakoutFacade();
+	Point bottomRight = new Point(50000, 30000);
+	PaddleState paddle = facade.createNormalPaddleState(new Point(25000, 24000));
+	BlockState[] blocks = {facade.createNormalBlockState(new Point(10000, 1000), new Point(20000, 3000))};
+	
+	Ball ballAt(int x) {
+		return facade.createNormalBall(new Point(x, 10000), 700, new Vector(1, 5));
+	}
+	
+	@Test
+	void testConstr() {
+		assertThrows(IllegalArgumentException.class, () -> new TickGovernor(0, 10));
+		assertThrows(IllegalArgumentException.class, () -> new TickGovernor(10, 0));
+		TickGovernor governor = new TickGovernor(1000, 10);
+		assertEquals(1000, governor.getTickBudgetNanos());
+		assertEquals(10, governor.getMaxBalls());
+		assertFalse(governor.isDetailReduced());
+	}
+	
+	@Test
+	void testCap() {
+		Ball[] balls = {ballAt(1000), ballAt(2000), ballAt(3000), ballAt(4000)};
+		BreakoutState state = facade.createBreakoutState(balls, blocks, bottomRight, paddle);
+		TickGovernor governor = new TickGovernor(Long.MAX_VALUE, 3);
+		governor.step(state, 0, 20);
+		assertEquals(3, state.getBalls().length);
+		assertEquals(balls[2], state.getBalls()[2]);
+		assertEquals(1, governor.getCaps());
+		assertEquals(1, governor.getCappedBalls());
+		assertEquals(0, governor.getMerges());
+		assertFalse(governor.isDetailReduced());
+		assertEquals(StateHash.of(state.getBalls(), state.getBlocks(), state.getPaddle()), state.stateHash());
+	}
+	
+	@Test
+	void testMergeAndDetail() {
+		Ball[] balls = {ballAt(1000), ballAt(2000), ballAt(1000), ballAt(1000)};
+		BreakoutState state = facade.createBreakoutState(balls, blocks, bottomRight, paddle);
+		// Every tick exceeds a budget of 1 ns
+		TickGovernor governor = new TickGovernor(1, 10);
+		governor.step(state, 0, 20);
+		assertEquals(2, state.getBalls().length);
+		assertEquals(balls[0], state.getBalls()[0]);
+		assertEquals(balls[1], state.getBalls()[1]);
+		assertEquals(1, governor.getMerges());
+		assertEquals(2, governor.getMergedBalls());
+		assertFalse(governor.isDetailReduced());
+		assertEquals(StateHash.of(state.getBalls(), state.getBlocks(), state.getPaddle()), state.stateHash());
+		assertTrue(governor.getLastTickNanos() > 0);
+		
+		// Nothing is left to merge, so the detail is reduced instead
+		governor.step(state, 0, 20);
+		assertEquals(2, state.getBalls().length);
+		assertEquals(1, governor.getMerges());
+		assertTrue(governor.isDetailReduced());
+		assertEquals(1, governor.getDetailReductions());
+		governor.step(state, 0, 20);
+		assertEquals(1, governor.getDetailReductions());
+	}
+}
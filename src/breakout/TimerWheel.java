@@ -0,0 +1,234 @@
+package breakout;
+
+/**
+ * Each instance of this class represents a hierarchical timer wheel with a resolution of 1 ms, which fires scheduled
+ * timers once the simulated time passes their deadline.
+ *
+ * The wheel has four levels of 64 slots each; a slot of level k spans 64^k ms. Timers are scheduled into the level
+ * matching how far their deadline lies ahead, and cascade down a level whenever the time enters the span of their
+ * slot. Timers due further ahead than the four levels cover are kept in an overflow list.
+ *
+ * The timers are linked into the lists of the slots themselves, so that scheduling, rescheduling and cancelling a
+ * timer take constant time and allocate nothing, and advancing the time by one tick takes time proportional to the
+ * elapsed number of milliseconds and the number of timers fired or cascaded.
+ *
+ * @invar | getTime() >= 0
+ * @invar | size() >= 0
+ */
+final class TimerWheel<T extends TimerWheel.Timer> {
+
+	/**
+	 * Each instance of this interface handles the timers fired by a timer wheel.
+	 */
+	interface Handler<T> {
+		/**
+		 * Handles the supplied timer, which is no longer scheduled.
+		 */
+		void fired(T timer);
+	}
+
+	/**
+	 * Each instance of this class represents a timer that is scheduled in at most one timer wheel at a time.
+	 * Subclasses attach what the timer is for.
+	 */
+	static class Timer {
+		// The deadline the timer was scheduled with most recently, the list of the wheel holding it, or NOT_SCHEDULED,
+		// and its neighbours in that list
+		private long deadline;
+		private int list = NOT_SCHEDULED;
+		private Timer prev;
+		private Timer next;
+
+		/**
+		 * Returns the deadline this timer was scheduled with most recently.
+		 */
+		long getDeadline() {
+			return deadline;
+		}
+
+		/**
+		 * Returns whether this timer is scheduled and has not fired or been cancelled since.
+		 */
+		boolean isScheduled() {
+			return list != NOT_SCHEDULED;
+		}
+	}
+
+	private static final int LEVELS = 4;
+	private static final int SLOT_BITS = 6;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+	// The lists holding the timers whose deadline had already passed when they were scheduled, and the timers whose
+	// deadline lies beyond the span of the wheel, following the slots of all levels
+	private static final int DUE = LEVELS * SLOTS;
+	private static final int OVERFLOW = DUE + 1;
+	private static final int NOT_SCHEDULED = -1;
+
+	/**
+	 * @invar | lists != null && lists.length == OVERFLOW + 1
+	 * @invar | time >= 0
+	 * @invar | size >= 0
+	 */
+	// The first timer of each list, with slot s of level k at index k * SLOTS + s
+	private final Timer[] lists = new Timer[OVERFLOW + 1];
+	private long time;
+	private int size;
+
+	/**
+	 * Returns an empty timer wheel at the supplied time.
+	 * @pre | time >= 0
+	 * @post | getTime() == time
+	 * @post | size() == 0
+	 */
+	TimerWheel(long time) {
+		this.time = time;
+	}
+
+	/**
+	 * Returns the current time of this timer wheel in ms.
+	 */
+	long getTime() {
+		return time;
+	}
+
+	/**
+	 * Returns the number of timers that are scheduled and have not fired yet.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Schedules the supplied timer to fire once the time of this timer wheel reaches the supplied deadline, or
+	 * at the next advance if the deadline has already passed. A timer that is scheduled already is moved to the
+	 * new deadline.
+	 * @mutates | this, item
+	 * @pre | item != null
+	 * @pre | !item.isScheduled() || the timer is scheduled in this wheel
+	 * @post | item.isScheduled() && item.getDeadline() == deadline
+	 * @post | size() == old(size()) + (old(item.isScheduled()) ? 0 : 1)
+	 */
+	void schedule(T item, long deadline) {
+		// The private fields of a timer are not members of the type parameter
+		Timer timer = item;
+		if (timer.list == NOT_SCHEDULED) {
+			size++;
+		}
+		else {
+			unlink(timer);
+		}
+		timer.deadline = deadline;
+		insert(timer);
+	}
+
+	/**
+	 * Cancels the supplied timer, so that it does not fire, if it is scheduled.
+	 * @mutates | this, item
+	 * @pre | item != null
+	 * @pre | !item.isScheduled() || the timer is scheduled in this wheel
+	 * @post | !item.isScheduled()
+	 * @post | size() == old(size()) - (old(item.isScheduled()) ? 1 : 0)
+	 */
+	void cancel(T item) {
+		Timer timer = item;
+		if (timer.list != NOT_SCHEDULED) {
+			unlink(timer);
+			size--;
+		}
+	}
+
+	private void insert(Timer timer) {
+		long delta = timer.deadline - time;
+		if (delta <= 0) {
+			link(timer, DUE);
+			return;
+		}
+		for (int level=0; level<LEVELS; level++) {
+			if (delta < 1L << (SLOT_BITS * (level+1))) {
+				int slot = (int) (timer.deadline >>> (SLOT_BITS * level)) & SLOT_MASK;
+				link(timer, level * SLOTS + slot);
+				return;
+			}
+		}
+		link(timer, OVERFLOW);
+	}
+
+	private void link(Timer timer, int list) {
+		Timer first = lists[list];
+		timer.list = list;
+		timer.prev = null;
+		timer.next = first;
+		if (first != null) {
+			first.prev = timer;
+		}
+		lists[list] = timer;
+	}
+
+	private void unlink(Timer timer) {
+		if (timer.prev == null) {
+			lists[timer.list] = timer.next;
+		}
+		else {
+			timer.prev.next = timer.next;
+		}
+		if (timer.next != null) {
+			timer.next.prev = timer.prev;
+		}
+		timer.list = NOT_SCHEDULED;
+		timer.prev = null;
+		timer.next = null;
+	}
+
+	/**
+	 * Advances the time of this timer wheel to the supplied time, and passes every timer whose deadline is reached
+	 * to the supplied handler.
+	 * @mutates | this
+	 * @pre | newTime >= getTime()
+	 * @pre | handler != null
+	 * @post | getTime() == newTime
+	 */
+	void advanceTo(long newTime, Handler<? super T> handler) {
+		fire(DUE, handler);
+		while (time < newTime) {
+			time++;
+			if ((time & ((1L << (SLOT_BITS * LEVELS)) - 1)) == 0) {
+				cascade(OVERFLOW);
+			}
+			// Let the timers of the higher-level slots whose span starts now move down a level
+			for (int level=LEVELS-1; level>0; level--) {
+				if ((time & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+					cascade(level * SLOTS + ((int) (time >>> (SLOT_BITS * level)) & SLOT_MASK));
+				}
+			}
+			fire((int) time & SLOT_MASK, handler);
+		}
+	}
+
+	private void cascade(int list) {
+		Timer timer = lists[list];
+		lists[list] = null;
+		while (timer != null) {
+			Timer next = timer.next;
+			if (timer.deadline == time) {
+				// Due right now, so add it to the slot that is about to fire
+				link(timer, (int) time & SLOT_MASK);
+			}
+			else {
+				insert(timer);
+			}
+			timer = next;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void fire(int list, Handler<? super T> handler) {
+		// The handler may schedule and cancel timers, so the list is only ever read at its head
+		Timer timer;
+		while ((timer = lists[list]) != null) {
+			unlink(timer);
+			size--;
+			// Only timers of type T are ever scheduled
+			handler.fired((T) timer);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package breakout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTest {
+
+	static class Named extends TimerWheel.Timer {
+		final String name;
+
+		Named(String name) {
+			this.name = name;
+		}
+	}
+
+	@Test
+	void testFire() {
+		TimerWheel<Named> wheel = new TimerWheel<>(100);
+		assertEquals(100, wheel.getTime());
+		Named b = new Named("b");
+		wheel.schedule(new Named("a"), 120);
+		wheel.schedule(new Named("now"), 100);
+		wheel.schedule(new Named("overdue"), 50);
+		wheel.schedule(b, 100 + 10000);
+		assertEquals(4, wheel.size());
+		assertTrue(b.isScheduled());
+
+		List<String> fired = new ArrayList<>();
+		wheel.advanceTo(119, timer -> fired.add(timer.name));
+		assertEquals(2, fired.size());
+		assertTrue(fired.contains("now") && fired.contains("overdue"));
+		wheel.advanceTo(120, timer -> fired.add(timer.name));
+		assertEquals(List.of("a"), fired.subList(2, 3));
+		wheel.advanceTo(10099, timer -> fired.add(timer.name));
+		assertEquals(3, fired.size());
+		assertEquals(1, wheel.size());
+		wheel.advanceTo(10150, timer -> fired.add(timer.name + "@" + timer.getDeadline()));
+		assertEquals("b@10100", fired.get(3));
+		assertEquals(0, wheel.size());
+		assertFalse(b.isScheduled());
+	}
+
+	@Test
+	void testCancelAndReschedule() {
+		TimerWheel<Named> wheel = new TimerWheel<>(0);
+		Named cancelled = new Named("cancelled");
+		Named moved = new Named("moved");
+		Named kept = new Named("kept");
+		wheel.schedule(cancelled, 10);
+		wheel.schedule(moved, 10);
+		wheel.schedule(kept, 10);
+		wheel.cancel(cancelled);
+		wheel.cancel(cancelled);
+		wheel.schedule(moved, 5000);
+		assertEquals(2, wheel.size());
+		assertFalse(cancelled.isScheduled());
+		assertEquals(5000, moved.getDeadline());
+
+		List<String> fired = new ArrayList<>();
+		wheel.advanceTo(4999, timer -> fired.add(timer.name));
+		assertEquals(List.of("kept"), fired);
+
+		// A fired timer can be scheduled again
+		wheel.schedule(kept, 4999);
+		wheel.advanceTo(5000, timer -> fired.add(timer.name));
+		assertEquals(List.of("kept", "kept", "moved"), fired);
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	void testRandomDeadlines() {
+		// Every timer fires exactly at its deadline, across all levels and the overflow list, unless it is cancelled
+		Random random = new Random(42);
+		TimerWheel<Named> wheel = new TimerWheel<>(0);
+		int count = 2000;
+		List<Named> timers = new ArrayList<>();
+		for (int i=0; i<count; i++) {
+			long deadline = random.nextInt(4) == 0 ? random.nextInt(1 << 26) : random.nextInt(20000);
+			Named timer = new Named(Long.toString(deadline));
+			wheel.schedule(timer, deadline);
+			timers.add(timer);
+		}
+		int cancelled = 0;
+		for (int i=0; i<count; i+=3) {
+			wheel.cancel(timers.get(i));
+			cancelled++;
+		}
+		assertEquals(count - cancelled, wheel.size());
+		long[] firedCount = new long[1];
+		long[] previous = new long[1];
+		while (wheel.size() > 0) {
+			long now = previous[0] + 1 + random.nextInt(50000);
+			// Every timer fires during the advance in which the time passes its deadline
+			wheel.advanceTo(now, timer -> {
+				long deadline = timer.getDeadline();
+				assertEquals(Long.parseLong(timer.name), deadline);
+				assertTrue(deadline <= now && (deadline > previous[0] || deadline == 0));
+				firedCount[0]++;
+			});
+			previous[0] = now;
+		}
+		assertEquals(count - cancelled, firedCount[0]);
+	}
+}
@@ -0,0 +1,37 @@
+package breakout;
+
+/**
+ * Each instance of this class represents a paddle controller that moves the paddle towards the position at which
+ * the ball that arrives first will reach the paddle, as predicted by a TrajectoryPredictor.
+ */
+public class TrackingAutopilot implements PaddleController {
+	
+	private TrajectoryPredictor predictor;
+	
+	public int decide(BreakoutState state, int elapsedTime) {
+		if (predictor == null || predictor.getState() != state) {
+			predictor = new TrajectoryPredictor(state);
+		}
+		
+		// Find the ball that arrives first
+		int first = -1;
+		int firstTime = Integer.MAX_VALUE;
+		for (int i=0; i<state.ballCount(); i++) {
+			int time = predictor.landingTime(i);
+			if (first == -1 || time < firstTime) {
+				first = i;
+				firstTime = time;
+			}
+		}
+		if (first == -1) {
+			return 0;
+		}
+		
+		// Move towards it, unless the paddle would overshoot
+		int offset = predictor.landingX(first) - state.paddleCenterX();
+		if (Math.abs(offset) <= 10*elapsedTime) {
+			return 0;
+		}
+		return offset > 0 ? 1 : -1;
+	}
+}
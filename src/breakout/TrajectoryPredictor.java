@@ -0,0 +1,291 @@
+package breakout;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Each instance of this class predicts where the balls of a breakout game state will cross the line at which they
+ * reach the top of the paddle, by ray-casting their paths through the bounces on the walls of the game field and on
+ * the blocks.
+ *
+ * The prediction for a ball is cached until its velocity changes or a block of the game state is removed or replaced,
+ * since the ball keeps following the predicted path in the meantime. Hence, answering a query takes constant time
+ * amortized over the ticks of the game. Note that the prediction ignores the expiry of supercharged balls.
+ *
+ * Instances of this class are not thread-safe.
+ *
+ * @invar | getState() != null
+ * @invar | getComputations() >= 0 && getComputations() <= getQueries()
+ */
+public class TrajectoryPredictor {
+
+	// The maximum number of bounces a ray-cast follows before giving up
+	public static final int MAX_BOUNCES = 64;
+
+	// The events ending a segment of a predicted path
+	private static final int LANDING = 0;
+	private static final int VERTICAL_WALL = 1;
+	private static final int HORIZONTAL_WALL = 2;
+	private static final int BLOCK_SIDE = 3;
+	private static final int BLOCK_TOP_BOTTOM = 4;
+
+	/**
+	 * Each instance of this class represents the cached prediction for a ball.
+	 */
+	private static final class Prediction {
+		// The velocity and the center of the ball at the time of the prediction
+		final int vx;
+		final int vy;
+		final int x;
+		final int y;
+		// The version of the blocks and the landing line the prediction was made for
+		final long blocksVersion;
+		final int landingY;
+		// The predicted landing X, and the time in ms it takes to get there, or -1 if the ball does not land
+		final int landingX;
+		final double time;
+
+		Prediction(int vx, int vy, int x, int y, long blocksVersion, int landingY, int landingX, double time) {
+			this.vx = vx;
+			this.vy = vy;
+			this.x = x;
+			this.y = y;
+			this.blocksVersion = blocksVersion;
+			this.landingY = landingY;
+			this.landingX = landingX;
+			this.time = time;
+		}
+	}
+
+	/**
+	 * @invar | state != null
+	 * @invar | cache != null
+	 */
+	private final BreakoutState state;
+	private final Map<Ball, Prediction> cache = new WeakHashMap<>();
+	private long queries;
+	private long computations;
+	// Whether the latest rectangle entered by a ray-cast was entered through one of its vertical sides
+	private boolean enteredThroughSide;
+
+	/**
+	 * Returns a predictor for the balls of the supplied game state.
+	 * @throws IllegalArgumentException if no game state is supplied.
+	 * 	| state == null
+	 * @post | getState() == state
+	 * @post | getQueries() == 0
+	 */
+	public TrajectoryPredictor(BreakoutState state) {
+		if (state == null) {
+			throw new IllegalArgumentException("You have not supplied a valid game state!");
+		}
+		this.state = state;
+	}
+
+	/**
+	 * Returns the game state whose balls are predicted by this predictor.
+	 */
+	public BreakoutState getState() {
+		return state;
+	}
+
+	/**
+	 * Returns the number of predictions requested so far.
+	 */
+	public long getQueries() {
+		return queries;
+	}
+
+	/**
+	 * Returns the number of predictions that were not answered from the cache, and required a ray-cast.
+	 */
+	public long getComputations() {
+		return computations;
+	}
+
+	/**
+	 * Returns the X coordinate at which the center of the ball at the supplied index will be when the ball reaches
+	 * the top of the paddle, or the current X coordinate of its center if it does not get there within MAX_BOUNCES
+	 * bounces.
+	 * @pre | 0 <= index && index < getState().getBalls().length
+	 * @post | 0 <= result && result <= getState().getBottomRight().getX()
+	 */
+	public int landingX(int index) {
+		Ball ball = state.ballAt(index);
+		Prediction prediction = predictionFor(ball);
+		if (prediction.time < 0) {
+			return Math.max(0, Math.min(state.getBottomRight().getX(), ball.centerX()));
+		}
+		return prediction.landingX;
+	}
+
+	/**
+	 * Returns the time in ms it takes the ball at the supplied index to reach the top of the paddle,
+	 * or Integer.MAX_VALUE if it does not get there within MAX_BOUNCES bounces.
+	 * @pre | 0 <= index && index < getState().getBalls().length
+	 * @post | result >= 0
+	 */
+	public int landingTime(int index) {
+		Ball ball = state.ballAt(index);
+		Prediction prediction = predictionFor(ball);
+		if (prediction.time < 0) {
+			return Integer.MAX_VALUE;
+		}
+		// The ball moved along the first segment of the predicted path since the prediction was made
+		double travelled = prediction.vy != 0 ? (double) (ball.centerY() - prediction.y) / prediction.vy
+				: (double) (ball.centerX() - prediction.x) / prediction.vx;
+		return (int) Math.max(0, Math.ceil(prediction.time - travelled));
+	}
+
+	/**
+	 * Returns the cached prediction for the supplied ball if it is still valid, or a newly computed one otherwise.
+	 */
+	private Prediction predictionFor(Ball ball) {
+		queries++;
+		int landingY = state.paddleTop() - ball.getDiameter()/2;
+		Prediction prediction = cache.get(ball);
+		if (prediction == null || prediction.vx != ball.velX() || prediction.vy != ball.velY() ||
+				prediction.blocksVersion != state.getBlocksVersion() || prediction.landingY != landingY) {
+			computations++;
+			prediction = predict(ball, landingY);
+			cache.put(ball, prediction);
+		}
+		return prediction;
+	}
+
+	/**
+	 * Ray-casts the path of the supplied ball until its center reaches the supplied Y coordinate.
+	 *
+	 * The ball is treated as a point moving through the blocks enlarged by its radius. Blocks that would be destroyed
+	 * by a hit are left out once hit, and supercharged balls pass through them.
+	 */
+	private Prediction predict(Ball ball, int landingY) {
+		int centerX = ball.centerX();
+		int centerY = ball.centerY();
+		int radius = ball.getDiameter()/2;
+		int width = state.getBottomRight().getX();
+		boolean supercharged = ball instanceof SuperBall;
+
+		BlockTable blocks = state.blockTable();
+		int[] hitsLeft = blocks.lifetimes();
+
+		double x = centerX;
+		double y = centerY;
+		int vx = ball.velX();
+		int vy = ball.velY();
+		double time = 0;
+		if (vy > 0 && y >= landingY) {
+			// The ball has already passed the landing line
+			return new Prediction(ball.velX(), ball.velY(), centerX, centerY,
+					state.getBlocksVersion(), landingY, Math.max(0, Math.min(width, centerX)), 0);
+		}
+		for (int bounces=0; bounces<=MAX_BOUNCES; bounces++) {
+			double first = Double.POSITIVE_INFINITY;
+			int event = -1;
+			int hitBlock = -1;
+
+			// Walls and landing line
+			if (vx != 0) {
+				first = Math.max(0, ((vx < 0 ? radius : width - radius) - x) / vx);
+				event = VERTICAL_WALL;
+			}
+			if (vy < 0 && Math.max(0, (radius - y) / vy) < first) {
+				first = Math.max(0, (radius - y) / vy);
+				event = HORIZONTAL_WALL;
+			}
+			if (vy > 0 && (landingY - y) / vy < first) {
+				first = (landingY - y) / vy;
+				event = LANDING;
+			}
+
+			// Blocks, enlarged by the radius of the ball
+			for (int j=0; j<hitsLeft.length; j++) {
+				if (hitsLeft[j] == 0) {
+					continue;
+				}
+				double enter = entryTime(x, y, vx, vy, blocks.left(j) - radius, blocks.top(j) - radius,
+						blocks.right(j) + radius, blocks.bottom(j) + radius);
+				if (enter < first) {
+					first = enter;
+					event = enteredThroughSide ? BLOCK_SIDE : BLOCK_TOP_BOTTOM;
+					hitBlock = j;
+				}
+			}
+			if (event == -1) {
+				break;
+			}
+
+			x += vx * first;
+			y += vy * first;
+			time += first;
+			switch (event) {
+			case LANDING -> {
+				int landingX = (int) Math.round(Math.max(0, Math.min(width, x)));
+				return new Prediction(ball.velX(), ball.velY(), centerX, centerY,
+						state.getBlocksVersion(), landingY, landingX, time);
+			}
+			case VERTICAL_WALL -> vx = -vx;
+			case HORIZONTAL_WALL -> vy = -vy;
+			case BLOCK_SIDE, BLOCK_TOP_BOTTOM -> {
+				hitsLeft[hitBlock]--;
+				boolean destroyed = hitsLeft[hitBlock] == 0;
+				if (!(supercharged && destroyed)) {
+					if (event == BLOCK_SIDE) {
+						vx = -vx;
+					}
+					else {
+						vy = -vy;
+					}
+				}
+				if (blocks.type(hitBlock) == BlockTable.POWERUP) {
+					supercharged = true;
+				}
+			}
+			}
+		}
+		return new Prediction(ball.velX(), ball.velY(), centerX, centerY,
+				state.getBlocksVersion(), landingY, 0, -1);
+	}
+
+	/**
+	 * Returns the time at which a point starting at (x,y) and moving with velocity (vx,vy) enters the supplied
+	 * rectangle, or positive infinity if it does not enter the rectangle in the future. Records in
+	 * enteredThroughSide whether the rectangle is entered through one of its vertical sides.
+	 */
+	private double entryTime(double x, double y, int vx, int vy, int left, int top, int right, int bottom) {
+		double xEnter, xExit, yEnter, yExit;
+		if (vx == 0) {
+			if (x < left || x > right) {
+				return Double.POSITIVE_INFINITY;
+			}
+			xEnter = Double.NEGATIVE_INFINITY;
+			xExit = Double.POSITIVE_INFINITY;
+		}
+		else {
+			double t1 = (left - x) / vx;
+			double t2 = (right - x) / vx;
+			xEnter = Math.min(t1, t2);
+			xExit = Math.max(t1, t2);
+		}
+		if (vy == 0) {
+			if (y < top || y > bottom) {
+				return Double.POSITIVE_INFINITY;
+			}
+			yEnter = Double.NEGATIVE_INFINITY;
+			yExit = Double.POSITIVE_INFINITY;
+		}
+		else {
+			double t1 = (top - y) / vy;
+			double t2 = (bottom - y) / vy;
+			yEnter = Math.min(t1, t2);
+			yExit = Math.max(t1, t2);
+		}
+		double enter = Math.max(xEnter, yEnter);
+		// Only consider rectangles entered in the future; a ball already inside is resolved by the game itself
+		if (enter <= 0 || enter >= Math.min(xExit, yExit)) {
+			return Double.POSITIVE_INFINITY;
+		}
+		enteredThroughSide = xEnter > yEnter;
+		return enter;
+	}
+}
@@ -0,0 +1,77 @@
+package breakout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class TrajectoryPredictorTest {
+	
+	BreakoutFacade facade = new BreakoutFacade();
+	Point bottomRight = new Point(50000, 30000);
+	// The top of the paddle is at Y = 24000 - 250, so the center of a ball with diameter 700 lands at Y = 23400
+	PaddleState paddle = facade.createNormalPaddleState(new Point(25000, 24000));
+	BlockState block = facade.createNormalBlockState(new Point(10000, 1000), new Point(20000, 3000));
+	
+	BreakoutState stateWith(Ball... balls) {
+		return facade.createBreakoutState(balls, new BlockState[] {block}, bottomRight, paddle);
+	}
+	
+	@Test
+	void testStraightDown() {
+		BreakoutState state = stateWith(facade.createNormalBall(new Point(30000, 20400), 700, new Vector(0, 5)));
+		TrajectoryPredictor predictor = new TrajectoryPredictor(state);
+		assertEquals(state, predictor.getState());
+		assertEquals(30000, predictor.landingX(0));
+		assertEquals(600, predictor.landingTime(0));
+	}
+	
+	@Test
+	void testWallBounce() {
+		// Hits the right wall at X = 50000 - 350 after 350 ms, and travels back for another 650 ms
+		BreakoutState state = stateWith(facade.createNormalBall(new Point(46150, 18400), 700, new Vector(10, 5)));
+		TrajectoryPredictor predictor = new TrajectoryPredictor(state);
+		assertEquals(49650 - 6500, predictor.landingX(0));
+		assertEquals(1000, predictor.landingTime(0));
+	}
+	
+	@Test
+	void testBlockBounce() {
+		// Hits the bottom of the block at Y = 3000 + 350 after 1000 ms, and travels down for another 4010 ms
+		BreakoutState state = stateWith(facade.createNormalBall(new Point(15000, 8350), 700, new Vector(1, -5)));
+		TrajectoryPredictor predictor = new TrajectoryPredictor(state);
+		assertEquals(15000 + 5010, predictor.landingX(0));
+		assertEquals(5010, predictor.landingTime(0));
+		
+		// A supercharged ball passes through the block it destroys, and bounces on the top wall instead
+		state = stateWith(facade.createSuperchargedBall(new Point(15000, 8350), 700, new Vector(1, -5), 10000));
+		predictor = new TrajectoryPredictor(state);
+		assertEquals(15000 + 1600 + 4610, predictor.landingX(0));
+	}
+	
+	@Test
+	void testCache() {
+		BreakoutState state = stateWith(facade.createNormalBall(new Point(15000, 8350), 700, new Vector(1, -5)),
+				facade.createNormalBall(new Point(30000, 20400), 700, new Vector(0, 5)));
+		TrajectoryPredictor predictor = new TrajectoryPredictor(state);
+		int landingX = predictor.landingX(0);
+		predictor.landingX(1);
+		assertEquals(2, predictor.getComputations());
+		
+		// The balls keep following their predicted paths
+		state.tick(0, 20);
+		assertEquals(landingX, predictor.landingX(0));
+		assertEquals(5010 - 20, predictor.landingTime(0));
+		assertEquals(600 - 20, predictor.landingTime(1));
+		assertEquals(5, predictor.getQueries());
+		assertEquals(2, predictor.getComputations());
+		
+		// The velocity of the first ball changes when it hits the block, which is destroyed
+		for (int i=0; i<49; i++) {
+			state.tick(0, 20);
+		}
+		assertEquals(0, state.getBlocks().length);
+		assertEquals(landingX, predictor.landingX(0));
+		predictor.landingX(1);
+		assertEquals(4, predictor.getComputations());
+	}
+}
@@ -0,0 +1,102 @@
+package breakout;
+
+/**
+ * Each instance of this class reads the integers written by a VarintWriter from a byte array.
+ */
+final class VarintReader {
+
+	/**
+	 * @invar | bytes != null
+	 * @invar | 0 <= position && position <= bytes.length
+	 */
+	private final byte[] bytes;
+	private int position;
+
+	/**
+	 * @pre | bytes != null
+	 */
+	VarintReader(byte[] bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Returns whether all bytes were read.
+	 */
+	boolean isAtEnd() {
+		return position == bytes.length;
+	}
+
+	/**
+	 * Returns the number of bytes left to read, which bounds the number of values that can still be read.
+	 * @post | result >= 0
+	 */
+	int remaining() {
+		return bytes.length - position;
+	}
+
+	/**
+	 * Reads a byte.
+	 * @throws IllegalArgumentException if there are no bytes left.
+	 * 	| isAtEnd()
+	 * @mutates | this
+	 */
+	int readByte() {
+		if (position == bytes.length) {
+			throw new IllegalArgumentException("The data ends unexpectedly");
+		}
+		return bytes[position++] & 0xFF;
+	}
+
+	/**
+	 * Reads a value written by VarintWriter.writeUnsigned.
+	 * @throws IllegalArgumentException if the data ends unexpectedly or the value does not fit in a long.
+	 * @mutates | this
+	 */
+	long readUnsigned() {
+		long value = 0;
+		for (int shift=0; shift<64; shift+=7) {
+			int b = readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("The data holds a malformed value");
+	}
+
+	/**
+	 * Reads a value written by VarintWriter.writeSigned.
+	 * @throws IllegalArgumentException if the data ends unexpectedly or the value does not fit in a long.
+	 * @mutates | this
+	 */
+	long readSigned() {
+		long value = readUnsigned();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Reads a value written by VarintWriter.writeUnsigned that must lie between 0 and the supplied maximum.
+	 * @throws IllegalArgumentException if the data ends unexpectedly or the value is out of range.
+	 * @mutates | this
+	 */
+	int readCount(int max) {
+		long value = readUnsigned();
+		if (value < 0 || value > max) {
+			throw new IllegalArgumentException("The data holds an out-of-range value");
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Reads a value written by VarintWriter.writeSigned that must fit in an int.
+	 * @throws IllegalArgumentException if the data ends unexpectedly or the value does not fit in an int.
+	 * @mutates | this
+	 */
+	int readInt() {
+		long value = readSigned();
+		if (value != (int) value) {
+			throw new IllegalArgumentException("The data holds an out-of-range value");
+		}
+		return (int) value;
+	}
+}
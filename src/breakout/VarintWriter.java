@@ -0,0 +1,76 @@
+package breakout;
+
+import java.util.Arrays;
+
+/**
+ * Each instance of this class represents a growable byte buffer to which integers are written as variable-length
+ * quantities: seven bits per byte, least significant group first, with the high bit of each byte set if more bytes
+ * follow. Signed values are zigzag-encoded first, so that values close to zero take a single byte whatever their sign.
+ *
+ * @invar | size() >= 0
+ */
+final class VarintWriter {
+
+	/**
+	 * @invar | bytes != null
+	 * @invar | 0 <= size && size <= bytes.length
+	 */
+	private byte[] bytes = new byte[256];
+	private int size;
+
+	/**
+	 * Returns the number of bytes written since the latest call of clear.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Discards the bytes written so far, keeping the buffer for reuse.
+	 * @mutates | this
+	 * @post | size() == 0
+	 */
+	void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Returns a copy of the bytes written since the latest call of clear.
+	 * @creates | result
+	 * @post | result.length == size()
+	 */
+	byte[] toByteArray() {
+		return Arrays.copyOf(bytes, size);
+	}
+
+	/**
+	 * Writes the supplied byte.
+	 * @mutates | this
+	 */
+	void writeByte(int value) {
+		if (size == bytes.length) {
+			bytes = Arrays.copyOf(bytes, size * 2);
+		}
+		bytes[size++] = (byte) value;
+	}
+
+	/**
+	 * Writes the supplied value, interpreted as unsigned.
+	 * @mutates | this
+	 */
+	void writeUnsigned(long value) {
+		while ((value & ~0x7FL) != 0) {
+			writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		writeByte((int) value);
+	}
+
+	/**
+	 * Writes the supplied signed value, zigzag-encoded.
+	 * @mutates | this
+	 */
+	void writeSigned(long value) {
+		writeUnsigned((value << 1) ^ (value >> 63));
+	}
+}
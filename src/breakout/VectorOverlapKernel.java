@@ -0,0 +1,69 @@
+package breakout;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Each instance of this class represents an overlap kernel testing as many slots per instruction as the preferred
+ * integer species of the Vector API holds. The sides are computed without branches: a lane gets the side of the
+ * first of the four tests of Geometry.overlap it passes, by blending the sides in reverse order of precedence.
+ *
+ * This class is only loaded by OverlapKernel if the jdk.incubator.vector module is present.
+ */
+final class VectorOverlapKernel extends OverlapKernel {
+
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	int lanes() {
+		return SPECIES.length();
+	}
+
+	long overlap(int ballLeft, int ballTop, int ballRight, int ballBottom, int[] lefts, int[] tops, int[] rights,
+			int[] bottoms, int[] lifetimes, int from, int to, int[] faces) {
+		int centerX = ballLeft + (ballRight - ballLeft)/2;
+		int centerY = ballTop + (ballBottom - ballTop)/2;
+		IntVector none = IntVector.broadcast(SPECIES, Geometry.NO_FACE);
+		long mask = 0;
+		int slot = from;
+		for (; slot <= to - SPECIES.length(); slot+=SPECIES.length()) {
+			IntVector left = IntVector.fromArray(SPECIES, lefts, slot);
+			IntVector top = IntVector.fromArray(SPECIES, tops, slot);
+			IntVector right = IntVector.fromArray(SPECIES, rights, slot);
+			IntVector bottom = IntVector.fromArray(SPECIES, bottoms, slot);
+			IntVector lifetime = IntVector.fromArray(SPECIES, lifetimes, slot);
+
+			// The ball's center lies within the block's Y range, or within its X range
+			VectorMask<Integer> acrossY = top.compare(VectorOperators.LE, centerY)
+					.and(bottom.compare(VectorOperators.GE, centerY));
+			VectorMask<Integer> acrossX = left.compare(VectorOperators.LE, centerX)
+					.and(right.compare(VectorOperators.GE, centerX));
+			VectorMask<Integer> hitsRight = acrossY.and(left.compare(VectorOperators.LE, ballRight))
+					.and(left.compare(VectorOperators.GT, ballLeft));
+			VectorMask<Integer> hitsLeft = acrossY.and(right.compare(VectorOperators.GE, ballLeft))
+					.and(right.compare(VectorOperators.LT, ballRight));
+			VectorMask<Integer> hitsDown = acrossX.and(top.compare(VectorOperators.LE, ballBottom))
+					.and(top.compare(VectorOperators.GT, ballTop));
+			VectorMask<Integer> hitsUp = acrossX.and(bottom.compare(VectorOperators.GE, ballTop))
+					.and(bottom.compare(VectorOperators.LT, ballBottom));
+
+			IntVector side = none.blend(Geometry.UP, hitsUp).blend(Geometry.DOWN, hitsDown)
+					.blend(Geometry.LEFT, hitsLeft).blend(Geometry.RIGHT, hitsRight);
+			side.intoArray(faces, slot - from);
+			VectorMask<Integer> hits = hitsRight.or(hitsLeft).or(hitsDown).or(hitsUp)
+					.and(lifetime.compare(VectorOperators.GT, 0));
+			mask |= hits.toLong() << (slot - from);
+		}
+		// The slots that do not fill a vector are tested one by one
+		for (; slot<to; slot++) {
+			int side = Geometry.overlap(ballLeft, ballTop, ballRight, ballBottom, lefts[slot], tops[slot],
+					rights[slot], bottoms[slot]);
+			faces[slot - from] = side;
+			if (side != Geometry.NO_FACE && lifetimes[slot] > 0) {
+				mask |= 1L << (slot - from);
+			}
+		}
+		return mask;
+	}
+}
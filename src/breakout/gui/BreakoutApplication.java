@@ -1,10 +1,17 @@
 package breakout.gui;
 
 import java.awt.EventQueue;
+import java.io.IOException;
+import java.nio.file.Path;
+
 import javax.swing.JFrame;
 
 import breakout.BreakoutState;
+import breakout.Checkpointer;
 import breakout.GameMap;
+import breakout.MonteCarloAutopilot;
+import breakout.PaddleController;
+import breakout.TrackingAutopilot;
 
 public class BreakoutApplication {
 
@@ -18,11 +25,46 @@ SSS!SSR!#S
      =
 
 """;
+
+	public static final String CHECKPOINT_OPTION = "--checkpoint=";
 	
-	public static void main(String[] args) {
-		BreakoutState state = GameMap.createStateFromDescription(initMap);
+	public static void main(String[] args) throws IOException {
+		// Let an autopilot play when started with --autopilot (Monte Carlo) or --tracking (trajectory prediction),
+		// and save the game periodically when started with --checkpoint=<file>, in any order
+		PaddleController autopilot = null;
+		Path checkpointFile = null;
+		for (String arg : args) {
+			switch (arg) {
+			case "--autopilot" -> {
+				// The game loop runs on the event dispatch thread, which must not wait for the rollouts
+				MonteCarloAutopilot monteCarlo = new MonteCarloAutopilot(GameView.ballMoveDelayMillis / 2);
+				monteCarlo.setAsynchronous(true);
+				autopilot = monteCarlo;
+			}
+			case "--tracking" -> autopilot = new TrackingAutopilot();
+			default -> {
+				if (arg.startsWith(CHECKPOINT_OPTION)) {
+					checkpointFile = Path.of(arg.substring(CHECKPOINT_OPTION.length()));
+				}
+			}
+			}
+		}
+		PaddleController controller = autopilot;
+
+		// Resume the game from the checkpoint file if it holds one
+		Checkpointer checkpointer = null;
+		BreakoutState state = null;
+		if (checkpointFile != null) {
+			state = Checkpointer.restore(checkpointFile);
+			checkpointer = new Checkpointer(checkpointFile);
+		}
+		if (state == null || state.isDead() || state.isWon()) {
+			state = GameMap.createStateFromDescription(initMap);
+		}
+		BreakoutState initialState = state;
+		Checkpointer initialCheckpointer = checkpointer;
 		EventQueue.invokeLater(() -> {
-			GameView mazeView = new GameView(state);
+			GameView mazeView = new GameView(initialState, controller, initialCheckpointer);
 			JFrame frame = new JFrame("Breakout");
 			frame.getContentPane().add(mazeView);
 			frame.pack();
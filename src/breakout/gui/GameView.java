@@ -6,32 +6,52 @@ import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.Timer;
 
-import breakout.Ball;
-import breakout.BlockState;
 import breakout.BreakoutFacade;
 import breakout.BreakoutState;
+import breakout.Checkpointer;
+import breakout.PaddleController;
 import breakout.Point;
 import breakout.PaddleState;
 import breakout.Rect;
+import breakout.RewindBuffer;
+import breakout.StatePublisher;
+import breakout.TickGovernor;
 import breakout.Vector;
 
 @SuppressWarnings("serial")
 public class GameView extends JPanel {
+	private static final Logger LOGGER = Logger.getLogger(GameView.class.getName());
+
 	public static final int ballMoveDelayMillis = 20;
+	// The limits within which the game is kept: half a frame per tick, and at most 5000 balls
+	public static final long tickBudgetNanos = ballMoveDelayMillis * 1_000_000L / 2;
+	public static final int maxBalls = 5000;
+	// The history kept for rewinding: a snapshot every half second, for the last two minutes
+	public static final int rewindInterval = 25;
+	public static final int rewindCapacity = 240;
 
 	public BreakoutState breakoutState;
 	private Timer ballTimer;
 	private boolean leftKeyDown = false;
 	private boolean rightKeyDown = false;
+	private boolean rewindKeyDown = false;
 
 	long prevTimestamp = 0;
 	
 	private BreakoutFacade facade;
+	private PaddleController controller;
+	private TickGovernor governor = new TickGovernor(tickBudgetNanos, maxBalls);
+	private StatePublisher publisher = new StatePublisher();
+	private RewindBuffer rewind = new RewindBuffer(rewindInterval, rewindCapacity);
+	private Checkpointer checkpointer;
 
 	private void gameChanged() {
 		repaint(10);
@@ -52,8 +72,39 @@ public class GameView extends JPanel {
 	 * @param breakoutState initial state for the game.
 	 */
 	public GameView(BreakoutState breakoutState) {
+		this(breakoutState, null);
+	}
+
+	/**
+	 * Create a new GameView for playing breakout starting from a given
+	 * breakoutState, in which the paddle is moved by the given controller
+	 * instead of the arrow keys. Holding the backspace key steps the game
+	 * backwards.
+	 * 
+	 * @param breakoutState initial state for the game.
+	 * @param controller controller moving the paddle, or null to use the arrow keys.
+	 */
+	public GameView(BreakoutState breakoutState, PaddleController controller) {
+		this(breakoutState, controller, null);
+	}
+
+	/**
+	 * Create a new GameView for playing breakout starting from a given
+	 * breakoutState, in which the paddle is moved by the given controller
+	 * instead of the arrow keys, and which is saved periodically by the
+	 * given checkpointer until the game is over.
+	 * 
+	 * @param breakoutState initial state for the game.
+	 * @param controller controller moving the paddle, or null to use the arrow keys.
+	 * @param checkpointer checkpointer saving the game, or null not to save it.
+	 */
+	public GameView(BreakoutState breakoutState, PaddleController controller, Checkpointer checkpointer) {
 		this.breakoutState = breakoutState;
+		this.checkpointer = checkpointer;
 		this.facade = new BreakoutFacade();
+		this.controller = controller;
+
+		governor.setRewindBuffer(rewind);
 
 		setBackground(Color.black);
 
@@ -69,6 +120,10 @@ public class GameView extends JPanel {
 					leftKeyDown = true;
 					break;
 				}
+				case KeyEvent.VK_BACK_SPACE -> {
+					rewindKeyDown = true;
+					break;
+				}
 				}
 			}
 
@@ -83,6 +138,10 @@ public class GameView extends JPanel {
 					leftKeyDown = false;
 					break;
 				}
+				case KeyEvent.VK_BACK_SPACE -> {
+					rewindKeyDown = false;
+					break;
+				}
 				}
 			}
 		});
@@ -95,16 +154,36 @@ public class GameView extends JPanel {
 			// very high elapsed times (for example during debugging) are annoying.
 			elapsedTime = Math.min(elapsedTime, BreakoutState.MAX_ELAPSED_TIME);
 
+			if (rewindKeyDown) {
+				if (rewind.canRewind()) {
+					breakoutState = rewind.rewind();
+					publisher.offer(breakoutState);
+					gameChanged();
+				}
+				prevTimestamp = timestamp;
+				return;
+			}
+
 			int curPaddleDir = 0;
-			if (leftKeyDown && !rightKeyDown) {
-				breakoutState.movePaddleLeft(elapsedTime);
+			if (controller != null) {
+				curPaddleDir = controller.decide(breakoutState, elapsedTime);
+			}
+			else if (leftKeyDown && !rightKeyDown) {
 				curPaddleDir = -1;
 			}
-			if (!leftKeyDown && rightKeyDown) {
-				breakoutState.movePaddleRight(elapsedTime);
+			else if (!leftKeyDown && rightKeyDown) {
 				curPaddleDir = 1;
 			}
-			breakoutState.tick(curPaddleDir, elapsedTime);
+			governor.step(breakoutState, curPaddleDir, elapsedTime);
+			publisher.offer(breakoutState);
+			if (breakoutState.isDead() || breakoutState.isWon()) {
+				publisher.close();
+				discardCheckpoints();
+				closeController();
+			}
+			else if (checkpointer != null) {
+				checkpointer.offer(breakoutState);
+			}
 			if (breakoutState.isDead()) {
 				JOptionPane.showMessageDialog(this, "Game over :-(");
 				System.exit(0);
@@ -118,6 +197,39 @@ public class GameView extends JPanel {
 		prevTimestamp = timestamp;
 	}
 
+	// A game that is over is not resumed
+	private void discardCheckpoints() {
+		if (checkpointer != null) {
+			try {
+				checkpointer.discard();
+			}
+			catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Could not discard the checkpoints", e);
+			}
+			checkpointer = null;
+		}
+	}
+
+	// A game that is over needs no more decisions, so the threads of the controller, if any, are shut down
+	private void closeController() {
+		if (controller instanceof AutoCloseable closeable) {
+			try {
+				closeable.close();
+			}
+			catch (Exception e) {
+				LOGGER.log(Level.WARNING, "Could not close the controller", e);
+			}
+			controller = null;
+		}
+	}
+
+	/**
+	 * Returns the publisher to which spectators can subscribe to receive a snapshot of the game after each tick.
+	 */
+	public StatePublisher getStatePublisher() {
+		return publisher;
+	}
+
 	@Override
 	public Dimension getPreferredSize() {
 		Point size = toGUICoord(breakoutState.getBottomRight().plus(new Vector(200, 200)));
@@ -169,7 +281,7 @@ public class GameView extends JPanel {
 
 	private void paintBalls(Graphics g) {
 		// ball
-		for (Ball ball : facade.getBalls(breakoutState)) {
+		breakoutState.forEachBall(ball -> {
 			Point center = facade.getCenter(ball);
 			int diam = facade.getDiameter(ball);
 			int radius = diam/2;
@@ -177,14 +289,20 @@ public class GameView extends JPanel {
 			Point br = center.plus(new Vector(radius,radius));
 			Color color = facade.getColor(ball);
 			paintBall(g, color, tl, br);
-		}
+		});
 	}
 
 	private void paintBall(Graphics g, Color color, Point tlg, Point brg) {
 		g.setColor(color);
 		Point tl = toGUICoord(tlg);
 		Point br = toGUICoord(brg);
-		g.fillOval(tl.getX(), tl.getY(), br.getX() - tl.getX(), br.getY() - tl.getY());
+		// squares are much cheaper to fill than circles when the governor asks for less detail
+		if (governor.isDetailReduced()) {
+			g.fillRect(tl.getX(), tl.getY(), br.getX() - tl.getX(), br.getY() - tl.getY());
+		}
+		else {
+			g.fillOval(tl.getX(), tl.getY(), br.getX() - tl.getX(), br.getY() - tl.getY());
+		}
 	}
 
 	private void paintBlock(Graphics g, Point tlg, Point brg) {
@@ -195,13 +313,13 @@ public class GameView extends JPanel {
 
 	private void paintBlocks(Graphics g) {
 		// blocks
-		for (BlockState block : breakoutState.getBlocks()) {
+		breakoutState.forEachBlock(block -> {
 			g.setColor(facade.getColor(block));
 			Rect loc = facade.getLocation(block);
 			Point tl = loc.getTopLeft();
 			Point br = loc.getBottomRight();
 			paintBlock(g, tl, br);
-		}
+		});
 	}
 
 }